@@ -0,0 +1,84 @@
+package main.java.sistema.bench;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.MaquinaCartao;
+import main.java.sistema.relatorios.AgregadorFechamentos;
+import main.java.sistema.relatorios.ColunasMaquinas;
+import main.java.sistema.relatorios.Totais;
+
+/**
+ * Cadeia getResultadoFinalTurno e relatórios sobre o histórico inteiro.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AgregacaoBench {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int fechamentos;
+
+    @Param({"1", "4"})
+    public int maquinas;
+
+    private List<Fechamento> lista;
+    private AgregadorFechamentos agregador;
+    private ColunasMaquinas colunas;
+    private LocalDate inicio;
+    private LocalDate fim;
+
+    @Setup
+    public void preparar() {
+        lista = DadosSinteticos.gerar(fechamentos, maquinas);
+        agregador = new AgregadorFechamentos(lista);
+        colunas = new ColunasMaquinas(lista);
+
+        // "ano corrente" = último ano do histórico
+        fim = lista.get(lista.size() - 1).getData();
+        inicio = fim.withDayOfYear(1);
+    }
+
+    @Benchmark
+    public long resultadoFinalTurnoTodos() {
+        long soma = 0;
+        for (Fechamento f : lista) soma += f.getResultadoFinalTurno().centavos();
+        return soma;
+    }
+
+    @Benchmark
+    public long creditoMaquinasObjetos() {
+        long soma = 0;
+        for (Fechamento f : lista) {
+            for (MaquinaCartao m : f.getMaquinas()) soma += m.getCredito().centavos();
+        }
+        return soma;
+    }
+
+    @Benchmark
+    public long creditoMaquinasColunas() {
+        return colunas.somar(LocalDate.MIN.plusYears(1), LocalDate.MAX.minusYears(1))[0];
+    }
+
+    @Benchmark
+    public Totais agregadorAnoCorrente() {
+        return agregador.total(inicio, fim);
+    }
+}
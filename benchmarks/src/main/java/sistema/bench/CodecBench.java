@@ -0,0 +1,124 @@
+package main.java.sistema.bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import main.java.sistema.arquivos.ExportadorCsv;
+import main.java.sistema.arquivos.FechamentoCodec;
+import main.java.sistema.arquivos.FechamentoJson;
+import main.java.sistema.arquivos.JsonLeitor;
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.MaquinaCartao;
+import main.java.sistema.objetos.ParserBloco;
+
+/**
+ * Codificação/decodificação de um fechamento em cada formato.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBench {
+
+    @Param({"1", "4", "16"})
+    public int maquinas;
+
+    private Fechamento fechamento;
+    private List<String> bloco;
+    private ByteBuffer blocoBytes;
+    private String linhaMaquina;
+    private ByteBuffer binario;
+    private String json;
+    private ExportadorCsv csv;
+
+    @Setup
+    public void preparar() throws IOException {
+        fechamento = DadosSinteticos.gerar(1, maquinas).get(0);
+        bloco = new ArrayList<>(fechamento.toBlockLines());
+        linhaMaquina = fechamento.getMaquinas().get(0).toLine();
+        blocoBytes = ByteBuffer.wrap((String.join("\n", bloco) + "\n").getBytes(StandardCharsets.UTF_8));
+
+        binario = ByteBuffer.allocate(FechamentoCodec.tamanho(fechamento));
+        FechamentoCodec.encode(fechamento, binario);
+        binario.flip();
+
+        StringWriter w = new StringWriter();
+        FechamentoJson.escrever(w, fechamento);
+        json = w.toString();
+
+        csv = new ExportadorCsv(Writer.nullWriter(), ExportadorCsv.Linha.FECHAMENTO, ExportadorCsv.Dialeto.PLANILHA);
+    }
+
+    @Benchmark
+    public List<String> textoToBlockLines() {
+        return fechamento.toBlockLines();
+    }
+
+    @Benchmark
+    public Fechamento textoFromBlockLines() {
+        return Fechamento.fromBlockLines(bloco);
+    }
+
+    @Benchmark
+    public Fechamento textoParserBloco() {
+        blocoBytes.rewind();
+        return new ParserBloco(blocoBytes).proximo();
+    }
+
+    @Benchmark
+    public MaquinaCartao maquinaFromLine() {
+        return MaquinaCartao.fromLine(linhaMaquina);
+    }
+
+    @Benchmark
+    public void binarioEncode(Blackhole bh) {
+        ByteBuffer out = ByteBuffer.allocate(FechamentoCodec.tamanho(fechamento));
+        FechamentoCodec.encode(fechamento, out);
+        bh.consume(out);
+    }
+
+    @Benchmark
+    public Fechamento binarioDecode() {
+        return FechamentoCodec.decode(binario.duplicate());
+    }
+
+    @Benchmark
+    public String jsonEscrever() throws IOException {
+        StringWriter w = new StringWriter(256);
+        FechamentoJson.escrever(w, fechamento);
+        return w.toString();
+    }
+
+    @Benchmark
+    public Fechamento jsonLer() throws IOException {
+        return FechamentoJson.lerFechamento(new JsonLeitor(new StringReader(json)));
+    }
+
+    @Benchmark
+    public long csvLinha() throws IOException {
+        csv.escrever(fechamento);
+        return csv.getLinhas();
+    }
+}
@@ -0,0 +1,136 @@
+package main.java.sistema.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import main.java.sistema.arquivos.FormatoArquivo;
+import main.java.sistema.arquivos.ServicoFechamentos;
+import main.java.sistema.arquivos.ServicoFechamentos.Terminal;
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.Valor;
+
+/**
+ * Carga concorrente sobre o ServicoFechamentos: criações, edições e listagens de vários terminais ao
+ * mesmo tempo. Em {@code registrar} cada thread cria fechamentos em meses só dela (faixas de trava
+ * diferentes), então a escala mostra quanto sobra de disputa na trava da pasta e no append.
+ * Rode variando as threads para ver a escala com o número de núcleos, por exemplo:
+ * {@code java -jar benchmarks.jar ConcorrenciaBench -t 1} e depois {@code -t 4}, {@code -t 8}.
+ * Aqui só se mede vazão; a correção sob disputa é conferida por {@link VerificacaoConcorrencia}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcorrenciaBench {
+
+    @Param({"1", "8"})
+    public int terminais;
+
+    // dois anos de fechamentos por terminal: 24 meses para espalhar pelas faixas de trava
+    private static final int POR_TERMINAL = 1460;
+
+    private Path pasta;
+    private ServicoFechamentos servico;
+    private Terminal[] ts;
+    private long[][] ids;
+
+    @State(Scope.Thread)
+    public static class Fio {
+        int terminal;
+        int threads;
+        SplittableRandom rnd;
+        long criados; // registrar: n-ésimo fechamento criado por esta thread
+
+        @Setup(Level.Trial)
+        public void preparar(ThreadParams p) {
+            terminal = p.getThreadIndex();
+            threads = p.getThreadCount();
+            rnd = new SplittableRandom(p.getThreadIndex());
+        }
+
+        // 56 fechamentos por mês (28 dias x 2 turnos); os meses das threads se intercalam, longe dos pré-carregados
+        LocalDate proximaData() {
+            long n = criados / 2;
+            return YearMonth.of(2100, 1).plusMonths((n / 28) * threads + terminal).atDay((int) (n % 28) + 1);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        pasta = Files.createTempDirectory("aurelius-concorrencia");
+        servico = new ServicoFechamentos(pasta, FormatoArquivo.porNome("binario"));
+        ts = new Terminal[terminais];
+        ids = new long[terminais][];
+
+        for (int t = 0; t < terminais; t++) {
+            ts[t] = new Terminal("loja" + (t % 2), "caixa" + t);
+            List<Long> lidos = new ArrayList<>();
+            for (Fechamento f : DadosSinteticos.gerar(POR_TERMINAL, 2)) {
+                lidos.add(servico.registrar(ts[t], f).getId());
+            }
+            ids[t] = lidos.stream().mapToLong(Long::longValue).toArray();
+        }
+        servico.sincronizar();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        servico.encerrar();
+        try (Stream<Path> s = Files.walk(pasta)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    @Benchmark
+    public Fechamento alterar(Fio fio) {
+        int t = fio.terminal % terminais;
+        long id = ids[t][fio.rnd.nextInt(ids[t].length)];
+        Fechamento atual = servico.buscar(ts[t], id).orElseThrow();
+
+        Fechamento novo = Fechamento.fromBlockLines(atual.toBlockLines());
+        novo.setTrocoInicial(Valor.deCentavos(fio.rnd.nextInt(50_000)));
+        servico.alterar(ts[t], novo);
+        return novo;
+    }
+
+    @Benchmark
+    public Fechamento registrar(Fio fio) {
+        int t = fio.terminal % terminais;
+        Fechamento f = new Fechamento("Bench", fio.proximaData(), (int) (fio.criados++ % 2) + 1);
+        f.setTrocoInicial(Valor.deCentavos(fio.rnd.nextInt(50_000)));
+        return servico.registrar(ts[t], f);
+    }
+
+    @Benchmark
+    public List<Fechamento> listarMes(Fio fio) {
+        int t = fio.terminal % terminais;
+        LocalDate inicio = LocalDate.of(2000 + fio.rnd.nextInt(2), 1 + fio.rnd.nextInt(12), 1);
+        return servico.listar(ts[t], inicio, inicio.plusMonths(1).minusDays(1));
+    }
+}
@@ -0,0 +1,55 @@
+package main.java.sistema.bench;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.MaquinaCartao;
+import main.java.sistema.objetos.Valor;
+
+/**
+ * Gerador determinístico de históricos de fechamentos para os benchmarks.
+ * Dois turnos por dia a partir de 01/01/2000, valores aleatórios com semente fixa.
+ */
+public final class DadosSinteticos {
+
+    private static final String[] RESPONSAVEIS = {"gabriel", "ana", "bruno", "carla", "diego"};
+    private static final LocalDate INICIO = LocalDate.of(2000, 1, 1);
+
+    private DadosSinteticos() {}
+
+    public static List<Fechamento> gerar(int quantidade, int maquinasPorFechamento) {
+        SplittableRandom rnd = new SplittableRandom(42);
+        List<Fechamento> out = new ArrayList<>(quantidade);
+
+        for (int i = 0; i < quantidade; i++) {
+            Fechamento f = new Fechamento(RESPONSAVEIS[i % RESPONSAVEIS.length], INICIO.plusDays(i / 2), 1 + i % 2);
+            f.setId(i + 1);
+
+            long cred = 0, deb = 0, pix = 0;
+            for (int m = 0; m < maquinasPorFechamento; m++) {
+                MaquinaCartao maq = new MaquinaCartao(valor(rnd), valor(rnd), valor(rnd));
+                cred += maq.getCredito().centavos();
+                deb += maq.getDebito().centavos();
+                pix += maq.getPix().centavos();
+                f.addMaquina(maq);
+            }
+
+            // relatórios próximos do apurado, com pequenas diferenças
+            f.setRelatorioCredito(Valor.deCentavos(Math.max(0, cred + rnd.nextInt(-500, 500))));
+            f.setRelatorioDebito(Valor.deCentavos(Math.max(0, deb + rnd.nextInt(-500, 500))));
+            f.setRelatorioPix(Valor.deCentavos(Math.max(0, pix + rnd.nextInt(-500, 500))));
+            f.setEntradaDinheiro(valor(rnd));
+            f.setRelatorioDinheiro(valor(rnd));
+            f.setTrocoInicial(Valor.deCentavos(20_000));
+            out.add(f);
+        }
+        return out;
+    }
+
+    private static Valor valor(SplittableRandom rnd) {
+        return Valor.deCentavos(rnd.nextLong(0, 500_000));
+    }
+}
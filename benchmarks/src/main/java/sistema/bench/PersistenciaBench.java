@@ -0,0 +1,101 @@
+package main.java.sistema.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.java.sistema.arquivos.FechamentoRepository;
+import main.java.sistema.arquivos.FormatoArquivo;
+import main.java.sistema.objetos.Fechamento;
+
+/**
+ * Leitura e gravação da base inteira em cada formato, mais o loadAll/saveAll do repositório.
+ * Os arquivos ficam numa pasta temporária (user.home é redirecionado antes do repositório carregar).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersistenciaBench {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int fechamentos;
+
+    @Param({"1", "4"})
+    public int maquinas;
+
+    @Param({"texto", "json", "binario"})
+    public String formato;
+
+    private Path pasta;
+    private Path arquivo;
+    private FormatoArquivo impl;
+    private List<Fechamento> lista;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        pasta = Files.createTempDirectory("aurelius-bench");
+        System.setProperty("user.home", pasta.toString());
+        System.setProperty("aurelius.formato", formato);
+
+        impl = FormatoArquivo.porNome(formato);
+        lista = DadosSinteticos.gerar(fechamentos, maquinas);
+        arquivo = pasta.resolve("base." + impl.extensao());
+        impl.escrever(arquivo, lista);
+
+        Files.createDirectories(pasta.resolve("Documents"));
+        impl.escrever(pasta.resolve("Documents").resolve("fechamentos_db." + impl.extensao()), lista);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpar() throws IOException {
+        try (Stream<Path> s = Files.walk(pasta)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    @Benchmark
+    public List<Fechamento> ler() throws IOException {
+        List<Fechamento> out = new ArrayList<>(fechamentos);
+        impl.ler(arquivo, out::add);
+        return out;
+    }
+
+    @Benchmark
+    public Path escrever() throws IOException {
+        impl.escrever(arquivo, lista);
+        return arquivo;
+    }
+
+    @Benchmark
+    public List<Fechamento> repositorioLoadAll() {
+        return FechamentoRepository.loadAll();
+    }
+
+    @Benchmark
+    public List<Fechamento> repositorioSaveAll() {
+        FechamentoRepository.saveAll(lista);
+        return lista;
+    }
+}
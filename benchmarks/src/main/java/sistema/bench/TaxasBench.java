@@ -0,0 +1,82 @@
+package main.java.sistema.bench;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.MaquinaCartao;
+import main.java.sistema.objetos.RegrasFechamento;
+import main.java.sistema.objetos.TabelaTaxas;
+
+/**
+ * Recálculo dos líquidos depois de uma taxa retroativa: a passada em colunas de
+ * TabelaTaxas.recalcular contra refazer máquina a máquina com Valor.aplicarFator.
+ * Cada chamada alterna entre duas tabelas, então sempre há valores a mudar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TaxasBench {
+
+    @Param({"1000", "100000"})
+    public int fechamentos;
+
+    @Param({"1", "4"})
+    public int maquinas;
+
+    private List<Fechamento> lista;
+    private final TabelaTaxas[] tabelas = new TabelaTaxas[2];
+    private int vez;
+
+    @Setup
+    public void preparar() {
+        LocalDate inicio = LocalDate.of(2000, 1, 1);
+        tabelas[0] = TabelaTaxas.PADRAO;
+        tabelas[1] = new TabelaTaxas(List.of(
+                new TabelaTaxas.Regra(inicio, 0, TabelaTaxas.Tipo.CREDITO, 349),
+                new TabelaTaxas.Regra(inicio, 0, TabelaTaxas.Tipo.DEBITO, 199),
+                new TabelaTaxas.Regra(inicio, 2, TabelaTaxas.Tipo.CREDITO, 410)));
+
+        // valores gerados = brutos digitados
+        lista = DadosSinteticos.gerar(fechamentos, maquinas);
+        for (Fechamento f : lista) RegrasFechamento.aplicarTaxas(f, tabelas[0]);
+    }
+
+    @Benchmark
+    public int recalcularColunas() {
+        return tabelas[++vez & 1].recalcular(lista).alterados().size();
+    }
+
+    @Benchmark
+    public int recalcularPorMaquina() {
+        TabelaTaxas t = tabelas[++vez & 1];
+        int alterados = 0;
+        for (Fechamento f : lista) {
+            int i = 0;
+            for (MaquinaCartao m : f.getMaquinas()) {
+                i++;
+                m.setCredito(m.getBrutoCredito().aplicarFator(t.fator(i, TabelaTaxas.Tipo.CREDITO, f.getData())));
+                m.setDebito(m.getBrutoDebito().aplicarFator(t.fator(i, TabelaTaxas.Tipo.DEBITO, f.getData())));
+                m.setPix(m.getBrutoPix().aplicarFator(t.fator(i, TabelaTaxas.Tipo.PIX, f.getData())));
+            }
+            alterados++;
+        }
+        return alterados;
+    }
+}
@@ -0,0 +1,186 @@
+package main.java.sistema.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import main.java.sistema.arquivos.FormatoArquivo;
+import main.java.sistema.arquivos.RepositorioTerminal;
+import main.java.sistema.arquivos.ServicoFechamentos;
+import main.java.sistema.arquivos.ServicoFechamentos.Terminal;
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.Valor;
+
+/**
+ * Verificação de correção para a mesma carga do {@link ConcorrenciaBench}: várias threads criando,
+ * editando (inclusive mudando de mês) e excluindo os mesmos fechamentos ao mesmo tempo. No fim confere:
+ * <ul>
+ *   <li>nenhum id perdido: criados - excluídos == presentes, na memória e no disco;</li>
+ *   <li>nenhum (data, turno) repetido no disco;</li>
+ *   <li>índice por id, índice por data/turno e segmentos gravados concordando entre si.</li>
+ * </ul>
+ * {@code java -cp benchmarks.jar main.java.sistema.bench.VerificacaoConcorrencia [threads] [segundos]};
+ * termina com código 1 se alguma conferência falhar.
+ */
+public final class VerificacaoConcorrencia {
+
+    private static final Terminal TERMINAL = new Terminal("loja0", "caixa0");
+    private static final LocalDate INICIO = LocalDate.of(2000, 1, 1);
+    private static final int DIAS = 120; // quatro meses: edições mudam de mês (e de faixa) com frequência
+
+    private final ServicoFechamentos servico;
+    private final Set<Long> criados = ConcurrentHashMap.newKeySet();
+    private final Set<Long> excluidos = ConcurrentHashMap.newKeySet();
+    private final List<String> falhas = new ArrayList<>();
+
+    private VerificacaoConcorrencia(ServicoFechamentos servico) {
+        this.servico = servico;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Path pasta = Files.createTempDirectory("aurelius-verificacao");
+        FormatoArquivo formato = FormatoArquivo.porNome("binario");
+        try {
+            VerificacaoConcorrencia v = new VerificacaoConcorrencia(new ServicoFechamentos(pasta, formato));
+            long operacoes = v.carga(threads, segundos);
+            v.conferir(pasta, formato);
+
+            System.out.println(operacoes + " operações com " + threads + " thread(s), "
+                    + v.criados.size() + " criados, " + v.excluidos.size() + " excluídos.");
+            if (!v.falhas.isEmpty()) {
+                for (String f : v.falhas) System.out.println("FALHA: " + f);
+                System.exit(1);
+            }
+            System.out.println("OK");
+        } finally {
+            try (Stream<Path> s = Files.walk(pasta)) {
+                for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    // ----------------------
+    // CARGA
+    // ----------------------
+    private long carga(int threads, int segundos) throws Exception {
+        long fim = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> fs = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            SplittableRandom rnd = new SplittableRandom(i);
+            fs.add(pool.submit(() -> {
+                long n = 0;
+                while (System.nanoTime() < fim) {
+                    operar(rnd);
+                    n++;
+                }
+                return n;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> f : fs) total += f.get();
+        pool.shutdown();
+        return total;
+    }
+
+    private void operar(SplittableRandom rnd) {
+        LocalDate data = INICIO.plusDays(rnd.nextInt(DIAS));
+        int turno = 1 + rnd.nextInt(2);
+        int op = rnd.nextInt(10);
+        try {
+            if (op < 3) {
+                Fechamento f = new Fechamento("verificacao", data, turno);
+                f.setTrocoInicial(Valor.deCentavos(rnd.nextInt(50_000)));
+                criados.add(servico.registrar(TERMINAL, f).getId());
+            } else {
+                // pega um fechamento existente qualquer (o de um dia/turno sorteado)
+                Fechamento atual = servico.buscar(TERMINAL, data, turno).orElse(null);
+                if (atual == null) return;
+                if (op < 8) {
+                    Fechamento novo = Fechamento.fromBlockLines(atual.toBlockLines());
+                    novo.setData(INICIO.plusDays(rnd.nextInt(DIAS)));
+                    novo.setTurno(1 + rnd.nextInt(2));
+                    servico.alterar(TERMINAL, novo);
+                } else if (servico.remover(TERMINAL, atual.getId())) {
+                    excluidos.add(atual.getId());
+                }
+            }
+        } catch (IllegalStateException | IllegalArgumentException esperado) {
+            // (data, turno) ocupado ou fechamento excluído por outra thread: faz parte da disputa
+        }
+    }
+
+    // ----------------------
+    // CONFERÊNCIA
+    // ----------------------
+    private void conferir(Path pasta, FormatoArquivo formato) {
+        Set<Long> esperados = new HashSet<>(criados);
+        esperados.removeAll(excluidos);
+
+        // memória: índice por data/turno x índice por id
+        List<Fechamento> listados = servico.listar(TERMINAL, INICIO.minusYears(1), INICIO.plusYears(1));
+        Map<Long, Fechamento> memoria = new HashMap<>();
+        for (Fechamento f : listados) {
+            if (memoria.put(f.getId(), f) != null) falha("id " + f.getId() + " em duas chaves do índice por data/turno");
+            if (servico.buscar(TERMINAL, f.getId()).orElse(null) != f) {
+                falha("id " + f.getId() + ": índice por id diverge do índice por data/turno");
+            }
+        }
+        for (long id : excluidos) {
+            if (servico.buscar(TERMINAL, id).isPresent()) falha("id " + id + " excluído continua no índice por id");
+        }
+        comparar("memória", esperados, memoria.keySet());
+
+        // disco: relê a pasta com um repositório novo, depois de tudo gravado
+        servico.encerrar();
+        RepositorioTerminal repo = new RepositorioTerminal(
+                pasta.resolve(TERMINAL.loja()).resolve(TERMINAL.terminal()), formato);
+        Map<Long, Fechamento> disco = new HashMap<>();
+        Map<String, Long> chaves = new HashMap<>();
+        for (Fechamento f : repo.loadAll()) {
+            if (disco.put(f.getId(), f) != null) falha("id " + f.getId() + " repetido nos segmentos");
+            Long outro = chaves.put(f.getData() + " turno " + f.getTurno(), f.getId());
+            if (outro != null) falha(f.getData() + " turno " + f.getTurno() + " repetido no disco (ids " + outro + " e " + f.getId() + ")");
+        }
+        repo.encerrar();
+        comparar("disco", esperados, disco.keySet());
+
+        for (Map.Entry<Long, Fechamento> e : memoria.entrySet()) {
+            Fechamento d = disco.get(e.getKey());
+            if (d != null && !d.toBlockLines().equals(e.getValue().toBlockLines())) {
+                falha("id " + e.getKey() + ": conteúdo no disco diverge da memória");
+            }
+        }
+    }
+
+    private void comparar(String onde, Set<Long> esperados, Set<Long> achados) {
+        for (long id : esperados) {
+            if (!achados.contains(id)) falha("id " + id + " perdido (" + onde + ")");
+        }
+        for (long id : achados) {
+            if (!esperados.contains(id)) falha("id " + id + " sobrando (" + onde + ")");
+        }
+    }
+
+    private void falha(String msg) {
+        if (falhas.size() < 50) falhas.add(msg);
+    }
+}
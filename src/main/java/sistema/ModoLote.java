@@ -0,0 +1,476 @@
+package main.java.sistema;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import main.java.sistema.arquivos.ExportadorCsv;
+import main.java.sistema.arquivos.FechamentoJson;
+import main.java.sistema.arquivos.FechamentoRepository;
+import main.java.sistema.arquivos.JsonLeitor;
+import main.java.sistema.arquivos.LancamentosCsv;
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.FechamentoIndice;
+import main.java.sistema.objetos.FiltroFechamentos;
+import main.java.sistema.objetos.MaquinaCartao;
+import main.java.sistema.objetos.PaginaFechamentos;
+import main.java.sistema.objetos.RegrasFechamento;
+import main.java.sistema.objetos.TabelaTaxas;
+import main.java.sistema.relatorios.AgregadorFechamentos;
+import main.java.sistema.relatorios.Periodo;
+import main.java.sistema.relatorios.Totais;
+
+/**
+ * Modo lote (sem menu), chamado quando o programa recebe argumentos:
+ *
+ * <pre>
+ * importar [--formato csv|json] [--simular] [arquivo ...|-]   lançamentos novos (CSV de LancamentosCsv ou JSON)
+ * relatorio --inicio AAAA-MM-DD --fim AAAA-MM-DD [--periodo dia|semana|mes]   totais em CSV na saída padrão
+ * exportar [--inicio ..] [--fim ..] [--formato json|csv|planilha] [--linhas fechamento|maquina] [arquivo|-]
+ *                                                               fechamentos gravados (já com a taxa)
+ * listar [--inicio ..] [--fim ..] [--turno 1|2] [--responsavel nome] [--diferenca] [--ordem asc|desc]
+ *        [--limite N] [--cursor AAAA-MM-DD:turno]                uma página da listagem; o cursor da próxima sai no stderr
+ * recalcular [--inicio ..] [--fim ..] [--simular]              refaz os líquidos pela tabela de taxas atual
+ * </pre>
+ *
+ * (também aceita import, report e export). Sem arquivo, ou com "-", usa a entrada/saída padrão.
+ *
+ * A importação aplica as mesmas regras do console (validação, taxa e ajuste do turno 2, que acha o
+ * turno 1 no próprio lote ou na base), descarta (data, turno) já existentes e grava tudo num único lote.
+ * Em CSV uma linha inválida é rejeitada sozinha; em JSON um erro rejeita o arquivo inteiro.
+ * O recálculo serve para taxas alteradas com vigência retroativa em taxas.txt ({@link TabelaTaxas}):
+ * lê um mês por vez, refaz os líquidos a partir dos brutos guardados e regrava só o que mudou.
+ * Máquinas gravadas antes de existirem os brutos ficam como estão.
+ * A exportação em CSV ({@link ExportadorCsv}) lê e escreve um mês por vez, então um período de
+ * vários anos não precisa caber em memória.
+ * Código de saída: 0 ok, 1 uso incorreto ou falha de leitura, 2 importação com linhas rejeitadas,
+ * 3 registros que não chegaram ao disco.
+ */
+public final class ModoLote {
+
+    private record Lancamento(String origem, Fechamento fechamento) {}
+
+    private ModoLote() {}
+
+    public static int executar(String[] args) {
+        String comando = args[0].toLowerCase(Locale.ROOT);
+        List<String> arquivos = new ArrayList<>();
+        Map<String, String> opcoes = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String a = args[i];
+            if (a.equals("--simular") || a.equals("--diferenca")) {
+                opcoes.put(a.substring(2), "");
+            } else if (a.startsWith("--")) {
+                if (i + 1 >= args.length) return uso("Falta o valor de " + a + ".");
+                opcoes.put(a.substring(2), args[++i]);
+            } else {
+                arquivos.add(a);
+            }
+        }
+
+        int codigo = 1;
+        try {
+            codigo = switch (comando) {
+                case "importar", "import" -> importar(arquivos, opcoes);
+                case "relatorio", "report" -> relatorio(opcoes);
+                case "exportar", "export" -> exportar(arquivos, opcoes);
+                case "listar", "list" -> listar(opcoes);
+                case "recalcular", "recompute" -> recalcular(opcoes);
+                default -> uso("Comando desconhecido: " + args[0]);
+            };
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            codigo = uso(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Erro: " + e.getMessage());
+            codigo = 1;
+        } finally {
+            if (!FechamentoRepository.encerrar()) {
+                System.err.println("Erro: nem tudo foi gravado na base.");
+                codigo = 3;
+            }
+        }
+        return codigo;
+    }
+
+    // ----------------------
+    // IMPORTAR
+    // ----------------------
+    private static int importar(List<String> arquivos, Map<String, String> opcoes) throws IOException {
+        long inicio = System.nanoTime();
+        if (arquivos.isEmpty()) arquivos = List.of("-");
+
+        List<Lancamento> lidos = new ArrayList<>();
+        int rejeitados = 0;
+        for (String arq : arquivos) {
+            String formato = opcoes.getOrDefault("formato",
+                    arq.toLowerCase(Locale.ROOT).endsWith(".json") ? "json" : "csv");
+            rejeitados += ler(arq, formato, lidos);
+        }
+        int rejeitadosNaLeitura = rejeitados;
+
+        List<Lancamento> validos = new ArrayList<>();
+        for (Lancamento l : lidos) {
+            try {
+                RegrasFechamento.validar(l.fechamento());
+                validos.add(l);
+            } catch (IllegalArgumentException e) {
+                System.err.println(l.origem() + ": " + e.getMessage());
+                rejeitados++;
+            }
+        }
+        // turno 1 antes do turno 2 do mesmo dia, para o ajuste achar o turno 1 do próprio lote
+        validos.sort(Comparator.comparing((Lancamento l) -> l.fechamento().getData())
+                .thenComparingInt(l -> l.fechamento().getTurno()));
+
+        Set<YearMonth> meses = new TreeSet<>();
+        for (Lancamento l : validos) meses.add(YearMonth.from(l.fechamento().getData()));
+        FechamentoIndice indice = new FechamentoIndice();
+        for (List<Fechamento> mes : FechamentoRepository.carregar(meses).values()) {
+            for (Fechamento f : mes) indice.adicionar(f);
+        }
+
+        TabelaTaxas taxas = FechamentoRepository.taxas();
+        List<Fechamento> novos = new ArrayList<>();
+        List<Fechamento> recalculados = new ArrayList<>(); // turnos 2 já gravados cujo turno 1 chegou agora
+        int duplicados = 0;
+        for (Lancamento l : validos) {
+            Fechamento f = l.fechamento();
+            if (indice.buscar(f.getData(), f.getTurno()) != null) {
+                System.err.println(l.origem() + ": já existe fechamento para " + f.getData() + " turno " + f.getTurno() + ".");
+                duplicados++;
+                continue;
+            }
+
+            RegrasFechamento.aplicarTaxas(f, taxas);
+            if (f.getTurno() == 2) {
+                RegrasFechamento.ajustarTurno2(f, indice.buscar(f.getData(), 1));
+            } else {
+                Fechamento turno2 = indice.buscar(f.getData(), 2);
+                if (turno2 != null && RegrasFechamento.diferencaTurno2(turno2, f)) recalculados.add(turno2);
+            }
+
+            indice.adicionar(f);
+            novos.add(f);
+        }
+
+        boolean simular = opcoes.containsKey("simular");
+        if (!simular && !(novos.isEmpty() && recalculados.isEmpty())) {
+            // a base confere de novo sob a trava: o console, a API ou outro processo pode ter gravado.
+            // Turnos 1 primeiro: um turno 2 ajustado contra um turno 1 do lote que a base recusou é
+            // refeito contra o turno 1 gravado antes de ir para a base.
+            List<Fechamento> turnos1 = new ArrayList<>();
+            List<Fechamento> turnos2 = new ArrayList<>();
+            for (Fechamento f : novos) (f.getTurno() == 1 ? turnos1 : turnos2).add(f);
+
+            List<Fechamento> recusados = new ArrayList<>(FechamentoRepository.inserirTodos(turnos1));
+            Set<LocalDate> turno1Recusado = new HashSet<>();
+            for (Fechamento f : recusados) turno1Recusado.add(f.getData());
+            refazerTurnos2(turnos2, turno1Recusado);
+            recusados.addAll(FechamentoRepository.inserirTodos(turnos2));
+
+            for (Fechamento f : recusados) {
+                System.err.println("já existe fechamento para " + f.getData() + " turno " + f.getTurno() + " (gravado enquanto o lote era lido).");
+            }
+            novos.removeAll(recusados);
+            duplicados += recusados.size();
+            for (Fechamento t2 : recalculados) {
+                if (!turno1Recusado.contains(t2.getData())) FechamentoRepository.atualizar(t2);
+            }
+            FechamentoRepository.consolidar();
+        }
+
+        long nanos = System.nanoTime() - inicio;
+        int registros = lidos.size() + rejeitadosNaLeitura;
+        System.err.printf("%d registro(s): %d %s, %d duplicado(s), %d rejeitado(s) em %d ms (%.0f/s)%n",
+                registros, novos.size(), simular ? "a gravar (simulação)" : "gravado(s)", duplicados, rejeitados,
+                nanos / 1_000_000, nanos == 0 ? 0.0 : registros * 1e9 / nanos);
+        return rejeitados > 0 ? 2 : 0;
+    }
+
+    // turnos 2 dos dias cujo turno 1 do lote foi recusado: diferença contra o turno 1 que está na base
+    private static void refazerTurnos2(List<Fechamento> turnos2, Set<LocalDate> turno1Recusado) {
+        if (turno1Recusado.isEmpty()) return;
+        Set<YearMonth> meses = new TreeSet<>();
+        for (LocalDate d : turno1Recusado) meses.add(YearMonth.from(d));
+        FechamentoIndice gravados = new FechamentoIndice();
+        for (List<Fechamento> mes : FechamentoRepository.carregar(meses).values()) {
+            for (Fechamento f : mes) gravados.adicionar(f);
+        }
+        for (Fechamento t2 : turnos2) {
+            if (turno1Recusado.contains(t2.getData())) RegrasFechamento.diferencaTurno2(t2, gravados.buscar(t2.getData(), 1));
+        }
+    }
+
+    // devolve quantos registros foram rejeitados na leitura
+    private static int ler(String arq, String formato, List<Lancamento> destino) throws IOException {
+        String nome = arq.equals("-") ? "stdin" : arq;
+        try (BufferedReader in = abrir(arq)) {
+            if (formato.equals("json")) {
+                List<Fechamento> doArquivo = new ArrayList<>();
+                try {
+                    FechamentoJson.ler(new JsonLeitor(in), doArquivo::add);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println(nome + ": " + e.getMessage() + " (arquivo ignorado)");
+                    return 1;
+                }
+                int i = 0;
+                for (Fechamento f : doArquivo) {
+                    f.setId(0);
+                    if (f.temLeituras()) {
+                        // turno 2 exportado: as leituras (acumuladas, com bruto) são as máquinas digitadas
+                        List<MaquinaCartao> lidas = new ArrayList<>(f.getLeituras());
+                        f.clearMaquinas();
+                        for (MaquinaCartao m : lidas) f.addMaquina(m.copia());
+                    }
+                    f.clearLeituras(); // lançamento: as leituras saem das máquinas digitadas
+                    destino.add(new Lancamento(nome + " #" + ++i, f));
+                }
+                return 0;
+            }
+            if (!formato.equals("csv")) throw new IllegalArgumentException("Formato desconhecido: " + formato);
+
+            int[] rejeitados = {0};
+            LancamentosCsv.ler(in,
+                    (n, f) -> destino.add(new Lancamento(nome + ":" + n, f)),
+                    (n, msg) -> {
+                        System.err.println(nome + ":" + n + ": " + msg);
+                        rejeitados[0]++;
+                    });
+            return rejeitados[0];
+        }
+    }
+
+    // ----------------------
+    // RELATÓRIO
+    // ----------------------
+    private static int relatorio(Map<String, String> opcoes) throws IOException {
+        LocalDate inicio = data(opcoes, "inicio", null);
+        LocalDate fim = data(opcoes, "fim", null);
+        Periodo periodo;
+        try {
+            periodo = Periodo.valueOf(opcoes.getOrDefault("periodo", "dia").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Período inválido: " + opcoes.get("periodo") + " (dia, semana ou mes).");
+        }
+
+        AgregadorFechamentos agregador = new AgregadorFechamentos();
+        for (Fechamento f : carregar(inicio, fim)) agregador.adicionar(f);
+
+        try (Writer w = saida("-")) {
+            w.write("inicio;quantidade;credito;debito;pix;relatorioCredito;relatorioDebito;relatorioPix;"
+                    + "entradaDinheiro;relatorioDinheiro;trocoInicial;resultado\n");
+            for (Map.Entry<LocalDate, Totais> e : agregador.agrupar(inicio, fim, periodo).entrySet()) {
+                linhaTotais(w, e.getKey().toString(), e.getValue());
+            }
+            linhaTotais(w, "total", agregador.total(inicio, fim));
+        }
+        return 0;
+    }
+
+    private static void linhaTotais(Writer w, String rotulo, Totais t) throws IOException {
+        w.write(rotulo + ";" + t.getQuantidade() + ";" + t.getCredito() + ";" + t.getDebito() + ";" + t.getPix()
+                + ";" + t.getRelatorioCredito() + ";" + t.getRelatorioDebito() + ";" + t.getRelatorioPix()
+                + ";" + t.getEntradaDinheiro() + ";" + t.getRelatorioDinheiro() + ";" + t.getTrocoInicial()
+                + ";" + t.getResultado() + "\n");
+    }
+
+    // ----------------------
+    // EXPORTAR
+    // ----------------------
+    private static int exportar(List<String> arquivos, Map<String, String> opcoes) throws IOException {
+        if (arquivos.size() > 1) throw new IllegalArgumentException("Exportar aceita um único arquivo de saída.");
+        LocalDate inicio = data(opcoes, "inicio", LocalDate.MIN);
+        LocalDate fim = data(opcoes, "fim", LocalDate.MAX);
+        String formato = opcoes.getOrDefault("formato", "json").toLowerCase(Locale.ROOT);
+        String arquivo = arquivos.isEmpty() ? "-" : arquivos.get(0);
+
+        if (!formato.equals("json")) return exportarCsv(arquivo, formato, inicio, fim, opcoes);
+        if (opcoes.containsKey("linhas")) throw new IllegalArgumentException("--linhas só vale para csv e planilha.");
+
+        List<Fechamento> lista = carregar(inicio, fim);
+        try (Writer w = saida(arquivo)) {
+            FechamentoJson.escrever(w, lista);
+            w.write('\n');
+        }
+        System.err.println(lista.size() + " fechamento(s) exportado(s).");
+        return 0;
+    }
+
+    // um mês em memória por vez: lê, ordena, escreve e descarta
+    private static int exportarCsv(String arquivo, String formato, LocalDate inicio, LocalDate fim,
+                                   Map<String, String> opcoes) throws IOException {
+        ExportadorCsv.Dialeto dialeto = switch (formato) {
+            case "csv" -> ExportadorCsv.Dialeto.CSV;
+            case "planilha", "xls", "excel" -> ExportadorCsv.Dialeto.PLANILHA;
+            default -> throw new IllegalArgumentException("Formato desconhecido: " + formato + " (json, csv ou planilha).");
+        };
+        ExportadorCsv.Linha linha = switch (opcoes.getOrDefault("linhas", "fechamento").toLowerCase(Locale.ROOT)) {
+            case "fechamento", "fechamentos" -> ExportadorCsv.Linha.FECHAMENTO;
+            case "maquina", "maquinas", "máquina", "máquinas" -> ExportadorCsv.Linha.MAQUINA;
+            default -> throw new IllegalArgumentException("Linhas inválidas: " + opcoes.get("linhas") + " (fechamento ou maquina).");
+        };
+
+        int fechamentos = 0;
+        ExportadorCsv csv;
+        try (Writer w = saida(arquivo)) {
+            csv = new ExportadorCsv(w, linha, dialeto);
+            csv.cabecalho();
+            for (YearMonth m : meses(inicio, fim)) {
+                for (Fechamento f : carregar(List.of(m), inicio, fim)) {
+                    csv.escrever(f);
+                    fechamentos++;
+                }
+            }
+        }
+        System.err.println(fechamentos + " fechamento(s) exportado(s), " + csv.getLinhas() + " linha(s).");
+        return 0;
+    }
+
+    // ----------------------
+    // LISTAR
+    // ----------------------
+    private static int listar(Map<String, String> opcoes) throws IOException {
+        FiltroFechamentos filtro = new FiltroFechamentos(data(opcoes, "inicio", null, false), data(opcoes, "fim", null, false),
+                opcoes.containsKey("turno") ? Integer.parseInt(opcoes.get("turno")) : 0,
+                opcoes.get("responsavel"), opcoes.containsKey("diferenca"));
+        boolean decrescente = switch (opcoes.getOrDefault("ordem", "asc").toLowerCase(Locale.ROOT)) {
+            case "asc" -> false;
+            case "desc" -> true;
+            default -> throw new IllegalArgumentException("Ordem inválida: " + opcoes.get("ordem") + " (asc ou desc).");
+        };
+        int limite = Integer.parseInt(opcoes.getOrDefault("limite", "50"));
+        PaginaFechamentos.Cursor cursor = opcoes.containsKey("cursor") ? PaginaFechamentos.Cursor.parse(opcoes.get("cursor")) : null;
+
+        PaginaFechamentos p = FechamentoRepository.pagina(filtro, cursor, limite, decrescente);
+        try (Writer w = saida("-")) {
+            ExportadorCsv csv = new ExportadorCsv(w, ExportadorCsv.Linha.FECHAMENTO, ExportadorCsv.Dialeto.CSV);
+            csv.cabecalho();
+            for (Fechamento f : p.itens()) csv.escrever(f);
+        }
+        System.err.println(p.itens().size() + " fechamento(s)" + (p.temProxima() ? "; próxima página: --cursor " + p.proximo() : "."));
+        return 0;
+    }
+
+    // ----------------------
+    // RECALCULAR TAXAS
+    // ----------------------
+    private static int recalcular(Map<String, String> opcoes) throws IOException {
+        LocalDate inicio = data(opcoes, "inicio", LocalDate.MIN);
+        LocalDate fim = data(opcoes, "fim", LocalDate.MAX);
+        boolean simular = opcoes.containsKey("simular");
+        TabelaTaxas taxas = FechamentoRepository.lerTaxas(); // tabela com erro: não regrava nada
+
+        long t0 = System.nanoTime();
+        int fechamentos = 0;
+        int maquinas = 0;
+        int semBruto = 0;
+        int alterados = 0;
+        for (YearMonth m : meses(inicio, fim)) {
+            List<Fechamento> mes = carregar(List.of(m), inicio, fim); // turno 1 e 2 do dia sempre juntos
+            TabelaTaxas.Recalculo r = taxas.recalcular(mes);
+            if (!simular) for (Fechamento f : r.alterados()) FechamentoRepository.atualizar(f);
+            fechamentos += mes.size();
+            maquinas += r.maquinas();
+            semBruto += r.semBruto();
+            alterados += r.alterados().size();
+        }
+        if (!simular && alterados > 0) FechamentoRepository.consolidar();
+
+        long nanos = System.nanoTime() - t0;
+        System.err.printf("%d fechamento(s), %d máquina(s): %d %s, %d máquina(s) sem valor bruto (mantidas) em %d ms%n",
+                fechamentos, maquinas, alterados, simular ? "a alterar (simulação)" : "alterado(s)", semBruto,
+                nanos / 1_000_000);
+        return 0;
+    }
+
+    // ----------------------
+    // AUXILIARES
+    // ----------------------
+    private static List<Fechamento> carregar(LocalDate inicio, LocalDate fim) {
+        return carregar(meses(inicio, fim), inicio, fim);
+    }
+
+    private static List<Fechamento> carregar(Collection<YearMonth> meses, LocalDate inicio, LocalDate fim) {
+        List<Fechamento> out = new ArrayList<>();
+        for (List<Fechamento> mes : FechamentoRepository.carregar(meses).values()) {
+            for (Fechamento f : mes) {
+                if (f.getData() != null && !f.getData().isBefore(inicio) && !f.getData().isAfter(fim)) out.add(f);
+            }
+        }
+        out.sort(Comparator.comparing(Fechamento::getData).thenComparingInt(Fechamento::getTurno));
+        return out;
+    }
+
+    private static Set<YearMonth> meses(LocalDate inicio, LocalDate fim) {
+        Set<YearMonth> meses = new TreeSet<>();
+        for (YearMonth m : FechamentoRepository.meses()) {
+            if (!m.isBefore(YearMonth.from(inicio)) && !m.isAfter(YearMonth.from(fim))) meses.add(m);
+        }
+        return meses;
+    }
+
+    private static LocalDate data(Map<String, String> opcoes, String nome, LocalDate padrao) {
+        return data(opcoes, nome, padrao, true);
+    }
+
+    private static LocalDate data(Map<String, String> opcoes, String nome, LocalDate padrao, boolean obrigatoria) {
+        String s = opcoes.get(nome);
+        if (s == null) {
+            if (padrao == null && obrigatoria) throw new IllegalArgumentException("Informe --" + nome + " AAAA-MM-DD.");
+            return padrao;
+        }
+        return LocalDate.parse(s);
+    }
+
+    private static BufferedReader abrir(String arq) throws IOException {
+        Reader r = arq.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Path.of(arq), StandardCharsets.UTF_8);
+        return new BufferedReader(r, 1 << 16);
+    }
+
+    private static Writer saida(String arq) throws IOException {
+        if (!arq.equals("-")) {
+            return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Path.of(arq)), StandardCharsets.UTF_8), 1 << 16);
+        }
+        // não fecha System.out junto com o writer
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    private static int uso(String msg) {
+        System.err.println(msg);
+        System.err.println("Uso: importar [--formato csv|json] [--simular] [arquivo ...|-]");
+        System.err.println("     relatorio --inicio AAAA-MM-DD --fim AAAA-MM-DD [--periodo dia|semana|mes]");
+        System.err.println("     exportar [--inicio AAAA-MM-DD] [--fim AAAA-MM-DD] [--formato json|csv|planilha]");
+        System.err.println("              [--linhas fechamento|maquina] [arquivo|-]");
+        System.err.println("     listar [--inicio ..] [--fim ..] [--turno 1|2] [--responsavel nome] [--diferenca]");
+        System.err.println("            [--ordem asc|desc] [--limite N] [--cursor AAAA-MM-DD:turno]");
+        System.err.println("     recalcular [--inicio AAAA-MM-DD] [--fim AAAA-MM-DD] [--simular]");
+        return 1;
+    }
+}
@@ -1,41 +1,170 @@
 package main.java.sistema;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import main.java.sistema.api.ServidorApi;
+import main.java.sistema.arquivos.CacheMeses;
 import main.java.sistema.arquivos.FechamentoRepository;
+import main.java.sistema.arquivos.ImportadorFechamentos;
+import main.java.sistema.metricas.Metricas;
+import main.java.sistema.objetos.DeltaTurnos;
 import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.FechamentoIndice;
+import main.java.sistema.objetos.FiltroFechamentos;
 import main.java.sistema.objetos.MaquinaCartao;
+import main.java.sistema.objetos.PaginaFechamentos;
+import main.java.sistema.objetos.RegrasFechamento;
+import main.java.sistema.objetos.TabelaTaxas;
+import main.java.sistema.objetos.Valor;
+import main.java.sistema.relatorios.AgregadorFechamentos;
+import main.java.sistema.relatorios.ColunasMaquinas;
+import main.java.sistema.relatorios.DetectorAnomalias;
+import main.java.sistema.relatorios.Periodo;
+import main.java.sistema.relatorios.Totais;
 
 /**
  * Main completo do sistema + resultado final do turno integrado.
+ *
+ * Os fechamentos em memória ficam só nos índices (por id em {@link FechamentoIndice}); exibir,
+ * editar e excluir escolhem o fechamento pelo id mostrado na listagem ou por data + turno,
+ * então o número de um fechamento não muda quando outro é excluído.
  */
 public class Principal {
 
     private static final Scanner scan = new Scanner(System.in);
-    private static List<Fechamento> lista;
+    // listagens longas: uma escrita por página em vez de um printf por linha
+    private static final PrintWriter saida = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 14));
+    private static FechamentoIndice indice;
+    private static AgregadorFechamentos agregador;
+    private static ColunasMaquinas colunas;
+    private static DeltaTurnos deltas;
+    private static DetectorAnomalias anomalias;
+    private static CacheMeses meses;
+    private static TabelaTaxas taxas;
+    private static ServidorApi api;
+
+    // criados pela API em outras threads; o menu os incorpora entre uma opção e outra
+    private static final Queue<Fechamento> recebidosApi = new ConcurrentLinkedQueue<>();
 
     private static final DateTimeFormatter DISPLAY_FMT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private static final DateTimeFormatter INPUT_FMT = DateTimeFormatter.ofPattern("d/M/yyyy");
 
-    private static final double TAXA_FACTOR = 0.97;
+    // meses em memória além do corrente; os mais antigos são lidos quando uma tela precisa deles
+    private static final int MAX_MESES = Integer.getInteger("aurelius.particoes.max", 12);
+
+    private static final int TAMANHO_PAGINA = Integer.getInteger("aurelius.listagem.pagina", 20);
 
     public static void main(String[] args) {
-        lista = FechamentoRepository.loadAll();
-        System.out.println("Arquivo de persistência: " + FechamentoRepository.getSavePath());
+        if (args.length > 0) {
+            System.exit(ModoLote.executar(args));
+        }
+
+        long inicio = System.nanoTime();
+        indice = new FechamentoIndice();
+        agregador = new AgregadorFechamentos();
+        colunas = new ColunasMaquinas();
+        deltas = new DeltaTurnos();
+        anomalias = new DetectorAnomalias();
+        taxas = FechamentoRepository.taxas();
+        Metricas.medidor("console.fechamentos", () -> indice.tamanho());
+
+        YearMonth atual = YearMonth.now();
+        meses = new CacheMeses(MAX_MESES, atual, FechamentoRepository.meses(),
+                FechamentoRepository::carregar, Principal::adicionarCarregados, Principal::descartarMes);
+        meses.garantir(atual);
+
+        System.out.printf("%d fechamento(s) do mês atual carregado(s) em %d ms (%d mês(es) anteriores sob demanda)%n",
+                indice.tamanho(), (System.nanoTime() - inicio) / 1_000_000, meses.naoCarregados());
+        Metricas.histograma("console.abrir").registrar(System.nanoTime() - inicio);
+        System.out.println("Pasta de persistência: " + FechamentoRepository.getSavePath());
+
+        int porta = Integer.getInteger("aurelius.http.porta", 0);
+        if (porta > 0) {
+            try {
+                api = new ServidorApi(porta, recebidosApi::add);
+                api.iniciar();
+                System.out.println("API HTTP em http://127.0.0.1:" + api.getPorta() + "/fechamentos");
+            } catch (IOException e) {
+                System.err.println("Erro ao iniciar API HTTP: " + e.getMessage());
+            }
+        }
         abrirMenu();
     }
 
+    private static void incorporarRecebidosApi() {
+        Fechamento f;
+        while ((f = recebidosApi.poll()) != null) {
+            // mês fora da memória: entra quando o mês for lido; já lido depois da criação: já está no índice
+            if (!meses.carregado(YearMonth.from(f.getData())) || indice.buscar(f.getData(), f.getTurno()) != null) continue;
+            indexar(f);
+        }
+    }
+
+    private static void adicionarCarregados(List<Fechamento> lidos) {
+        // turnos 1 primeiro: o turno 2 já encontra o total do turno 1 e não é recalculado à toa
+        for (Fechamento f : lidos) if (f.getTurno() == 1) indexar(f);
+        for (Fechamento f : lidos) if (f.getTurno() != 1) indexar(f);
+    }
+
+    private static void indexar(Fechamento f) {
+        indice.adicionar(f);
+        agregador.adicionar(f);
+        colunas.adicionar(f);
+        anomalias.adicionar(f);
+        Fechamento t2 = deltas.adicionar(f);
+        if (t2 != null && t2 != f) propagarDiferenca(t2);
+    }
+
+    // turno 2 cuja diferença mudou porque o turno 1 do dia mudou: regrava e reindexa
+    private static void propagarDiferenca(Fechamento t2) {
+        FechamentoRepository.atualizar(t2);
+        FechamentoRepository.saveIndividualFile(t2);
+        agregador.atualizar(t2);
+        colunas.atualizar(t2);
+        anomalias.remover(t2);
+        anomalias.adicionar(t2);
+        System.out.printf(">> Turno 2 de %s recalculado: diferença %s%n",
+                t2.getData().format(DISPLAY_FMT), t2.getMaquinas().isEmpty() ? "-" : t2.getMaquinas().get(0));
+    }
+
+    // mês saiu da memória: tudo dele já está no journal/partições
+    private static void descartarMes(YearMonth mes) {
+        for (Fechamento f : indice.entre(mes.atDay(1), mes.atEndOfMonth())) {
+            indice.remover(f);
+            agregador.remover(f);
+            colunas.remover(f);
+            anomalias.remover(f);
+            deltas.descartar(f);
+        }
+    }
+
     private static void abrirMenu() {
         while (true) {
+            incorporarRecebidosApi();
             System.out.println("\n==== MENU ====");
             System.out.println("1 - Novo fechamento");
             System.out.println("2 - Listar fechamentos");
             System.out.println("3 - Exibir fechamento (detalhe)");
             System.out.println("4 - Editar fechamento");
             System.out.println("5 - Excluir fechamento");
+            System.out.println("6 - Relatório por período");
+            System.out.println("7 - Importar arquivos de uma pasta");
+            System.out.println("8 - Métricas");
+            System.out.println("9 - Diferenças fora do normal");
             System.out.println("0 - Salvar e sair");
 
             int opt = lerInt("Escolha: ");
@@ -46,9 +175,21 @@ public class Principal {
                 case 3 -> exibirDetalhe();
                 case 4 -> editar();
                 case 5 -> excluir();
+                case 6 -> relatorioPeriodo();
+                case 7 -> importar();
+                case 8 -> metricas();
+                case 9 -> relatorioAnomalias();
                 case 0 -> {
-                    FechamentoRepository.saveAll(lista);
-                    System.out.println("Salvo em: " + FechamentoRepository.getSavePath());
+                    if (api != null) api.parar();
+                    boolean salvo = FechamentoRepository.consolidar();
+                    salvo &= FechamentoRepository.encerrar();
+                    FechamentoRepository.gravarMetricas();
+                    if (salvo) {
+                        System.out.println("Salvo em: " + FechamentoRepository.getSavePath());
+                    } else {
+                        System.out.println("ATENÇÃO: nem tudo foi gravado (veja os erros acima). Base em: "
+                                + FechamentoRepository.getSavePath());
+                    }
                     System.out.println("Tchau!");
                     return;
                 }
@@ -67,71 +208,68 @@ public class Principal {
         LocalDate data = lerDataAllowToday("Data (Dia/Mês/Ano) [enter = hoje]: ");
         int turno = lerOpcaoTurno();
 
+        meses.garantir(YearMonth.from(data));
+        if (indice.buscar(data, turno) != null) {
+            System.out.println("Já existe fechamento para " + data.format(DISPLAY_FMT) + " turno " + turno
+                    + ". Use a opção de editar.");
+            return;
+        }
+
         Fechamento f = new Fechamento(resp, data, turno);
 
         int qtd = lerIntMin("Quantas máquinas de cartão foram usadas? ", 0);
         for (int i = 1; i <= qtd; i++) {
             System.out.println("-- Máquina " + i + " --");
 
-            double cred = lerDoubleNonNegative("Crédito (R$): ");
-            double deb = lerDoubleNonNegative("Débito (R$): ");
-            double pix = lerDoubleNonNegative("Pix (R$): ");
-
-            cred *= TAXA_FACTOR;
-            deb *= TAXA_FACTOR;
-            pix *= TAXA_FACTOR;
+            MaquinaCartao m = lerMaquina(data, i);
 
             System.out.printf(
-                    "Valores após taxa: Crédito=R$ %.2f | Débito=R$ %.2f | Pix=R$ %.2f%n",
-                    cred, deb, pix
+                    "Valores após taxa: Crédito=R$ %s | Débito=R$ %s | Pix=R$ %s%n",
+                    m.getCredito(), m.getDebito(), m.getPix()
             );
 
-            f.addMaquina(new MaquinaCartao(cred, deb, pix));
+            f.addMaquina(m);
         }
 
         System.out.println("\n--- Relatórios informados (operadora/cofre) ---");
-        f.setRelatorioCredito(lerDoubleNonNegative("Relatório Crédito (R$): "));
-        f.setRelatorioDebito(lerDoubleNonNegative("Relatório Débito (R$): "));
-        f.setRelatorioPix(lerDoubleNonNegative("Relatório Pix (R$): "));
+        f.setRelatorioCredito(lerValorNonNegative("Relatório Crédito (R$): "));
+        f.setRelatorioDebito(lerValorNonNegative("Relatório Débito (R$): "));
+        f.setRelatorioPix(lerValorNonNegative("Relatório Pix (R$): "));
 
         System.out.println("\n--- Dinheiro ---");
-        f.setEntradaDinheiro(lerDoubleNonNegative("Entrada contada em dinheiro (R$): "));
-        f.setRelatorioDinheiro(lerDoubleNonNegative("Relatório Dinheiro (R$): "));
-        f.setTrocoInicial(lerDoubleNonNegative("Troco inicial (R$): "));
+        f.setEntradaDinheiro(lerValorNonNegative("Entrada contada em dinheiro (R$): "));
+        f.setRelatorioDinheiro(lerValorNonNegative("Relatório Dinheiro (R$): "));
+        f.setTrocoInicial(lerValorNonNegative("Troco inicial (R$): "));
 
-        // Ajuste turno 2
+        // Ajuste turno 2: leituras acumuladas ficam guardadas, a máquina vira a diferença para o turno 1
         if (turno == 2) {
-            Fechamento turno1 = null;
-            for (Fechamento fx : lista) {
-                if (fx.getData() != null && fx.getData().equals(data) && fx.getTurno() == 1) {
-                    turno1 = fx;
-                    break;
-                }
-            }
-
-            if (turno1 != null) {
-                System.out.println("\n>> Turno 1 encontrado. Aplicando diferença...");
-
-                double difCred = f.totalCreditoMaquinas() - turno1.totalCreditoMaquinas();
-                double difDeb = f.totalDebitoMaquinas() - turno1.totalDebitoMaquinas();
-                double difPix = f.totalPixMaquinas() - turno1.totalPixMaquinas();
-
-                f.getMaquinas().clear();
-                f.addMaquina(new MaquinaCartao(difCred, difDeb, difPix));
+            Fechamento turno1 = indice.buscar(data, 1);
+            if (turno1 != null) System.out.println("\n>> Turno 1 encontrado. Aplicando diferença...");
 
-                System.out.printf("Máquina diferença -> Cred: %.2f | Deb: %.2f | Pix: %.2f%n",
-                        difCred, difDeb, difPix);
+            MaquinaCartao dif = RegrasFechamento.ajustarTurno2(f, turno1);
+            if (turno1 != null && dif != null) {
+                System.out.printf("Máquina diferença -> Cred: %s | Deb: %s | Pix: %s%n",
+                        dif.getCredito(), dif.getDebito(), dif.getPix());
             }
         }
 
-        lista.add(f);
-        FechamentoRepository.saveAll(lista);
+        try {
+            FechamentoRepository.inserir(f);
+        } catch (IllegalStateException e) {
+            // criado pela API ou por outro processo enquanto os valores eram digitados
+            System.out.println("Já existe fechamento para " + data.format(DISPLAY_FMT) + " turno " + turno
+                    + " (gravado enquanto os valores eram digitados). Fechamento não gravado; use a opção de editar.");
+            return;
+        }
         FechamentoRepository.saveIndividualFile(f);
+        List<DetectorAnomalias.Anomalia> fora = anomalias.avaliar(f); // antes de entrar no histórico
+        indexar(f);
 
         exibirDiferencasCurta(f);
 
         // 🔥 NOVO: exibir resultado total final
-        System.out.printf("RESULTADO FINAL DO TURNO: R$ %.2f%n", f.getResultadoFinalTurno());
+        System.out.printf("RESULTADO FINAL DO TURNO: R$ %s%n", f.getResultadoFinalTurno());
+        avisar(f, fora);
 
         System.out.println("Fechamento criado e salvo.");
     }
@@ -139,52 +277,115 @@ public class Principal {
     // ----------------------
     // LISTAR / DETALHE
     // ----------------------
+    // página por página, do mais recente para o mais antigo; meses antigos são lidos quando a página chega neles
     private static void listar() {
-        if (lista.isEmpty()) {
-            System.out.println("Nenhum fechamento salvo.");
-            return;
+        FiltroFechamentos filtro = FiltroFechamentos.TODOS;
+        if (lerTextoAllowSkip("Filtrar? (s/enter): ").equalsIgnoreCase("s")) {
+            try {
+                filtro = new FiltroFechamentos(
+                        lerDataAllowSkip("De (Dia/Mês/Ano) [enter = sem limite]: "),
+                        lerDataAllowSkip("Até (Dia/Mês/Ano) [enter = sem limite]: "),
+                        Math.max(0, lerTurnoAllowSkip("Turno [1/2 | enter = ambos]: ")),
+                        lerTextoAllowSkip("Responsável [enter = todos]: "),
+                        lerTextoAllowSkip("Só com diferença? (s/enter): ").equalsIgnoreCase("s"));
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                return;
+            }
         }
 
-        System.out.println("\n--- Fechamentos ---");
-        for (int i = 0; i < lista.size(); i++) {
-            Fechamento f = lista.get(i);
-            System.out.printf("[%d] %s - %s - Turno: %s%n",
-                    i,
-                    f.getData() == null ? "" : f.getData().format(DISPLAY_FMT),
-                    f.getResponsavel(),
-                    f.getTurno() == 1 ? "Manhã" : "Tarde/Noite"
-            );
+        PaginaFechamentos.Cursor cursor = null;
+        int pagina = 1;
+        while (true) {
+            PaginaFechamentos p = PaginaFechamentos.paginar(meses.existentes(), m -> {
+                meses.garantir(m);
+                return indice;
+            }, filtro, cursor, TAMANHO_PAGINA, true);
+
+            if (p.itens().isEmpty()) {
+                System.out.println(pagina == 1 ? "Nenhum fechamento encontrado." : "Fim da listagem.");
+                return;
+            }
+            imprimirPagina(pagina, p.itens());
+            if (!p.temProxima()) return;
+
+            if (!lerTextoAllowSkip("[enter = próxima página | 0 = voltar]: ").isBlank()) return;
+            cursor = p.proximo();
+            pagina++;
         }
     }
 
-    private static void exibirDetalhe() {
-        if (lista.isEmpty()) {
-            System.out.println("Nenhum fechamento salvo.");
-            return;
+    // uma linha por fechamento num StringBuilder e uma escrita só por página
+    private static void imprimirPagina(int pagina, List<Fechamento> itens) {
+        StringBuilder sb = new StringBuilder(64 * (itens.size() + 2));
+        sb.append("\n--- Fechamentos (página ").append(pagina).append(") ---\n");
+        for (Fechamento f : itens) {
+            sb.append('[').append(f.getId()).append("] ");
+            LocalDate d = f.getData();
+            if (d != null) {
+                if (d.getDayOfMonth() < 10) sb.append('0');
+                sb.append(d.getDayOfMonth()).append('/');
+                if (d.getMonthValue() < 10) sb.append('0');
+                sb.append(d.getMonthValue()).append('/').append(d.getYear());
+            }
+            sb.append(" - ").append(f.getResponsavel())
+                    .append(" - Turno: ").append(f.getTurno() == 1 ? "Manhã" : "Tarde/Noite")
+                    .append(" - Resultado: R$ ");
+            Valor.formatar(f.getResultadoFinalTurno().centavos(), sb);
+            sb.append('\n');
         }
+        saida.append(sb);
+        saida.flush();
+    }
 
-        int idx = lerIntMinMax("Índice do fechamento para exibir: ", 0, lista.size() - 1);
-        Fechamento f = lista.get(idx);
+    private static void exibirDetalhe() {
+        Fechamento f = escolherFechamento("exibir");
+        if (f == null) return;
 
         System.out.println(f);
 
         exibirDiferencasDetalhado(f);
 
         // 🔥 NOVO
-        System.out.printf("\n>>> RESULTADO FINAL DO TURNO: R$ %.2f%n", f.getResultadoFinalTurno());
+        System.out.printf("\n>>> RESULTADO FINAL DO TURNO: R$ %s%n", f.getResultadoFinalTurno());
+    }
+
+    // id da listagem, ou data + turno (lê o mês se ainda não estiver em memória)
+    private static Fechamento escolherFechamento(String acao) {
+        String s = lerTexto("Id ou data (Dia/Mês/Ano) do fechamento para " + acao + ": ");
+        Fechamento f;
+        if (s.indexOf('/') >= 0) {
+            LocalDate data;
+            try {
+                data = LocalDate.parse(s, INPUT_FMT);
+            } catch (Exception e) {
+                System.out.println("Data inválida.");
+                return null;
+            }
+            meses.garantir(YearMonth.from(data));
+            int turno = lerOpcaoTurno();
+            f = indice.buscar(data, turno);
+            if (f == null) System.out.println("Nenhum fechamento em " + data.format(DISPLAY_FMT) + " turno " + turno + ".");
+            return f;
+        }
+
+        try {
+            f = indice.buscar(Long.parseLong(s));
+        } catch (NumberFormatException e) {
+            System.out.println("Digite o id mostrado na listagem ou uma data.");
+            return null;
+        }
+        if (f == null) System.out.println("Fechamento " + s + " não está entre os carregados (use a data, ou avance a listagem até o mês dele).");
+        return f;
     }
 
     // ----------------------
     // EDITAR / EXCLUIR
     // ----------------------
     private static void editar() {
-        if (lista.isEmpty()) {
-            System.out.println("Nenhum fechamento salvo.");
-            return;
-        }
-
-        int idx = lerIntMinMax("Índice do fechamento para editar: ", 0, lista.size() - 1);
-        Fechamento f = lista.get(idx);
+        Fechamento f = escolherFechamento("editar");
+        if (f == null) return;
+        Fechamento antes = Fechamento.fromBlockLines(f.toBlockLines()); // para desfazer se a base recusar
 
         System.out.println("\nEditando fechamento (enter para manter):");
         System.out.println(f);
@@ -193,10 +394,27 @@ public class Principal {
         if (!novoResp.isBlank()) f.setResponsavel(novoResp);
 
         LocalDate novaData = lerDataAllowSkip("Nova data (Dia/Mês/Ano) [enter para manter]: ");
-        if (novaData != null) f.setData(novaData);
-
         int novoTurno = lerTurnoAllowSkip("Novo turno [1/2 | enter=manter]: ");
-        if (novoTurno != -1) f.setTurno(novoTurno);
+
+        LocalDate dataAnterior = f.getData();
+        int turnoAnterior = f.getTurno();
+        LocalDate dataFinal = novaData != null ? novaData : f.getData();
+        int turnoFinal = novoTurno != -1 ? novoTurno : f.getTurno();
+        if (dataFinal != null && dataAnterior != null) {
+            meses.garantir(List.of(YearMonth.from(dataAnterior), YearMonth.from(dataFinal)));
+        }
+        Fechamento existente = indice.buscar(dataFinal, turnoFinal);
+        if (existente != null && existente != f) {
+            System.out.println("Já existe fechamento para essa data/turno. Mantendo data e turno.");
+        } else {
+            boolean trocouTurno = f.getTurno() != turnoFinal;
+            f.setData(dataFinal);
+            f.setTurno(turnoFinal);
+            if (trocouTurno) RegrasFechamento.trocarTurno(f);
+        }
+
+        // turno 2 com leituras: edita as leituras acumuladas; a diferença é refeita no fim
+        boolean acumulado = f.getTurno() == 2 && (f.temLeituras() || f.getMaquinas().isEmpty());
 
         // editar máquinas
         System.out.println("Deseja (1) substituir máquinas, (2) editar individual, (0) pular?");
@@ -204,17 +422,32 @@ public class Principal {
 
         if (op == 1) {
             f.clearMaquinas();
+            f.clearLeituras();
+            if (f.getTurno() == 2) acumulado = true;
             int qtd = lerIntMin("Quantas máquinas? ", 0);
 
             for (int i = 1; i <= qtd; i++) {
                 System.out.println("-- Máquina " + i + " --");
 
-                double cred = lerDoubleNonNegative("Crédito (R$): ") * TAXA_FACTOR;
-                double deb = lerDoubleNonNegative("Débito (R$): ") * TAXA_FACTOR;
-                double pix = lerDoubleNonNegative("Pix (R$): ") * TAXA_FACTOR;
+                MaquinaCartao m = lerMaquina(f.getData(), i);
+                if (acumulado) f.addLeitura(m);
+                else f.addMaquina(m);
+            }
+
+        } else if (op == 2 && acumulado && f.temLeituras()) {
+            List<MaquinaCartao> novas = new ArrayList<>();
+            for (int i = 0; i < f.getLeituras().size(); i++) {
+                MaquinaCartao m = f.getLeituras().get(i);
 
-                f.addMaquina(new MaquinaCartao(cred, deb, pix));
+                System.out.println("Leitura " + (i + 1) + ": " + m);
+
+                if (lerTextoAllowSkip("Editar? (s/enter): ").equalsIgnoreCase("s")) {
+                    m = editarMaquina(m, f.getData(), i + 1);
+                }
+                novas.add(m);
             }
+            f.clearLeituras();
+            for (MaquinaCartao m : novas) f.addLeitura(m);
 
         } else if (op == 2) {
             if (f.getMaquinas().isEmpty()) {
@@ -226,46 +459,218 @@ public class Principal {
                     System.out.println("Máquina " + (i + 1) + ": " + m);
 
                     if (lerTextoAllowSkip("Editar? (s/enter): ").equalsIgnoreCase("s")) {
-                        double cred = lerDoubleAllowSkip("Crédito [enter mantém]: ", m.getCredito()) * TAXA_FACTOR;
-                        double deb = lerDoubleAllowSkip("Débito [enter mantém]: ", m.getDebito()) * TAXA_FACTOR;
-                        double pix = lerDoubleAllowSkip("Pix [enter mantém]: ", m.getPix()) * TAXA_FACTOR;
-
-                        m.setCredito(cred);
-                        m.setDebito(deb);
-                        m.setPix(pix);
+                        MaquinaCartao nova = editarMaquina(m, f.getData(), i + 1);
+                        m.setCredito(nova.getCredito());
+                        m.setDebito(nova.getDebito());
+                        m.setPix(nova.getPix());
+                        if (nova.temBruto()) m.setBruto(nova.getBrutoCredito(), nova.getBrutoDebito(), nova.getBrutoPix());
                     }
                 }
             }
         }
 
         // relatórios e dinheiro
-        f.setRelatorioCredito(lerDoubleAllowSkip("Relatório Crédito [enter mantém]: ", f.getRelatorioCredito()));
-        f.setRelatorioDebito(lerDoubleAllowSkip("Relatório Débito [enter mantém]: ", f.getRelatorioDebito()));
-        f.setRelatorioPix(lerDoubleAllowSkip("Relatório Pix [enter mantém]: ", f.getRelatorioPix()));
-        f.setEntradaDinheiro(lerDoubleAllowSkip("Dinheiro contado [enter mantém]: ", f.getEntradaDinheiro()));
-        f.setRelatorioDinheiro(lerDoubleAllowSkip("Relatório Dinheiro [enter mantém]: ", f.getRelatorioDinheiro()));
-        f.setTrocoInicial(lerDoubleAllowSkip("Troco inicial [enter mantém]: ", f.getTrocoInicial()));
-
-        FechamentoRepository.saveAll(lista);
+        f.setRelatorioCredito(lerValorAllowSkip("Relatório Crédito [enter mantém]: ", f.getRelatorioCredito()));
+        f.setRelatorioDebito(lerValorAllowSkip("Relatório Débito [enter mantém]: ", f.getRelatorioDebito()));
+        f.setRelatorioPix(lerValorAllowSkip("Relatório Pix [enter mantém]: ", f.getRelatorioPix()));
+        f.setEntradaDinheiro(lerValorAllowSkip("Dinheiro contado [enter mantém]: ", f.getEntradaDinheiro()));
+        f.setRelatorioDinheiro(lerValorAllowSkip("Relatório Dinheiro [enter mantém]: ", f.getRelatorioDinheiro()));
+        f.setTrocoInicial(lerValorAllowSkip("Troco inicial [enter mantém]: ", f.getTrocoInicial()));
+
+        taxas.recalcular(f); // data nova pode ter outra taxa vigente
+        List<Fechamento> afetados = deltas.atualizar(f); // refaz a diferença do próprio f se for turno 2
+        try {
+            FechamentoRepository.atualizar(f, dataAnterior);
+        } catch (IllegalStateException e) {
+            // data/turno gravada por outro terminal (API, outro processo) durante a edição
+            System.out.println(e.getMessage() + " Edição descartada.");
+            restaurar(f, antes);
+            afetados = deltas.atualizar(f);
+            indice.atualizar(f);
+            agregador.atualizar(f);
+            colunas.atualizar(f);
+            for (Fechamento t2 : afetados) propagarDiferenca(t2);
+            return;
+        }
+        if (!f.getData().equals(dataAnterior) || f.getTurno() != turnoAnterior) {
+            FechamentoRepository.removerIndividualFile(dataAnterior, turnoAnterior);
+        }
         FechamentoRepository.saveIndividualFile(f);
+        indice.atualizar(f);
+        agregador.atualizar(f);
+        colunas.atualizar(f);
+        for (Fechamento t2 : afetados) propagarDiferenca(t2);
+        avisar(f, anomalias.atualizar(f));
 
         System.out.println("Fechamento atualizado e salvo.");
     }
 
+    // volta f aos valores da cópia tirada antes da edição
+    private static void restaurar(Fechamento f, Fechamento antes) {
+        f.setResponsavel(antes.getResponsavel());
+        f.setData(antes.getData());
+        f.setTurno(antes.getTurno());
+        f.clearMaquinas();
+        for (MaquinaCartao m : antes.getMaquinas()) f.addMaquina(m.copia());
+        f.clearLeituras();
+        for (MaquinaCartao m : antes.getLeituras()) f.addLeitura(m);
+        f.setRelatorioCredito(antes.getRelatorioCredito());
+        f.setRelatorioDebito(antes.getRelatorioDebito());
+        f.setRelatorioPix(antes.getRelatorioPix());
+        f.setEntradaDinheiro(antes.getEntradaDinheiro());
+        f.setRelatorioDinheiro(antes.getRelatorioDinheiro());
+        f.setTrocoInicial(antes.getTrocoInicial());
+    }
+
     private static void excluir() {
-        if (lista.isEmpty()) {
-            System.out.println("Nenhum fechamento salvo.");
+        Fechamento f = escolherFechamento("excluir");
+        if (f == null) return;
+
+        FechamentoRepository.remover(f);
+        FechamentoRepository.removerIndividualFile(f.getData(), f.getTurno());
+        indice.remover(f);
+        agregador.remover(f);
+        colunas.remover(f);
+        anomalias.remover(f);
+        Fechamento t2 = deltas.remover(f);
+        if (t2 != null) propagarDiferenca(t2);
+
+        System.out.println("Fechamento removido: "
+                + f.getResponsavel() + " - "
+                + (f.getData() == null ? "" : f.getData().format(DISPLAY_FMT)));
+    }
+
+    // ----------------------
+    // IMPORTAR
+    // ----------------------
+    private static void importar() {
+        Path pasta = Path.of(lerTexto("Pasta com os arquivos (.txt/.json/.bin): "));
+        if (!Files.isDirectory(pasta)) {
+            System.out.println("Pasta não encontrada.");
             return;
         }
 
-        int idx = lerIntMinMax("Índice para excluir: ", 0, lista.size() - 1);
-        Fechamento f = lista.remove(idx);
+        ImportadorFechamentos.Resultado r;
+        try {
+            r = new ImportadorFechamentos().importar(pasta, (d, t) -> {
+                meses.garantir(YearMonth.from(d));
+                return indice.buscar(d, t) != null;
+            });
+        } catch (Exception e) {
+            System.out.println("Erro ao importar: " + e.getMessage());
+            return;
+        }
 
-        FechamentoRepository.saveAll(lista);
+        // a base confere de novo: o que a API ou outro processo gravou enquanto os arquivos eram lidos
+        List<Fechamento> recusados = FechamentoRepository.inserirTodos(r.novos());
+        for (Fechamento f : r.novos()) {
+            // meses fora da memória recebem os importados quando forem lidos de novo
+            if (recusados.contains(f) || !meses.carregado(YearMonth.from(f.getData()))) continue;
+            indexar(f);
+        }
 
-        System.out.println("Fechamento removido: "
-                + f.getResponsavel() + " - "
-                + (f.getData() == null ? "" : f.getData().format(DISPLAY_FMT)));
+        System.out.printf("%d arquivo(s), %d fechamento(s) lido(s): %d importado(s), %d duplicado(s), %d erro(s)%n",
+                r.arquivos(), r.lidos(), r.novos().size() - recusados.size(), r.duplicados() + recusados.size(),
+                r.erros().size());
+        System.out.printf("Tempo: %d ms (%.0f arquivos/s, %.0f fechamentos/s)%n",
+                r.nanos() / 1_000_000, r.arquivosPorSegundo(), r.fechamentosPorSegundo());
+        for (ImportadorFechamentos.Erro e : r.erros()) {
+            System.out.println("  " + e.arquivo() + ": " + e.mensagem());
+        }
+    }
+
+    // ----------------------
+    // ANOMALIAS
+    // ----------------------
+    private static void avisar(Fechamento f, List<DetectorAnomalias.Anomalia> fora) {
+        if (fora.isEmpty()) return;
+        System.out.println("\n!! Diferença fora do normal em " + f.getData().format(DISPLAY_FMT) + " turno " + f.getTurno() + ":");
+        for (DetectorAnomalias.Anomalia a : fora) System.out.println("   " + a);
+    }
+
+    // refaz a detecção em ordem de data sobre o que está em memória, como se cada fechamento fosse salvo agora
+    private static void relatorioAnomalias() {
+        LocalDate hoje = LocalDate.now();
+        LocalDate inicio = lerDataAllowSkip("Data inicial (Dia/Mês/Ano) [enter = 3 meses atrás]: ");
+        if (inicio == null) inicio = hoje.minusMonths(3);
+        LocalDate fim = lerDataAllowSkip("Data final (Dia/Mês/Ano) [enter = hoje]: ");
+        if (fim == null) fim = hoje;
+
+        meses.garantir(inicio, fim);
+
+        DetectorAnomalias detector = new DetectorAnomalias();
+        int encontradas = 0;
+        System.out.println("\n--- Diferenças fora do normal " + inicio.format(DISPLAY_FMT) + " a " + fim.format(DISPLAY_FMT) + " ---");
+        for (Fechamento f : indice.entre(LocalDate.MIN, fim)) {
+            List<DetectorAnomalias.Anomalia> fora = detector.registrar(f);
+            if (f.getData().isBefore(inicio) || fora.isEmpty()) continue;
+            System.out.println(f.getData().format(DISPLAY_FMT) + " turno " + f.getTurno() + " (" + f.getResponsavel() + ")");
+            for (DetectorAnomalias.Anomalia a : fora) System.out.println("   " + a);
+            encontradas += fora.size();
+        }
+        if (encontradas == 0) System.out.println("Nenhuma.");
+
+        System.out.println("\n--- Por responsável (média / desvio / média móvel) ---");
+        for (DetectorAnomalias.Grupo g : detector.porResponsavel()) {
+            System.out.printf("%-20s %-9s n=%-5d R$ %8.2f / %8.2f / %8.2f%n", g.nome(), g.tipo(),
+                    g.estatistica().quantidade(), g.estatistica().media() / 100, g.estatistica().desvio() / 100,
+                    g.estatistica().ewma() / 100);
+        }
+    }
+
+    // ----------------------
+    // MÉTRICAS
+    // ----------------------
+    private static void metricas() {
+        System.out.println();
+        System.out.print(Metricas.resumo());
+        Path p = FechamentoRepository.gravarMetricas();
+        if (p != null) System.out.println("\nGravado em: " + p);
+    }
+
+    // ----------------------
+    // RELATÓRIO POR PERÍODO
+    // ----------------------
+    private static void relatorioPeriodo() {
+        LocalDate hoje = LocalDate.now();
+        LocalDate inicio = lerDataAllowSkip("Data inicial (Dia/Mês/Ano) [enter = início do ano]: ");
+        if (inicio == null) inicio = hoje.withDayOfYear(1);
+        LocalDate fim = lerDataAllowSkip("Data final (Dia/Mês/Ano) [enter = hoje]: ");
+        if (fim == null) fim = hoje;
+
+        System.out.println("Agrupar por (1) dia, (2) semana, (3) mês?");
+        Periodo periodo = switch (lerIntMinMax("Opção: ", 1, 3)) {
+            case 1 -> Periodo.DIA;
+            case 2 -> Periodo.SEMANA;
+            default -> Periodo.MES;
+        };
+
+        meses.garantir(inicio, fim);
+
+        System.out.println("\n--- Relatório " + inicio.format(DISPLAY_FMT) + " a " + fim.format(DISPLAY_FMT) + " ---");
+        for (Map.Entry<LocalDate, Totais> e : agregador.agrupar(inicio, fim, periodo).entrySet()) {
+            Totais t = e.getValue();
+            System.out.printf("%s (%d) | Créd: %s | Déb: %s | Pix: %s | Din: %s | Resultado: %s%n",
+                    e.getKey().format(DISPLAY_FMT), t.getQuantidade(),
+                    t.getDiferencaCredito(), t.getDiferencaDebito(), t.getDiferencaPix(),
+                    t.getDiferencaDinheiro(), t.getResultado());
+        }
+
+        Totais total = agregador.total(inicio, fim);
+        System.out.printf("TOTAL (%d fechamentos) | Créd: %s | Déb: %s | Pix: %s | Din: %s | Resultado: %s%n",
+                total.getQuantidade(),
+                total.getDiferencaCredito(), total.getDiferencaDebito(), total.getDiferencaPix(),
+                total.getDiferencaDinheiro(), total.getResultado());
+
+        int leituras = colunas.contarMaquinas(inicio, fim);
+        if (leituras > 0) {
+            long[] somas = colunas.somar(inicio, fim);
+            System.out.printf("Máquinas: %d leitura(s) | Média por máquina -> Créd: %s | Déb: %s | Pix: %s%n",
+                    leituras,
+                    Valor.deCentavos(Valor.dividirArredondando(somas[0], leituras)),
+                    Valor.deCentavos(Valor.dividirArredondando(somas[1], leituras)),
+                    Valor.deCentavos(Valor.dividirArredondando(somas[2], leituras)));
+        }
     }
 
     // ----------------------
@@ -273,26 +678,26 @@ public class Principal {
     // ----------------------
     private static void exibirDiferencasCurta(Fechamento f) {
         System.out.println("\n=== DIFERENÇAS ===");
-        System.out.printf("CRÉDITO : R$ %.2f%n", f.getDiferencaCredito());
-        System.out.printf("DÉBITO  : R$ %.2f%n", f.getDiferencaDebito());
-        System.out.printf("PIX     : R$ %.2f%n", f.getDiferencaPix());
-        System.out.printf("DINHEIRO: R$ %.2f%n", f.getDiferencaDinheiro());
+        System.out.printf("CRÉDITO : R$ %s%n", f.getDiferencaCredito());
+        System.out.printf("DÉBITO  : R$ %s%n", f.getDiferencaDebito());
+        System.out.printf("PIX     : R$ %s%n", f.getDiferencaPix());
+        System.out.printf("DINHEIRO: R$ %s%n", f.getDiferencaDinheiro());
         System.out.println("-------------------------");
     }
 
     private static void exibirDiferencasDetalhado(Fechamento f) {
         System.out.println("\n=== DIFERENÇAS DETALHADAS ===");
 
-        System.out.printf("Crédito - Rel: R$ %.2f | Máquinas: R$ %.2f | Dif: R$ %.2f%n",
+        System.out.printf("Crédito - Rel: R$ %s | Máquinas: R$ %s | Dif: R$ %s%n",
                 f.getRelatorioCredito(), f.totalCreditoMaquinas(), f.getDiferencaCredito());
 
-        System.out.printf("Débito  - Rel: R$ %.2f | Máquinas: R$ %.2f | Dif: R$ %.2f%n",
+        System.out.printf("Débito  - Rel: R$ %s | Máquinas: R$ %s | Dif: R$ %s%n",
                 f.getRelatorioDebito(), f.totalDebitoMaquinas(), f.getDiferencaDebito());
 
-        System.out.printf("Pix     - Rel: R$ %.2f | Máquinas: R$ %.2f | Dif: R$ %.2f%n",
+        System.out.printf("Pix     - Rel: R$ %s | Máquinas: R$ %s | Dif: R$ %s%n",
                 f.getRelatorioPix(), f.totalPixMaquinas(), f.getDiferencaPix());
 
-        System.out.printf("Dinheiro- Rel: R$ %.2f | Contado : R$ %.2f | Dif: R$ %.2f%n",
+        System.out.printf("Dinheiro- Rel: R$ %s | Contado : R$ %s | Dif: R$ %s%n",
                 f.getRelatorioDinheiro(), f.getEntradaDinheiro(), f.getDiferencaDinheiro());
 
         System.out.println("--------------------------------");
@@ -339,13 +744,13 @@ public class Principal {
         }
     }
 
-    private static double lerDoubleNonNegative(String msg) {
+    private static Valor lerValorNonNegative(String msg) {
         while (true) {
             System.out.print(msg);
-            String s = scan.nextLine().trim().replace(",", ".");
+            String s = scan.nextLine().trim();
             try {
-                double v = Double.parseDouble(s);
-                if (v < 0) throw new Exception();
+                Valor v = Valor.parse(s);
+                if (v.isNegativo()) throw new Exception();
                 return v;
             } catch (Exception e) {
                 System.out.println("Valor inválido.");
@@ -353,13 +758,51 @@ public class Principal {
         }
     }
 
-    private static double lerDoubleAllowSkip(String msg, double atual) {
+    // valores digitados na máquina (brutos) -> líquidos pela tabela de taxas da data
+    private static MaquinaCartao lerMaquina(LocalDate data, int numero) {
+        Valor cred = lerValorNonNegative("Crédito (R$): ");
+        Valor deb = lerValorNonNegative("Débito (R$): ");
+        Valor pix = lerValorNonNegative("Pix (R$): ");
+        return taxas.aplicar(new MaquinaCartao(cred, deb, pix), data, numero);
+    }
+
+    // enter mantém; o que for digitado é bruto e passa pela tabela (a taxa nunca é aplicada sobre o líquido)
+    private static MaquinaCartao editarMaquina(MaquinaCartao m, LocalDate data, int numero) {
+        if (m.temBruto()) {
+            return taxas.aplicar(new MaquinaCartao(
+                    lerBrutoAllowSkip("Crédito bruto [enter mantém " + m.getBrutoCredito() + "]: ", m.getBrutoCredito()),
+                    lerBrutoAllowSkip("Débito bruto [enter mantém " + m.getBrutoDebito() + "]: ", m.getBrutoDebito()),
+                    lerBrutoAllowSkip("Pix bruto [enter mantém " + m.getBrutoPix() + "]: ", m.getBrutoPix())), data, numero);
+        }
+
+        // gravada só com o líquido: campo não digitado continua com o líquido de antes
+        Valor cred = lerBrutoAllowSkip("Crédito bruto [enter mantém líquido " + m.getCredito() + "]: ", null);
+        Valor deb = lerBrutoAllowSkip("Débito bruto [enter mantém líquido " + m.getDebito() + "]: ", null);
+        Valor pix = lerBrutoAllowSkip("Pix bruto [enter mantém líquido " + m.getPix() + "]: ", null);
+        if (cred != null && deb != null && pix != null) return taxas.aplicar(new MaquinaCartao(cred, deb, pix), data, numero);
+
+        MaquinaCartao t = taxas.aplicar(new MaquinaCartao(cred == null ? Valor.ZERO : cred,
+                deb == null ? Valor.ZERO : deb, pix == null ? Valor.ZERO : pix), data, numero);
+        return new MaquinaCartao(cred == null ? m.getCredito() : t.getCredito(),
+                deb == null ? m.getDebito() : t.getDebito(), pix == null ? m.getPix() : t.getPix());
+    }
+
+    private static Valor lerBrutoAllowSkip(String msg, Valor atual) {
+        Valor v = lerValorAllowSkip(msg, atual);
+        if (v != null && v.isNegativo()) {
+            System.out.println("Valor inválido. Mantendo.");
+            return atual;
+        }
+        return v;
+    }
+
+    private static Valor lerValorAllowSkip(String msg, Valor atual) {
         System.out.print(msg);
         String s = scan.nextLine().trim();
         if (s.isBlank()) return atual;
 
         try {
-            return Double.parseDouble(s.replace(",", "."));
+            return Valor.parse(s);
         } catch (Exception e) {
             System.out.println("Entrada inválida. Mantendo.");
             return atual;
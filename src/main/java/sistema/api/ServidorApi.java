@@ -0,0 +1,349 @@
+package main.java.sistema.api;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import main.java.sistema.arquivos.FechamentoJson;
+import main.java.sistema.arquivos.FechamentoRepository;
+import main.java.sistema.arquivos.ServicoFechamentos;
+import main.java.sistema.arquivos.JsonLeitor;
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.MaquinaCartao;
+import main.java.sistema.objetos.RegrasFechamento;
+import main.java.sistema.objetos.Valor;
+import main.java.sistema.relatorios.Periodo;
+import main.java.sistema.relatorios.Totais;
+
+/**
+ * API HTTP local (só 127.0.0.1) sobre a mesma base do console, em JSON:
+ *
+ * <pre>
+ * GET  /fechamentos?inicio=AAAA-MM-DD&amp;fim=AAAA-MM-DD   lista do intervalo (padrão: mês atual)
+ * GET  /fechamentos/{id}                               fechamento + diferenças + resultado do turno
+ * POST /fechamentos                                    cria; corpo no formato de FechamentoJson
+ * GET  /agregados?inicio=..&amp;fim=..&amp;periodo=dia|semana|mes  totais por período e do intervalo
+ * </pre>
+ *
+ * No POST os valores das máquinas são os lidos na máquina: a taxa e o ajuste do turno 2 são
+ * aplicados aqui, como no console (um turno 1 criado depois do turno 2 refaz a diferença dele).
+ * A conferência de duplicado e a gravação rodam na faixa do mês do {@link ServicoFechamentos} do
+ * console, então criações de meses diferentes não esperam umas pelas outras.
+ *
+ * Cada pedido roda numa thread virtual quando a JVM tem (21+); no Java 17 usa um pool fixo
+ * (aurelius.http.threads). As leituras vêm de {@link VisaoFechamentos} e não disputam trava entre si.
+ */
+public class ServidorApi {
+
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+    private final VisaoFechamentos visao = new VisaoFechamentos();
+    private final Consumer<Fechamento> aoCriar;
+
+    /** @param aoCriar avisado (na thread do pedido) de cada fechamento criado pela API */
+    public ServidorApi(int porta, Consumer<Fechamento> aoCriar) throws IOException {
+        this.aoCriar = aoCriar;
+        this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta),
+                Integer.getInteger("aurelius.http.backlog", 4096));
+        this.executor = criarExecutor();
+        servidor.setExecutor(executor);
+        servidor.createContext("/fechamentos", this::fechamentos);
+        servidor.createContext("/agregados", this::agregados);
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    public void parar() {
+        servidor.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor só existe do Java 21 em diante
+    private static ExecutorService criarExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Integer.getInteger("aurelius.http.threads",
+                    Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "api-http");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // ----------------------
+    // ROTAS
+    // ----------------------
+    private void fechamentos(HttpExchange ex) throws IOException {
+        try {
+            String resto = ex.getRequestURI().getPath().substring("/fechamentos".length());
+            String metodo = ex.getRequestMethod();
+
+            if (resto.isEmpty() || resto.equals("/")) {
+                if (metodo.equals("GET")) listar(ex);
+                else if (metodo.equals("POST")) criar(ex);
+                else erro(ex, 405, "Método não permitido.");
+            } else if (metodo.equals("GET")) {
+                detalhe(ex, resto.substring(1));
+            } else {
+                erro(ex, 405, "Método não permitido.");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            erro(ex, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Erro na API: " + e);
+            erro(ex, 500, "Erro interno.");
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void agregados(HttpExchange ex) throws IOException {
+        try {
+            if (!ex.getRequestMethod().equals("GET")) {
+                erro(ex, 405, "Método não permitido.");
+                return;
+            }
+            Map<String, String> q = parametros(ex);
+            LocalDate[] intervalo = intervalo(q);
+            Periodo periodo = periodo(q.getOrDefault("periodo", "dia"));
+
+            NavigableMap<LocalDate, Totais> grupos = new TreeMap<>();
+            Totais total = new Totais();
+            for (VisaoFechamentos.Mes m : visao.entre(intervalo[0], intervalo[1])) {
+                for (Map.Entry<LocalDate, Totais> e : m.agregador().agrupar(intervalo[0], intervalo[1], periodo).entrySet()) {
+                    grupos.computeIfAbsent(e.getKey(), d -> new Totais()).somar(e.getValue()); // semana pode cruzar meses
+                }
+                total.somar(m.agregador().total(intervalo[0], intervalo[1]));
+            }
+
+            StringWriter w = new StringWriter();
+            w.write("{\"periodo\":\"" + periodo.name().toLowerCase(Locale.ROOT) + "\",\"grupos\":[");
+            boolean primeiro = true;
+            for (Map.Entry<LocalDate, Totais> e : grupos.entrySet()) {
+                if (!primeiro) w.write(',');
+                w.write("{\"inicio\":\"" + e.getKey() + "\",");
+                escreverTotais(w, e.getValue());
+                w.write('}');
+                primeiro = false;
+            }
+            w.write("],\"total\":{");
+            escreverTotais(w, total);
+            w.write("}}");
+            responder(ex, 200, w.toString());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            erro(ex, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Erro na API: " + e);
+            erro(ex, 500, "Erro interno.");
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void listar(HttpExchange ex) throws IOException {
+        LocalDate[] intervalo = intervalo(parametros(ex));
+        StringWriter w = new StringWriter();
+        FechamentoJson.escrever(w, visao.listar(intervalo[0], intervalo[1]));
+        responder(ex, 200, w.toString());
+    }
+
+    private void detalhe(HttpExchange ex, String idTexto) throws IOException {
+        long id;
+        try {
+            id = Long.parseLong(idTexto);
+        } catch (NumberFormatException e) {
+            erro(ex, 400, "Id inválido: " + idTexto);
+            return;
+        }
+        Fechamento f = visao.buscar(id).orElse(null);
+        if (f == null) {
+            erro(ex, 404, "Fechamento " + id + " não encontrado.");
+            return;
+        }
+
+        StringWriter w = new StringWriter();
+        w.write("{\"fechamento\":");
+        FechamentoJson.escrever(w, f);
+        w.write(",\"diferencas\":{");
+        campo(w, "credito", f.diferencaCredito(), true);
+        campo(w, "debito", f.diferencaDebito(), false);
+        campo(w, "pix", f.diferencaPix(), false);
+        campo(w, "dinheiro", f.diferencaDinheiro(), false);
+        w.write("},");
+        campo(w, "resultadoFinalTurno", f.getResultadoFinalTurno(), true);
+        w.write('}');
+        responder(ex, 200, w.toString());
+    }
+
+    private void criar(HttpExchange ex) throws IOException {
+        Fechamento lido;
+        try (JsonLeitor r = new JsonLeitor(new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8))) {
+            lido = FechamentoJson.lerFechamento(r);
+        } catch (IOException e) {
+            erro(ex, 400, "JSON inválido: " + e.getMessage());
+            return;
+        }
+        RegrasFechamento.validar(lido);
+
+        Fechamento f = new Fechamento(lido.getResponsavel(), lido.getData(), lido.getTurno());
+        for (MaquinaCartao m : lido.getMaquinas()) f.addMaquina(m.copia());
+        RegrasFechamento.aplicarTaxas(f, FechamentoRepository.taxas());
+        f.setRelatorioCredito(lido.getRelatorioCredito());
+        f.setRelatorioDebito(lido.getRelatorioDebito());
+        f.setRelatorioPix(lido.getRelatorioPix());
+        f.setEntradaDinheiro(lido.getEntradaDinheiro());
+        f.setRelatorioDinheiro(lido.getRelatorioDinheiro());
+        f.setTrocoInicial(lido.getTrocoInicial());
+
+        ServicoFechamentos servico = FechamentoRepository.servico();
+        ServicoFechamentos.Terminal terminal = FechamentoRepository.terminal();
+        String[] conflito = new String[1];
+        servico.naFaixa(terminal, f.getData(), () -> {
+            if (servico.buscar(terminal, f.getData(), f.getTurno()).isPresent()) {
+                conflito[0] = "Já existe fechamento para " + f.getData() + " turno " + f.getTurno() + ".";
+                return;
+            }
+            // sem turno 1 ainda: guarda as leituras e a diferença fica contra zero, refeita quando ele chegar
+            if (f.getTurno() == 2) RegrasFechamento.ajustarTurno2(f, servico.buscar(terminal, f.getData(), 1).orElse(null));
+            try {
+                FechamentoRepository.inserir(f); // confere de novo na base, sob a trava (console, outro processo)
+            } catch (IllegalStateException e) {
+                conflito[0] = e.getMessage();
+                return;
+            }
+            FechamentoRepository.saveIndividualFile(f);
+
+            // turno 1 depois do turno 2: refaz a diferença do turno 2 (cópia, o do serviço não é mexido)
+            Fechamento t2 = f.getTurno() == 1 ? servico.buscar(terminal, f.getData(), 2).orElse(null) : null;
+            if (t2 != null && t2.temLeituras()) {
+                Fechamento novo = Fechamento.fromBlockLines(t2.toBlockLines());
+                if (RegrasFechamento.diferencaTurno2(novo, f)) {
+                    FechamentoRepository.atualizar(novo);
+                    FechamentoRepository.saveIndividualFile(novo);
+                }
+            }
+        });
+        if (conflito[0] != null) {
+            erro(ex, 409, conflito[0]);
+            return;
+        }
+        aoCriar.accept(f);
+
+        StringWriter w = new StringWriter();
+        FechamentoJson.escrever(w, f);
+        ex.getResponseHeaders().set("Location", "/fechamentos/" + f.getId());
+        responder(ex, 201, w.toString());
+    }
+
+    // ----------------------
+    // AUXILIARES
+    // ----------------------
+    private static Map<String, String> parametros(HttpExchange ex) {
+        Map<String, String> out = new HashMap<>();
+        String q = ex.getRequestURI().getRawQuery();
+        if (q == null || q.isEmpty()) return out;
+        for (String par : q.split("&")) {
+            int i = par.indexOf('=');
+            if (i <= 0) continue;
+            out.put(URLDecoder.decode(par.substring(0, i), StandardCharsets.UTF_8),
+                    URLDecoder.decode(par.substring(i + 1), StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    // inicio/fim opcionais: sem nenhum, o mês atual
+    private static LocalDate[] intervalo(Map<String, String> q) {
+        YearMonth atual = YearMonth.now();
+        LocalDate inicio = q.containsKey("inicio") ? LocalDate.parse(q.get("inicio")) : atual.atDay(1);
+        LocalDate fim = q.containsKey("fim") ? LocalDate.parse(q.get("fim")) : atual.atEndOfMonth();
+        if (fim.isBefore(inicio)) throw new IllegalArgumentException("fim anterior ao início.");
+        return new LocalDate[] {inicio, fim};
+    }
+
+    private static Periodo periodo(String nome) {
+        try {
+            return Periodo.valueOf(nome.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Período inválido: " + nome + " (dia, semana ou mes).");
+        }
+    }
+
+    private static void escreverTotais(Writer w, Totais t) throws IOException {
+        w.write("\"quantidade\":" + t.getQuantidade());
+        campo(w, "credito", t.getCredito(), false);
+        campo(w, "debito", t.getDebito(), false);
+        campo(w, "pix", t.getPix(), false);
+        campo(w, "relatorioCredito", t.getRelatorioCredito(), false);
+        campo(w, "relatorioDebito", t.getRelatorioDebito(), false);
+        campo(w, "relatorioPix", t.getRelatorioPix(), false);
+        campo(w, "entradaDinheiro", t.getEntradaDinheiro(), false);
+        campo(w, "relatorioDinheiro", t.getRelatorioDinheiro(), false);
+        campo(w, "trocoInicial", t.getTrocoInicial(), false);
+        campo(w, "diferencaCredito", t.getDiferencaCredito(), false);
+        campo(w, "diferencaDebito", t.getDiferencaDebito(), false);
+        campo(w, "diferencaPix", t.getDiferencaPix(), false);
+        campo(w, "diferencaDinheiro", t.getDiferencaDinheiro(), false);
+        campo(w, "resultado", t.getResultado(), false);
+    }
+
+    private static void campo(Writer w, String nome, Valor v, boolean primeiro) throws IOException {
+        if (!primeiro) w.write(',');
+        w.write('"');
+        w.write(nome);
+        w.write("\":");
+        w.write(v.toString());
+    }
+
+    private static void erro(HttpExchange ex, int status, String msg) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"erro\":\"");
+        for (char c : String.valueOf(msg).toCharArray()) {
+            if (c == '"' || c == '\\') sb.append('\\');
+            if (c >= 0x20) sb.append(c);
+        }
+        responder(ex, status, sb.append("\"}").toString());
+    }
+
+    private static void responder(HttpExchange ex, int status, String json) throws IOException {
+        byte[] corpo = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, corpo.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(corpo);
+        }
+    }
+}
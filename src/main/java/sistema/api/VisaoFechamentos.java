@@ -0,0 +1,128 @@
+package main.java.sistema.api;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import main.java.sistema.arquivos.FechamentoRepository;
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.relatorios.AgregadorFechamentos;
+
+/**
+ * Cópia somente leitura dos meses pedidos pela API, lida do mesmo repositório do console.
+ *
+ * Cada mês guarda a versão do mês no repositório quando foi lido; enquanto ninguém grava nele, as
+ * leituras são só consultas em mapas, sem trava e sem disco, e podem vir de muitas threads ao mesmo
+ * tempo. Depois de uma gravação no mês, o primeiro pedido dele relê o mês (um por vez por mês) e os
+ * demais esperam por essa leitura; os outros meses continuam valendo.
+ *
+ * A busca por id vai direto ao mês em que o id foi visto da última vez; um id nunca visto (ou que
+ * mudou de mês) é procurado só nos meses cuja faixa de ids no manifesto o contém, então um 404 não
+ * lê o histórico inteiro.
+ */
+class VisaoFechamentos {
+
+    private static final Comparator<Fechamento> ORDEM =
+            Comparator.comparing(Fechamento::getData).thenComparingInt(Fechamento::getTurno);
+
+    // lista, ids e agregador de um mês; nada disso é alterado depois de publicado
+    record Mes(long versao, List<Fechamento> lista, Map<Long, Fechamento> porId, AgregadorFechamentos agregador) {}
+
+    private record Meses(long versao, NavigableSet<YearMonth> meses) {}
+
+    private final ConcurrentHashMap<YearMonth, Mes> cache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, YearMonth> mesDoId = new ConcurrentHashMap<>();
+    private volatile Meses meses = new Meses(-1, Collections.emptyNavigableSet());
+
+    Mes mes(YearMonth m) {
+        long v = FechamentoRepository.versao(m);
+        Mes atual = cache.get(m);
+        if (atual != null && atual.versao() == v) return atual;
+
+        return cache.compute(m, (k, antigo) -> {
+            if (antigo != null && antigo.versao() == v) return antigo;
+            return ler(k, v);
+        });
+    }
+
+    /** Meses com fechamentos, lidos de novo só depois de uma gravação. */
+    NavigableSet<YearMonth> meses() {
+        long v = FechamentoRepository.versao();
+        Meses atual = meses;
+        if (atual.versao() != v) {
+            synchronized (this) {
+                atual = meses;
+                if (atual.versao() != v) {
+                    atual = new Meses(v, Collections.unmodifiableNavigableSet(FechamentoRepository.meses()));
+                    meses = atual;
+                }
+            }
+        }
+        return atual.meses();
+    }
+
+    /** Meses existentes que cruzam o intervalo. */
+    List<Mes> entre(LocalDate inicio, LocalDate fim) {
+        List<Mes> out = new ArrayList<>();
+        for (YearMonth m : meses().subSet(YearMonth.from(inicio), true, YearMonth.from(fim), true)) {
+            out.add(mes(m));
+        }
+        return out;
+    }
+
+    /** Fechamentos do intervalo (inclusivo) em ordem de data e turno. */
+    List<Fechamento> listar(LocalDate inicio, LocalDate fim) {
+        List<Fechamento> out = new ArrayList<>();
+        for (Mes m : entre(inicio, fim)) {
+            for (Fechamento f : m.lista()) {
+                if (!f.getData().isBefore(inicio) && !f.getData().isAfter(fim)) out.add(f);
+            }
+        }
+        return out;
+    }
+
+    Fechamento buscar(LocalDate data, int turno) {
+        for (Fechamento f : mes(YearMonth.from(data)).lista()) {
+            if (f.getData().equals(data) && f.getTurno() == turno) return f;
+        }
+        return null;
+    }
+
+    /** Mês onde o id foi visto por último; senão, os meses que podem tê-lo, mais recentes primeiro. */
+    Optional<Fechamento> buscar(long id) {
+        YearMonth visto = mesDoId.get(id);
+        if (visto != null) {
+            Fechamento f = mes(visto).porId().get(id);
+            if (f != null) return Optional.of(f);
+        }
+        for (YearMonth m : FechamentoRepository.mesesDoId(id).descendingSet()) {
+            if (m.equals(visto)) continue;
+            Fechamento f = mes(m).porId().get(id);
+            if (f != null) return Optional.of(f);
+        }
+        return Optional.empty();
+    }
+
+    private Mes ler(YearMonth m, long versao) {
+        List<Fechamento> lista = new ArrayList<>();
+        for (Fechamento f : FechamentoRepository.carregarMes(m)) {
+            if (f.getData() != null) lista.add(f);
+        }
+        lista.sort(ORDEM);
+
+        Map<Long, Fechamento> porId = new HashMap<>();
+        for (Fechamento f : lista) {
+            porId.put(f.getId(), f);
+            mesDoId.put(f.getId(), m);
+        }
+        return new Mes(versao, Collections.unmodifiableList(lista), porId, new AgregadorFechamentos(lista));
+    }
+}
@@ -0,0 +1,106 @@
+package main.java.sistema.arquivos;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import main.java.sistema.objetos.Fechamento;
+
+/**
+ * Controla quais meses estão em memória, com limite e descarte do usado há mais tempo (LRU).
+ * O mês fixo (o corrente) nunca é descartado; os meses pedidos numa mesma chamada também não,
+ * então um relatório de um período longo pode passar do limite até a próxima chamada.
+ *
+ * Quem usa guarda os fechamentos nas próprias estruturas: recebe os carregados em
+ * {@code aoCarregar} e tira os do mês em {@code aoDescartar}.
+ */
+public class CacheMeses {
+
+    private final int maximo;
+    private final YearMonth fixo;
+    private final Function<Collection<YearMonth>, Map<YearMonth, List<Fechamento>>> leitor;
+    private final Consumer<List<Fechamento>> aoCarregar;
+    private final Consumer<YearMonth> aoDescartar;
+
+    private final LinkedHashMap<YearMonth, Boolean> carregados = new LinkedHashMap<>(16, 0.75f, true);
+    private final NavigableSet<YearMonth> existentes;
+
+    public CacheMeses(int maximo, YearMonth fixo, NavigableSet<YearMonth> existentes,
+                      Function<Collection<YearMonth>, Map<YearMonth, List<Fechamento>>> leitor,
+                      Consumer<List<Fechamento>> aoCarregar, Consumer<YearMonth> aoDescartar) {
+        this.maximo = Math.max(1, maximo);
+        this.fixo = fixo;
+        this.existentes = new TreeSet<>(existentes);
+        this.leitor = leitor;
+        this.aoCarregar = aoCarregar;
+        this.aoDescartar = aoDescartar;
+    }
+
+    /** Garante o mês em memória (mesmo que ainda não tenha fechamentos: ex. antes de criar um). */
+    public void garantir(YearMonth mes) {
+        garantir(List.of(mes));
+    }
+
+    /** Garante em memória os meses do intervalo que têm fechamentos. */
+    public void garantir(LocalDate inicio, LocalDate fim) {
+        garantir(existentes.subSet(YearMonth.from(inicio), true, YearMonth.from(fim), true));
+    }
+
+    public void garantir(Collection<YearMonth> necessarios) {
+        List<YearMonth> faltam = new ArrayList<>();
+        for (YearMonth m : necessarios) {
+            if (carregados.get(m) == null) faltam.add(m); // get também marca o uso
+        }
+
+        if (!faltam.isEmpty()) {
+            Map<YearMonth, List<Fechamento>> lidos = leitor.apply(faltam);
+            for (YearMonth m : faltam) {
+                carregados.put(m, Boolean.TRUE);
+                existentes.add(m);
+                aoCarregar.accept(lidos.getOrDefault(m, List.of()));
+            }
+        }
+
+        Set<YearMonth> manter = new TreeSet<>(necessarios);
+        Iterator<YearMonth> it = carregados.keySet().iterator();
+        while (carregados.size() > maximo && it.hasNext()) {
+            YearMonth m = it.next();
+            if (m.equals(fixo) || manter.contains(m)) continue;
+            it.remove();
+            aoDescartar.accept(m);
+        }
+    }
+
+    /** Meses com fechamentos no histórico (carregados ou não). */
+    public NavigableSet<YearMonth> existentes() {
+        return Collections.unmodifiableNavigableSet(existentes);
+    }
+
+    public boolean carregado(YearMonth mes) {
+        return carregados.containsKey(mes);
+    }
+
+    /** Meses com fechamentos no histórico que não estão em memória. */
+    public int naoCarregados() {
+        int n = 0;
+        for (YearMonth m : existentes) {
+            if (!carregados.containsKey(m)) n++;
+        }
+        return n;
+    }
+
+    public int getCarregados() {
+        return carregados.size();
+    }
+}
@@ -0,0 +1,170 @@
+package main.java.sistema.arquivos;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.List;
+
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.MaquinaCartao;
+import main.java.sistema.objetos.Valor;
+
+/**
+ * Exporta fechamentos em CSV, um por vez, para um Writer (que deve ser bufferizado):
+ * uma linha por fechamento (totais, relatórios, diferenças e resultado) ou uma por máquina.
+ *
+ * Cada linha é montada num StringBuilder reaproveitado, com valores por {@link Valor#formatar}
+ * e data escrita dígito a dígito (sem String.format nem String por campo), então exportar anos
+ * de fechamentos custa memória constante além do que o chamador mantiver carregado.
+ *
+ * {@link Dialeto#CSV}: ',' entre campos e ponto decimal. {@link Dialeto#PLANILHA}: ';' e vírgula
+ * decimal, com BOM UTF-8, como o Excel em português abre direto.
+ */
+public class ExportadorCsv {
+
+    public enum Linha { FECHAMENTO, MAQUINA }
+
+    public enum Dialeto {
+        CSV(',', '.', false),
+        PLANILHA(';', ',', true);
+
+        final char separador;
+        final char decimal;
+        final boolean bom;
+
+        Dialeto(char separador, char decimal, boolean bom) {
+            this.separador = separador;
+            this.decimal = decimal;
+            this.bom = bom;
+        }
+    }
+
+    private static final List<String> COLUNAS_FECHAMENTO = List.of("id", "data", "turno", "responsavel",
+            "credito", "debito", "pix", "relatorioCredito", "relatorioDebito", "relatorioPix",
+            "entradaDinheiro", "relatorioDinheiro", "trocoInicial",
+            "diferencaCredito", "diferencaDebito", "diferencaPix", "diferencaDinheiro", "resultado");
+
+    private static final List<String> COLUNAS_MAQUINA = List.of("id", "data", "turno", "responsavel",
+            "maquina", "credito", "debito", "pix");
+
+    private final Writer out;
+    private final Linha linha;
+    private final Dialeto dialeto;
+    private final StringBuilder sb = new StringBuilder(256);
+    private char[] buf = new char[256];
+    private long linhas;
+
+    public ExportadorCsv(Writer out, Linha linha, Dialeto dialeto) {
+        this.out = out;
+        this.linha = linha;
+        this.dialeto = dialeto;
+    }
+
+    /** BOM (no dialeto planilha) + linha de títulos. */
+    public void cabecalho() throws IOException {
+        if (dialeto.bom) out.write('\uFEFF');
+        List<String> colunas = linha == Linha.FECHAMENTO ? COLUNAS_FECHAMENTO : COLUNAS_MAQUINA;
+        sb.setLength(0);
+        for (String c : colunas) {
+            if (sb.length() > 0) sb.append(dialeto.separador);
+            sb.append(c);
+        }
+        emitir();
+    }
+
+    public void escrever(Fechamento f) throws IOException {
+        if (linha == Linha.FECHAMENTO) {
+            inicio(f);
+            valor(f.totalCreditoMaquinas().centavos());
+            valor(f.totalDebitoMaquinas().centavos());
+            valor(f.totalPixMaquinas().centavos());
+            valor(f.getRelatorioCredito().centavos());
+            valor(f.getRelatorioDebito().centavos());
+            valor(f.getRelatorioPix().centavos());
+            valor(f.getEntradaDinheiro().centavos());
+            valor(f.getRelatorioDinheiro().centavos());
+            valor(f.getTrocoInicial().centavos());
+            valor(f.diferencaCredito().centavos());
+            valor(f.diferencaDebito().centavos());
+            valor(f.diferencaPix().centavos());
+            valor(f.diferencaDinheiro().centavos());
+            valor(f.getResultadoFinalTurno().centavos());
+            emitir();
+            return;
+        }
+
+        int i = 1;
+        for (MaquinaCartao m : f.getMaquinas()) {
+            inicio(f);
+            sb.append(dialeto.separador).append(i++);
+            valor(m.getCredito().centavos());
+            valor(m.getDebito().centavos());
+            valor(m.getPix().centavos());
+            emitir();
+        }
+    }
+
+    /** Linhas de dados escritas (sem o cabeçalho). */
+    public long getLinhas() {
+        return linhas;
+    }
+
+    // id;data;turno;responsavel
+    private void inicio(Fechamento f) {
+        sb.setLength(0);
+        sb.append(f.getId()).append(dialeto.separador);
+        data(f.getData());
+        sb.append(dialeto.separador).append(f.getTurno()).append(dialeto.separador);
+        texto(f.getResponsavel());
+        linhas++;
+    }
+
+    // AAAA-MM-DD
+    private void data(LocalDate d) {
+        if (d == null) return;
+        sb.append(d.getYear()).append('-');
+        doisDigitos(d.getMonthValue());
+        sb.append('-');
+        doisDigitos(d.getDayOfMonth());
+    }
+
+    private void doisDigitos(int n) {
+        sb.append((char) ('0' + n / 10)).append((char) ('0' + n % 10));
+    }
+
+    private void valor(long centavos) {
+        sb.append(dialeto.separador);
+        Valor.formatar(centavos, sb);
+        if (dialeto.decimal != '.') sb.setCharAt(sb.length() - 3, dialeto.decimal);
+    }
+
+    // entre aspas só quando precisa (separador, aspas ou quebra de linha)
+    private void texto(String s) {
+        if (s == null) return;
+        boolean aspas = false;
+        for (int i = 0; i < s.length() && !aspas; i++) {
+            char c = s.charAt(i);
+            aspas = c == dialeto.separador || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!aspas) {
+            sb.append(s);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    // copia a linha para o buffer reaproveitado e escreve sem criar String
+    private void emitir() throws IOException {
+        sb.append('\n');
+        int n = sb.length();
+        if (buf.length < n) buf = new char[Math.max(n, buf.length * 2)];
+        sb.getChars(0, n, buf, 0);
+        out.write(buf, 0, n);
+    }
+}
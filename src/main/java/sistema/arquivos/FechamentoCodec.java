@@ -0,0 +1,199 @@
+package main.java.sistema.arquivos;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.MaquinaCartao;
+import main.java.sistema.objetos.Valor;
+
+/**
+ * Formato binário compacto dos fechamentos.
+ *
+ * Arquivo: "AURB" + versão (1 byte) + registros.
+ * Registro v1: id (long), data em epoch day (int), turno (byte),
+ * responsável (short + UTF-8), 6 valores em centavos (long) e
+ * quantidade de máquinas (int) seguida de 3 longs por máquina.
+ * Registro v2: o mesmo + quantidade de leituras do turno 2 (int) e 3 longs por leitura.
+ * Registro v3: cada máquina/leitura ganha um byte (1 = tem bruto) e, se tiver, mais 3 longs
+ * com os valores antes da taxa.
+ * Arquivos v1 e v2 continuam legíveis; a escrita é sempre v3.
+ */
+public final class FechamentoCodec {
+
+    public static final int MAGIC = 0x41555242; // "AURB"
+    public static final byte VERSAO = 3;
+
+    private static final int CABECALHO = 5;
+    private static final int FIXO = 8 + 4 + 1 + 2 + 6 * 8 + 4;
+    private static final int POR_MAQUINA = 1 + 3 * 8;
+
+    private FechamentoCodec() {}
+
+    /** Tamanho exato do registro, para dimensionar o buffer. */
+    public static int tamanho(Fechamento f) {
+        return FIXO + bytesResponsavel(f).length + tamanho(f.getMaquinas()) + 4 + tamanho(f.getLeituras());
+    }
+
+    private static int tamanho(List<MaquinaCartao> maquinas) {
+        int n = maquinas.size() * POR_MAQUINA;
+        for (MaquinaCartao m : maquinas) if (m.temBruto()) n += 3 * 8;
+        return n;
+    }
+
+    public static void encode(Fechamento f, ByteBuffer out) {
+        byte[] resp = bytesResponsavel(f);
+
+        out.putLong(f.getId());
+        out.putInt(f.getData() == null ? Integer.MIN_VALUE : (int) f.getData().toEpochDay());
+        out.put((byte) f.getTurno());
+        out.putShort((short) resp.length);
+        out.put(resp);
+
+        out.putLong(f.getRelatorioCredito().centavos());
+        out.putLong(f.getRelatorioDebito().centavos());
+        out.putLong(f.getRelatorioPix().centavos());
+        out.putLong(f.getRelatorioDinheiro().centavos());
+        out.putLong(f.getEntradaDinheiro().centavos());
+        out.putLong(f.getTrocoInicial().centavos());
+
+        out.putInt(f.getMaquinas().size());
+        for (MaquinaCartao m : f.getMaquinas()) encode(m, out);
+
+        out.putInt(f.getLeituras().size());
+        for (MaquinaCartao m : f.getLeituras()) encode(m, out);
+    }
+
+    private static void encode(MaquinaCartao m, ByteBuffer out) {
+        out.putLong(m.getCredito().centavos());
+        out.putLong(m.getDebito().centavos());
+        out.putLong(m.getPix().centavos());
+        out.put((byte) (m.temBruto() ? 1 : 0));
+        if (m.temBruto()) {
+            out.putLong(m.getBrutoCredito().centavos());
+            out.putLong(m.getBrutoDebito().centavos());
+            out.putLong(m.getBrutoPix().centavos());
+        }
+    }
+
+    private static MaquinaCartao decodeMaquina(ByteBuffer in, byte versao) {
+        MaquinaCartao m = new MaquinaCartao(
+                Valor.deCentavos(in.getLong()), Valor.deCentavos(in.getLong()), Valor.deCentavos(in.getLong()));
+        if (versao >= 3 && in.get() != 0) {
+            m.setBruto(Valor.deCentavos(in.getLong()), Valor.deCentavos(in.getLong()), Valor.deCentavos(in.getLong()));
+        }
+        return m;
+    }
+
+    public static Fechamento decode(ByteBuffer in) {
+        return decode(in, VERSAO);
+    }
+
+    public static Fechamento decode(ByteBuffer in, byte versao) {
+        Fechamento f = new Fechamento();
+
+        f.setId(in.getLong());
+        int dia = in.getInt();
+        if (dia != Integer.MIN_VALUE) f.setData(LocalDate.ofEpochDay(dia));
+        byte turno = in.get();
+        if (turno != 0) f.setTurno(turno);
+
+        int len = in.getShort() & 0xFFFF;
+        if (len > 0) {
+            byte[] resp = new byte[len];
+            in.get(resp);
+            f.setResponsavel(new String(resp, StandardCharsets.UTF_8));
+        }
+
+        f.setRelatorioCredito(Valor.deCentavos(in.getLong()));
+        f.setRelatorioDebito(Valor.deCentavos(in.getLong()));
+        f.setRelatorioPix(Valor.deCentavos(in.getLong()));
+        f.setRelatorioDinheiro(Valor.deCentavos(in.getLong()));
+        f.setEntradaDinheiro(Valor.deCentavos(in.getLong()));
+        f.setTrocoInicial(Valor.deCentavos(in.getLong()));
+
+        int n = in.getInt();
+        if (n < 0) throw new IllegalArgumentException("Quantidade de máquinas inválida: " + n);
+        for (int i = 0; i < n; i++) f.addMaquina(decodeMaquina(in, versao));
+
+        if (versao >= 2) {
+            int l = in.getInt();
+            if (l < 0) throw new IllegalArgumentException("Quantidade de leituras inválida: " + l);
+            for (int i = 0; i < l; i++) f.addLeitura(decodeMaquina(in, versao));
+        }
+        return f;
+    }
+
+    public static void escreverArquivo(Path path, Collection<Fechamento> lista) throws IOException {
+        int total = CABECALHO;
+        for (Fechamento f : lista) total += tamanho(f);
+
+        ByteBuffer buf = ByteBuffer.allocate(total);
+        buf.putInt(MAGIC).put(VERSAO);
+        for (Fechamento f : lista) encode(f, buf);
+        buf.flip();
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (FileChannel ch = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) ch.write(buf);
+        }
+    }
+
+    public static List<Fechamento> lerArquivo(Path path) throws IOException {
+        List<Fechamento> out = new ArrayList<>();
+        lerArquivo(path, out::add);
+        return out;
+    }
+
+    public static void lerArquivo(Path path, Consumer<Fechamento> destino) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.remaining() < CABECALHO || buf.getInt() != MAGIC) {
+                throw new IOException("Arquivo binário inválido: " + path);
+            }
+            byte versao = buf.get();
+            if (versao < 1 || versao > VERSAO) throw new IOException("Versão do formato binário não suportada: " + versao);
+
+            while (buf.hasRemaining()) {
+                destino.accept(decode(buf, versao));
+            }
+        }
+    }
+
+    // ----------------------
+    // CONVERSÃO
+    // ----------------------
+    public static void textoParaBinario(Path texto, Path binario) throws IOException {
+        FormatoArquivo.converter(texto, new FormatoTexto(), binario, new FormatoBinario());
+    }
+
+    public static void binarioParaTexto(Path binario, Path texto) throws IOException {
+        FormatoArquivo.converter(binario, new FormatoBinario(), texto, new FormatoTexto());
+    }
+
+    public static void jsonParaBinario(Path json, Path binario) throws IOException {
+        FormatoArquivo.converter(json, new FormatoJson(), binario, new FormatoBinario());
+    }
+
+    public static void binarioParaJson(Path binario, Path json) throws IOException {
+        FormatoArquivo.converter(binario, new FormatoBinario(), json, new FormatoJson());
+    }
+
+    private static byte[] bytesResponsavel(Fechamento f) {
+        if (f.getResponsavel() == null) return new byte[0];
+        byte[] b = f.getResponsavel().getBytes(StandardCharsets.UTF_8);
+        if (b.length > 0xFFFF) throw new IllegalArgumentException("Responsável longo demais.");
+        return b;
+    }
+}
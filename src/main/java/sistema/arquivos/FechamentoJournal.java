@@ -0,0 +1,346 @@
+package main.java.sistema.arquivos;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.ParserBloco;
+
+/**
+ * Journal append-only dos fechamentos.
+ * Cada operação vira um quadro "#OPERACAO id tamanho crc" seguido de {@code tamanho} bytes com o
+ * bloco do fechamento (na exclusão, o bloco só serve para saber a partição mensal), gravado com uma única escrita sequencial no fim do arquivo (fsync opcional).
+ * O CRC32C cobre cabeçalho e bloco; na leitura, quadros corrompidos são pulados e a leitura
+ * continua no próximo quadro válido, então uma escrita interrompida perde no máximo o último registro.
+ *
+ * O canal fica aberto entre appends, mas antes de cada escrita é conferido contra o arquivo que
+ * está no caminho agora: se outro processo rotacionou ou apagou o journal, o canal é reaberto em
+ * vez de gravar no arquivo antigo. Quem grava deve segurar a trava da pasta.
+ */
+public class FechamentoJournal {
+
+    public enum Operacao { CRIAR, ALTERAR, EXCLUIR }
+
+    private final Path path;
+    private final boolean fsync;
+
+    private FileChannel canal;
+    private Object chaveCanal; // identidade (fileKey) do arquivo aberto em canal
+    private int registros;
+
+    public FechamentoJournal(Path path, boolean fsync) {
+        this.path = path;
+        this.fsync = fsync;
+    }
+
+    public Path getPath() { return path; }
+
+    /** Quantidade de registros gravados desde a última abertura/rotação. */
+    public synchronized int getRegistros() { return registros; }
+
+    /**
+     * Registro já serializado: o bloco é renderizado por quem pede a gravação, não por quem grava.
+     * {@code mes} é a partição do fechamento (null se ele não tem data).
+     */
+    public record Registro(Operacao op, long id, YearMonth mes, String bloco) {
+
+        public static Registro de(Operacao op, Fechamento f) {
+            StringBuilder bloco = new StringBuilder(256);
+            for (String ln : f.toBlockLines()) {
+                bloco.append(ln).append('\n');
+            }
+            return new Registro(op, f.getId(), f.getData() == null ? null : YearMonth.from(f.getData()), bloco.toString());
+        }
+
+        /** Exclusão do id na partição de {@code data} (fechamento que mudou de mês numa edição). */
+        public static Registro exclusao(long id, LocalDate data) {
+            return new Registro(Operacao.EXCLUIR, id, YearMonth.from(data),
+                    "Id:" + id + "\nData:" + data + "\nFim\n");
+        }
+    }
+
+    /**
+     * Registro lido do journal. {@code fechamento} traz o bloco gravado (para EXCLUIR, ao menos a
+     * data, que indica a partição); é null só em exclusões do formato antigo.
+     */
+    public record Evento(Operacao op, long id, Fechamento fechamento) {}
+
+    /** Registros já serializados numa única escrita (group commit do gravador assíncrono). */
+    public synchronized void appendRegistros(Collection<Registro> lista) throws IOException {
+        if (lista.isEmpty()) return;
+        StringBuilder sb = new StringBuilder(256 * lista.size());
+        for (Registro r : lista) quadro(sb, r);
+        gravar(sb);
+        registros += lista.size();
+    }
+
+    private static void quadro(StringBuilder sb, Registro r) {
+        byte[] payload = r.bloco().getBytes(StandardCharsets.UTF_8);
+        String cabecalho = "#" + r.op().name() + " " + r.id() + " " + payload.length;
+
+        sb.append(cabecalho).append(' ')
+          .append(Integer.toHexString(crc(cabecalho.getBytes(StandardCharsets.UTF_8), payload, 0, payload.length)))
+          .append('\n')
+          .append(r.bloco());
+    }
+
+    private void gravar(CharSequence conteudo) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(conteudo.toString().getBytes(StandardCharsets.UTF_8));
+        FileChannel ch = abrir();
+        long antes = ch.size();
+        try {
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            if (fsync) ch.force(false);
+        } catch (IOException e) {
+            // escrita pela metade (ex.: disco cheio): corta o pedaço, para a nova tentativa do
+            // gravador começar num quadro limpo
+            try {
+                ch.truncate(antes);
+            } catch (IOException t) {
+                e.addSuppressed(t);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fecha o journal atual e o renomeia para {@code destino}; o próximo append abre um arquivo novo.
+     * Retorna false se não havia nada para rotacionar. Deve ser chamado sob a trava da pasta.
+     */
+    public synchronized boolean rotacionar(Path destino) throws IOException {
+        fechar();
+        registros = 0;
+        if (!Files.exists(path) || Files.size(path) == 0) return false;
+        Files.move(path, destino);
+        return true;
+    }
+
+    /** Descarta o conteúdo do journal (usado depois que um snapshot completo foi gravado). */
+    public synchronized void truncar() throws IOException {
+        fechar();
+        registros = 0;
+        Files.deleteIfExists(path);
+    }
+
+    public synchronized void fechar() throws IOException {
+        if (canal != null) {
+            canal.close();
+            canal = null;
+            chaveCanal = null;
+        }
+    }
+
+    private FileChannel abrir() throws IOException {
+        if (canal != null) {
+            Object atual = chave();
+            if (chaveCanal == null || !chaveCanal.equals(atual)) {
+                // rotacionado/apagado por outro processo (ou sem fileKey para conferir): reabre
+                if (chaveCanal != null) registros = 0;
+                fechar();
+            }
+        }
+        if (canal == null) {
+            Files.createDirectories(path.getParent());
+            canal = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            chaveCanal = chave();
+        }
+        return canal;
+    }
+
+    // fileKey do arquivo no caminho (dispositivo + inode); null se não existe ou o sistema não informa
+    private Object chave() throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        } catch (java.nio.file.NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reaplica o próprio journal sobre o estado e corta o lixo deixado no fim por uma escrita
+     * interrompida, para que os próximos appends comecem num quadro limpo.
+     */
+    public synchronized void recuperar(Consumer<Evento> eventos) throws IOException {
+        fechar();
+        if (!Files.exists(path)) return;
+
+        long validos = replay(path, eventos);
+        if (validos < Files.size(path)) {
+            System.err.println("Journal com final corrompido: descartando " + (Files.size(path) - validos) + " byte(s).");
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                ch.truncate(validos);
+                ch.force(false);
+            }
+        }
+    }
+
+    /**
+     * Entrega os registros de um arquivo de journal, em ordem.
+     * Quadros com tamanho ou CRC inválidos são pulados até o próximo quadro válido.
+     * Também aceita registros do formato antigo, sem tamanho/CRC ("#OPERACAO id" + bloco até "Fim").
+     *
+     * @return posição logo depois do último registro válido
+     */
+    public static long replay(Path arquivo, Consumer<Evento> eventos) throws IOException {
+        return replay(arquivo, 0, eventos);
+    }
+
+    /**
+     * Como {@link #replay(Path, Consumer)}, a partir da posição {@code desde} (fim de um quadro já
+     * lido antes): só o que foi acrescentado depois dela é lido.
+     *
+     * @return posição logo depois do último registro válido ({@code desde} se não há nenhum novo)
+     */
+    public static long replay(Path arquivo, long desde, Consumer<Evento> eventos) throws IOException {
+        if (!Files.exists(arquivo)) return desde;
+
+        byte[] bytes;
+        try (FileChannel ch = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long n = ch.size() - desde;
+            if (n <= 0) return desde;
+            if (n > Integer.MAX_VALUE - 8) throw new IOException("Journal grande demais: " + arquivo);
+            ByteBuffer buf = ByteBuffer.allocate((int) n);
+            while (buf.hasRemaining() && ch.read(buf, desde + buf.position()) >= 0) {
+                // lê até o fim
+            }
+            bytes = buf.position() == n ? buf.array() : Arrays.copyOf(buf.array(), buf.position());
+        }
+        return desde + replay(arquivo, bytes, desde, eventos);
+    }
+
+    private static int replay(Path arquivo, byte[] bytes, long desde, Consumer<Evento> eventos) {
+        int pos = 0;
+        int validos = 0;
+
+        while (pos < bytes.length) {
+            int fimCabecalho = indice(bytes, pos, (byte) '\n');
+            String[] campos = bytes[pos] == '#' && fimCabecalho > 0
+                    ? new String(bytes, pos + 1, fimCabecalho - pos - 1, StandardCharsets.UTF_8).trim().split(" ")
+                    : null;
+
+            int proximo = campos == null ? -1
+                    : campos.length == 4 ? quadro(bytes, campos, fimCabecalho + 1, eventos)
+                    : campos.length == 2 ? registroAntigo(bytes, campos, fimCabecalho + 1, eventos)
+                    : -1;
+
+            if (proximo < 0) {
+                if (vazio(bytes, pos, bytes.length)) {
+                    validos = bytes.length;
+                    break;
+                }
+                System.err.println("Journal " + arquivo.getFileName() + ": registro inválido na posição " + (desde + pos) + ", procurando o próximo.");
+                pos = ressincronizar(bytes, pos + 1);
+                continue;
+            }
+            pos = proximo;
+            validos = proximo;
+        }
+        return validos;
+    }
+
+    // quadro "#OP id tamanho crc": aplica e devolve o fim do quadro, ou -1 se inválido
+    private static int quadro(byte[] bytes, String[] campos, int inicio, Consumer<Evento> eventos) {
+        Operacao op;
+        long id;
+        int tamanho;
+        int crc;
+        try {
+            op = Operacao.valueOf(campos[0]);
+            id = Long.parseLong(campos[1]);
+            tamanho = Integer.parseInt(campos[2]);
+            crc = Integer.parseUnsignedInt(campos[3], 16);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+        if (tamanho < 0 || tamanho > bytes.length - inicio) return -1;
+
+        byte[] cabecalho = ("#" + campos[0] + " " + campos[1] + " " + campos[2]).getBytes(StandardCharsets.UTF_8);
+        if (crc(cabecalho, bytes, inicio, tamanho) != crc) return -1;
+
+        if (op == Operacao.EXCLUIR && tamanho == 0) {
+            eventos.accept(new Evento(op, id, null));
+            return inicio + tamanho;
+        }
+        try {
+            Fechamento f = new ParserBloco(ByteBuffer.wrap(bytes, inicio, tamanho).slice()).proximo();
+            f.setId(id);
+            eventos.accept(new Evento(op, id, f));
+        } catch (IllegalArgumentException e) {
+            // CRC ok mas bloco inválido: registro gravado errado, não corrupção
+            System.err.println("Erro ao reaplicar registro " + id + ": " + e.getMessage());
+        }
+        return inicio + tamanho;
+    }
+
+    // registro do formato antigo "#OP id": o bloco termina no "Fim"
+    private static int registroAntigo(byte[] bytes, String[] campos, int inicio, Consumer<Evento> eventos) {
+        Operacao op;
+        long id;
+        try {
+            op = Operacao.valueOf(campos[0]);
+            id = Long.parseLong(campos[1]);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+
+        if (op == Operacao.EXCLUIR) {
+            eventos.accept(new Evento(op, id, null));
+            return inicio;
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        buf.position(inicio);
+        try {
+            Fechamento f = new ParserBloco(buf).proximo();
+            f.setId(id);
+            eventos.accept(new Evento(op, id, f));
+            return buf.position();
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    // próximo '#' em início de linha a partir de pos
+    private static int ressincronizar(byte[] bytes, int pos) {
+        for (int i = Math.max(pos, 1); i < bytes.length; i++) {
+            if (bytes[i] == '#' && bytes[i - 1] == '\n') return i;
+        }
+        return bytes.length;
+    }
+
+    private static int indice(byte[] bytes, int de, byte b) {
+        for (int i = de; i < bytes.length; i++) {
+            if (bytes[i] == b) return i;
+        }
+        return -1;
+    }
+
+    private static boolean vazio(byte[] bytes, int de, int ate) {
+        for (int i = de; i < ate; i++) {
+            if (bytes[i] != '\n' && bytes[i] != '\r' && bytes[i] != ' ') return false;
+        }
+        return true;
+    }
+
+    private static int crc(byte[] cabecalho, byte[] payload, int de, int tamanho) {
+        CRC32C c = new CRC32C();
+        c.update(cabecalho, 0, cabecalho.length);
+        c.update(payload, de, tamanho);
+        return (int) c.getValue();
+    }
+}
@@ -0,0 +1,189 @@
+package main.java.sistema.arquivos;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.MaquinaCartao;
+import main.java.sistema.objetos.Valor;
+
+/**
+ * Leitura e escrita de fechamentos no formato JSON de data/ (fechamentos.json e individual/*.json),
+ * campo a campo, sem mapper genérico. O "id" é gravado à frente quando já atribuído,
+ * "leituras" (turno 2) só quando existem e o "bruto" de cada máquina só quando conhecido.
+ */
+public final class FechamentoJson {
+
+    private FechamentoJson() {}
+
+    /** Lê um objeto ou um array de objetos, entregando cada fechamento ao destino. */
+    public static void ler(JsonLeitor r, Consumer<Fechamento> destino) throws IOException {
+        if (r.peek() == '[') {
+            r.esperar('[');
+            while (r.temProximo()) destino.accept(lerFechamento(r));
+            r.esperar(']');
+        } else if (r.peek() != -1) {
+            destino.accept(lerFechamento(r));
+        }
+    }
+
+    public static Fechamento lerFechamento(JsonLeitor r) throws IOException {
+        Fechamento f = new Fechamento();
+        r.esperar('{');
+        while (r.temProximo()) {
+            String campo = r.nome();
+            if (r.nulo()) continue;
+
+            switch (campo) {
+                case "id" -> f.setId(r.inteiro());
+                case "responsavel" -> f.setResponsavel(r.texto());
+                case "data" -> f.setData(LocalDate.parse(r.texto()));
+                case "turno" -> f.setTurno((int) r.inteiro());
+                case "maquinas" -> {
+                    r.esperar('[');
+                    while (r.temProximo()) f.addMaquina(lerMaquina(r));
+                    r.esperar(']');
+                }
+                case "leituras" -> {
+                    r.esperar('[');
+                    while (r.temProximo()) f.addLeitura(lerMaquina(r));
+                    r.esperar(']');
+                }
+                case "relatorioCredito" -> f.setRelatorioCredito(r.valor());
+                case "relatorioDebito" -> f.setRelatorioDebito(r.valor());
+                case "relatorioPix" -> f.setRelatorioPix(r.valor());
+                case "entradaDinheiro" -> f.setEntradaDinheiro(r.valor());
+                case "relatorioDinheiro" -> f.setRelatorioDinheiro(r.valor());
+                case "trocoInicial" -> f.setTrocoInicial(r.valor());
+                default -> r.pular();
+            }
+        }
+        r.esperar('}');
+        return f;
+    }
+
+    private static MaquinaCartao lerMaquina(JsonLeitor r) throws IOException {
+        MaquinaCartao m = new MaquinaCartao();
+        r.esperar('{');
+        while (r.temProximo()) {
+            String campo = r.nome();
+            if (r.nulo()) continue;
+
+            switch (campo) {
+                case "credito" -> m.setCredito(r.valor());
+                case "debito" -> m.setDebito(r.valor());
+                case "pix" -> m.setPix(r.valor());
+                case "bruto" -> {
+                    MaquinaCartao b = lerMaquina(r);
+                    m.setBruto(b.getCredito(), b.getDebito(), b.getPix());
+                }
+                default -> r.pular();
+            }
+        }
+        r.esperar('}');
+        return m;
+    }
+
+    public static void escrever(Writer w, Iterable<Fechamento> lista) throws IOException {
+        w.write('[');
+        boolean primeiro = true;
+        for (Fechamento f : lista) {
+            if (!primeiro) w.write(',');
+            escrever(w, f);
+            primeiro = false;
+        }
+        w.write(']');
+    }
+
+    public static void escrever(Writer w, Fechamento f) throws IOException {
+        w.write('{');
+        if (f.getId() != 0) {
+            w.write("\"id\":");
+            w.write(Long.toString(f.getId()));
+            w.write(',');
+        }
+        w.write("\"responsavel\":");
+        escreverTexto(w, f.getResponsavel());
+        w.write(",\"data\":");
+        escreverTexto(w, f.getData() == null ? null : f.getData().toString());
+        w.write(",\"turno\":");
+        w.write(Integer.toString(f.getTurno()));
+
+        w.write(",\"maquinas\":");
+        escreverMaquinas(w, f.getMaquinas());
+        if (f.temLeituras()) {
+            w.write(",\"leituras\":");
+            escreverMaquinas(w, f.getLeituras());
+        }
+
+        campo(w, "relatorioCredito", f.getRelatorioCredito());
+        campo(w, "relatorioDebito", f.getRelatorioDebito());
+        campo(w, "relatorioPix", f.getRelatorioPix());
+        campo(w, "entradaDinheiro", f.getEntradaDinheiro());
+        campo(w, "relatorioDinheiro", f.getRelatorioDinheiro());
+        campo(w, "trocoInicial", f.getTrocoInicial());
+        w.write('}');
+    }
+
+    private static void escreverMaquinas(Writer w, List<MaquinaCartao> maquinas) throws IOException {
+        w.write('[');
+        boolean primeira = true;
+        for (MaquinaCartao m : maquinas) {
+            if (!primeira) w.write(',');
+            w.write("{\"credito\":");
+            w.write(m.getCredito().toString());
+            w.write(",\"debito\":");
+            w.write(m.getDebito().toString());
+            w.write(",\"pix\":");
+            w.write(m.getPix().toString());
+            if (m.temBruto()) {
+                w.write(",\"bruto\":{\"credito\":");
+                w.write(m.getBrutoCredito().toString());
+                w.write(",\"debito\":");
+                w.write(m.getBrutoDebito().toString());
+                w.write(",\"pix\":");
+                w.write(m.getBrutoPix().toString());
+                w.write('}');
+            }
+            w.write('}');
+            primeira = false;
+        }
+        w.write(']');
+    }
+
+    private static void campo(Writer w, String nome, Valor v) throws IOException {
+        w.write(",\"");
+        w.write(nome);
+        w.write("\":");
+        w.write(v.toString());
+    }
+
+    private static void escreverTexto(Writer w, String s) throws IOException {
+        if (s == null) {
+            w.write("null");
+            return;
+        }
+        w.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> w.write("\\\"");
+                case '\\' -> w.write("\\\\");
+                case '\n' -> w.write("\\n");
+                case '\r' -> w.write("\\r");
+                case '\t' -> w.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        w.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        w.write(c);
+                    }
+                }
+            }
+        }
+        w.write('"');
+    }
+}
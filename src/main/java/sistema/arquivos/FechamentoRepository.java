@@ -1,106 +1,256 @@
 package main.java.sistema.arquivos;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 
+import main.java.sistema.metricas.Metricas;
 import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.FiltroFechamentos;
+import main.java.sistema.objetos.PaginaFechamentos;
+import main.java.sistema.objetos.TabelaTaxas;
 
 /**
- * Carrega e salva fechamentos em ~/Documents/fechamentos_db.txt
+ * Carrega e salva fechamentos em ~/Documents/particoes (um segmento por mês + manifesto).
  * Também gera arquivo individual por fechamento com data no nome.
+ *
+ * Cada criação/edição/exclusão vai para o journal (fechamentos_journal.txt) com um único append.
+ * Quando o journal cresce, ele é rotacionado e compactado nas partições dos meses afetados
+ * em segundo plano.
+ *
+ * As gravações de journal e arquivos individuais são feitas por um gravador assíncrono
+ * (group commit a cada aurelius.gravador.intervalo ms); saveAll e encerrar esperam a fila esvaziar,
+ * e um gancho de shutdown garante o mesmo se a JVM for encerrada sem passar pelo menu. Um lote que
+ * falhou é tentado de novo; consolidar, sincronizar e encerrar devolvem false enquanto ele não entrar.
+ *
+ * Tempos de carga/gravação/journal, erros de IO e os medidores base.registros, base.bytes e
+ * gravador.fila ficam em {@link Metricas}; {@link #gravarMetricas()} grava o resumo em
+ * ~/Documents/metricas.txt.
+ *
+ * A tabela de taxas ({@link #taxas()}) fica em ~/Documents/taxas.txt.
+ *
+ * É a base do console, em ~/Documents; a lógica fica em {@link RepositorioTerminal}. Criações,
+ * edições e exclusões passam por {@link #servico()} (terminal {@link #terminal()}), que confere
+ * data/turno na memória por faixa de mês; o serviço recebe cópias, então quem chama pode continuar
+ * mexendo no fechamento que passou. As bases por loja/terminal ficam em ~/Documents/terminais.
  */
 public class FechamentoRepository {
 
-    private static final String SAVE_PATH = System.getProperty("user.home")
-            + System.getProperty("file.separator") + "Documents"
-            + System.getProperty("file.separator") + "fechamentos_db.txt";
+    // formato do snapshot: texto (padrão), json ou binario
+    private static final FormatoArquivo formato =
+            FormatoArquivo.porNome(System.getProperty("aurelius.formato", "texto"));
+
+    private static final Path PASTA = Path.of(System.getProperty("user.home"), "Documents");
+
+    private static final RepositorioTerminal base = new RepositorioTerminal(PASTA, formato);
+
+    private static final ServicoFechamentos.Terminal TERMINAL = new ServicoFechamentos.Terminal("local", "console");
+
+    private static final ServicoFechamentos servico = new ServicoFechamentos(PASTA.resolve("terminais"), formato);
+
+    private static TabelaTaxas taxas;
+
+    static {
+        Metricas.medidor("base.registros", base::quantidade);
+        Metricas.medidor("base.bytes", base::bytes);
+        Metricas.medidor("gravador.fila", base::pendentes);
+        Metricas.medidor("gravador.naoGravados", base::naoGravados);
+        servico.abrir(TERMINAL, base);
+    }
+
+    /** Serviço que atende a base do console (como {@link #terminal()}) e as bases por loja/terminal. */
+    public static ServicoFechamentos servico() {
+        return servico;
+    }
+
+    /** Terminal da base do console em {@link #servico()}. */
+    public static ServicoFechamentos.Terminal terminal() {
+        return TERMINAL;
+    }
 
     public static List<Fechamento> loadAll() {
-        List<Fechamento> out = new ArrayList<>();
-        Path path = Path.of(SAVE_PATH);
+        return base.loadAll();
+    }
 
-        if (!Files.exists(path)) return out;
+    /** Fechamentos de um mês (segmento + journal). */
+    public static List<Fechamento> carregarMes(YearMonth mes) {
+        return base.carregarMes(mes);
+    }
 
-        try {
-            List<String> lines = Files.readAllLines(path);
-            List<String> block = new ArrayList<>();
-
-            for (String ln : lines) {
-                if (ln == null) continue;
-                ln = ln.trim();
-                if (ln.isEmpty()) continue;
-                block.add(ln);
-
-                if ("END".equals(ln)) {
-                    try {
-                        Fechamento f = Fechamento.fromBlockLines(block);
-                        out.add(f);
-                    } catch (Exception e) {
-                        System.err.println("Erro ao carregar bloco: " + e.getMessage());
-                    }
-                    block.clear();
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Erro ao ler persistência: " + e.getMessage());
-        }
-        return out;
+    public static Map<YearMonth, List<Fechamento>> carregar(Collection<YearMonth> meses) {
+        return base.carregar(meses);
+    }
+
+    /** Página da listagem em ordem de data/turno; {@code depois} = cursor da página anterior (null na primeira). */
+    public static PaginaFechamentos pagina(FiltroFechamentos filtro, PaginaFechamentos.Cursor depois, int tamanho,
+                                           boolean decrescente) {
+        return base.pagina(filtro, depois, tamanho, decrescente);
+    }
+
+    /** Meses que têm fechamentos, sem ler nenhum segmento. */
+    public static NavigableSet<YearMonth> meses() {
+        return base.meses();
+    }
+
+    /** Meses em que o id pode estar, sem ler nenhum segmento. */
+    public static NavigableSet<YearMonth> mesesDoId(long id) {
+        return base.mesesDoId(id);
     }
 
+    /** Grava a lista como a base completa e descarta o journal. */
     public static void saveAll(List<Fechamento> lista) {
-        Path path = Path.of(SAVE_PATH);
+        base.saveAll(lista);
+        servico.abrir(TERMINAL, base); // o que o serviço tinha em memória ficou velho
+    }
 
-        try {
-            Files.createDirectories(path.getParent());
+    /** Leva o journal para as partições (não precisa da base inteira em memória); false se algo não foi gravado. */
+    public static boolean consolidar() {
+        return base.consolidar();
+    }
 
-            try (BufferedWriter writer = Files.newBufferedWriter(
-                    path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+    /**
+     * Grava um fechamento novo, conferindo data/turno contra a base sob a trava da pasta.
+     *
+     * @throws IllegalStateException se já existe fechamento na mesma data e turno
+     */
+    public static void inserir(Fechamento f) {
+        if (f.getData() == null) {
+            base.inserir(f);
+            return;
+        }
+        Fechamento c = copia(f);
+        servico.registrar(TERMINAL, c);
+        f.setId(c.getId());
+    }
 
-                for (Fechamento f : lista) {
-                    for (String ln : f.toBlockLines()) {
-                        writer.write(ln);
-                        writer.newLine();
-                    }
-                }
+    /** Grava vários fechamentos novos (um append por faixa); devolve os recusados por data/turno repetido. */
+    public static List<Fechamento> inserirTodos(Collection<Fechamento> lista) {
+        Map<Fechamento, Fechamento> original = new IdentityHashMap<>();
+        List<Fechamento> copias = new ArrayList<>(lista.size());
+        List<Fechamento> semData = new ArrayList<>();
+        for (Fechamento f : lista) {
+            if (f.getData() == null) {
+                semData.add(f);
+                continue;
             }
+            Fechamento c = copia(f);
+            original.put(c, f);
+            copias.add(c);
+        }
+        List<Fechamento> recusados = new ArrayList<>(base.inserirTodos(semData));
+        for (Fechamento c : servico.registrarTodos(TERMINAL, copias)) recusados.add(original.remove(c));
+        original.forEach((c, f) -> f.setId(c.getId()));
+        return recusados;
+    }
 
-        } catch (IOException e) {
-            System.err.println("Erro ao salvar persistência: " + e.getMessage());
+    /** @throws IllegalStateException se a nova data/turno já é de outro fechamento */
+    public static void atualizar(Fechamento f) {
+        atualizar(f, f.getData());
+    }
+
+    /**
+     * Edição em que a data pode ter mudado de mês.
+     *
+     * @throws IllegalStateException se a nova data/turno já é de outro fechamento
+     */
+    public static void atualizar(Fechamento f, LocalDate dataAnterior) {
+        if (f.getData() != null && f.getId() != 0 && servico.buscar(TERMINAL, f.getId()).isPresent()) {
+            servico.alterar(TERMINAL, copia(f));
+            return;
         }
+        // fechamento sem data (antes ou depois da edição): fora do serviço
+        base.atualizar(f, dataAnterior);
+        if (dataAnterior != null) servico.descartar(TERMINAL, YearMonth.from(dataAnterior));
+        if (f.getData() != null) servico.descartar(TERMINAL, YearMonth.from(f.getData()));
     }
 
-    public static void saveIndividualFile(Fechamento f) {
-        String fname = String.format("fechamento_%02d-%02d-%04d_turno%d.txt",
-                f.getData().getDayOfMonth(),
-                f.getData().getMonthValue(),
-                f.getData().getYear(),
-                f.getTurno());
+    public static void remover(Fechamento f) {
+        if (f.getData() != null && servico.remover(TERMINAL, f.getId())) return;
+        base.remover(f);
+    }
+
+    private static Fechamento copia(Fechamento f) {
+        return Fechamento.fromBlockLines(f.toBlockLines());
+    }
 
-        Path p = Path.of(System.getProperty("user.home"), "Documents", fname);
+    /** Muda a cada criação/edição/exclusão; ver {@link RepositorioTerminal#versao()}. */
+    public static long versao() {
+        return base.versao();
+    }
 
-        try {
-            Files.createDirectories(p.getParent());
+    /** Muda só com gravações que caem no mês; ver {@link RepositorioTerminal#versao(YearMonth)}. */
+    public static long versao(YearMonth mes) {
+        return base.versao(mes);
+    }
 
-            try (BufferedWriter w = Files.newBufferedWriter(
-                    p, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+    /** Bloqueia até tudo o que já foi registrado estar no disco; false se algum registro não foi gravado. */
+    public static boolean sincronizar() {
+        return base.sincronizar();
+    }
 
-                for (String ln : f.toBlockLines()) {
-                    w.write(ln);
-                    w.newLine();
-                }
-            }
+    /** Grava o que estiver na fila, aguarda compactações pendentes e fecha o journal; false se sobrou registro sem gravar. */
+    public static boolean encerrar() {
+        return base.encerrar();
+    }
 
+    public static void saveIndividualFile(Fechamento f) {
+        base.gravarArquivo(arquivoIndividual(f.getData(), f.getTurno()), f.toBlockLines());
+    }
+
+    /** Apaga o arquivo individual de data/turno (fechamento excluído, ou movido para outra data/turno). */
+    public static void removerIndividualFile(LocalDate data, int turno) {
+        if (data == null) return;
+        base.apagarArquivo(arquivoIndividual(data, turno));
+    }
+
+    private static Path arquivoIndividual(LocalDate data, int turno) {
+        return PASTA.resolve(String.format("fechamento_%02d-%02d-%04d_turno%d.txt",
+                data.getDayOfMonth(), data.getMonthValue(), data.getYear(), turno));
+    }
+
+    /** Grava o resumo das métricas em ~/Documents/metricas.txt; devolve o caminho, ou null se falhou. */
+    public static Path gravarMetricas() {
+        Path p = PASTA.resolve("metricas.txt");
+        try {
+            Metricas.gravar(p);
+            return p;
         } catch (IOException e) {
-            System.err.println("Erro ao gerar arquivo individual: " + e.getMessage());
+            System.err.println("Erro ao gravar métricas: " + e.getMessage());
+            return null;
         }
     }
 
+    /**
+     * Tabela de taxas de ~/Documents/taxas.txt (ou -Daurelius.taxas), lida uma vez. Sem arquivo,
+     * ou com erro nele, vale a taxa única de {@link main.java.sistema.objetos.RegrasFechamento}.
+     */
+    public static synchronized TabelaTaxas taxas() {
+        if (taxas != null) return taxas;
+        try {
+            taxas = lerTaxas();
+        } catch (IOException | IllegalArgumentException e) {
+            taxas = TabelaTaxas.PADRAO;
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao ler taxas: " + e.getMessage() + "; usando taxa padrão.");
+        }
+        return taxas;
+    }
+
+    /** Como {@link #taxas()}, mas falha se o arquivo existe e tem erro (para regravar valores com ela). */
+    public static TabelaTaxas lerTaxas() throws IOException {
+        Path p = Path.of(System.getProperty("aurelius.taxas", PASTA.resolve("taxas.txt").toString()));
+        return Files.exists(p) ? TabelaTaxas.ler(p) : TabelaTaxas.PADRAO;
+    }
+
     public static String getSavePath() {
-        return SAVE_PATH;
+        return base.getSavePath().toString();
     }
 }
@@ -0,0 +1,42 @@
+package main.java.sistema.arquivos;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+import main.java.sistema.objetos.Fechamento;
+
+/**
+ * Formato de arquivo de uma base de fechamentos (texto em blocos, JSON ou binário).
+ * O repositório grava o snapshot pelo formato configurado em -Daurelius.formato.
+ */
+public interface FormatoArquivo {
+
+    /** Extensão usada no nome do arquivo (sem ponto). */
+    String extensao();
+
+    /** Lê o arquivo entregando um fechamento por vez, sem montar a lista inteira. */
+    void ler(Path path, Consumer<Fechamento> destino) throws IOException;
+
+    void escrever(Path path, Collection<Fechamento> lista) throws IOException;
+
+    static FormatoArquivo porNome(String nome) {
+        return switch (nome.toLowerCase(Locale.ROOT)) {
+            case "texto", "txt" -> new FormatoTexto();
+            case "json" -> new FormatoJson();
+            case "binario", "bin" -> new FormatoBinario();
+            default -> throw new IllegalArgumentException("Formato desconhecido: " + nome);
+        };
+    }
+
+    /** Converte um arquivo de um formato para outro. */
+    static void converter(Path origem, FormatoArquivo de, Path destino, FormatoArquivo para) throws IOException {
+        List<Fechamento> lista = new ArrayList<>();
+        de.ler(origem, lista::add);
+        para.escrever(destino, lista);
+    }
+}
@@ -0,0 +1,42 @@
+package main.java.sistema.arquivos;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import main.java.sistema.metricas.Metricas;
+import main.java.sistema.objetos.Fechamento;
+
+/**
+ * Formato binário de {@link FechamentoCodec}.
+ */
+public class FormatoBinario implements FormatoArquivo {
+
+    @Override
+    public String extensao() { return "bin"; }
+
+    @Override
+    @SuppressWarnings("try")
+    public void ler(Path path, Consumer<Fechamento> destino) throws IOException {
+        if (!Files.exists(path)) return;
+        int[] n = {0};
+        try (Metricas.Amostra a = Metricas.medir("codec.binario.ler")) {
+            FechamentoCodec.lerArquivo(path, f -> {
+                n[0]++;
+                destino.accept(f);
+            });
+        }
+        Metricas.contador("codec.binario.lidos").add(n[0]);
+    }
+
+    @Override
+    @SuppressWarnings("try")
+    public void escrever(Path path, Collection<Fechamento> lista) throws IOException {
+        try (Metricas.Amostra a = Metricas.medir("codec.binario.escrever")) {
+            FechamentoCodec.escreverArquivo(path, lista);
+        }
+        Metricas.contador("codec.binario.escritos").add(lista.size());
+    }
+}
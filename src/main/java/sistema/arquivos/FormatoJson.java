@@ -0,0 +1,49 @@
+package main.java.sistema.arquivos;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import main.java.sistema.metricas.Metricas;
+import main.java.sistema.objetos.Fechamento;
+
+/**
+ * Formato JSON de data/fechamentos.json (array) e data/individual/*.json (objeto único).
+ */
+public class FormatoJson implements FormatoArquivo {
+
+    @Override
+    public String extensao() { return "json"; }
+
+    @Override
+    @SuppressWarnings("try")
+    public void ler(Path path, Consumer<Fechamento> destino) throws IOException {
+        if (!Files.exists(path)) return;
+
+        int[] n = {0};
+        try (Metricas.Amostra a = Metricas.medir("codec.json.ler");
+             JsonLeitor r = new JsonLeitor(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            FechamentoJson.ler(r, f -> {
+                n[0]++;
+                destino.accept(f);
+            });
+        }
+        Metricas.contador("codec.json.lidos").add(n[0]);
+    }
+
+    @Override
+    @SuppressWarnings("try")
+    public void escrever(Path path, Collection<Fechamento> lista) throws IOException {
+        try (Metricas.Amostra a = Metricas.medir("codec.json.escrever");
+             BufferedWriter w = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            FechamentoJson.escrever(w, lista);
+        }
+        Metricas.contador("codec.json.escritos").add(lista.size());
+    }
+}
@@ -0,0 +1,55 @@
+package main.java.sistema.arquivos;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import main.java.sistema.metricas.Metricas;
+import main.java.sistema.objetos.Fechamento;
+
+/**
+ * Formato original em blocos de texto ("Responsável:...", ..., "Fim").
+ */
+public class FormatoTexto implements FormatoArquivo {
+
+    @Override
+    public String extensao() { return "txt"; }
+
+    @Override
+    @SuppressWarnings("try")
+    public void ler(Path path, Consumer<Fechamento> destino) throws IOException {
+        if (!Files.exists(path)) return;
+
+        int n = 0;
+        try (Metricas.Amostra a = Metricas.medir("codec.texto.ler");
+             LeitorMapeado leitor = new LeitorMapeado(path)) {
+            for (; leitor.hasNext(); n++) destino.accept(leitor.next());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Metricas.contador("codec.texto.lidos").add(n);
+    }
+
+    @Override
+    @SuppressWarnings("try")
+    public void escrever(Path path, Collection<Fechamento> lista) throws IOException {
+        try (Metricas.Amostra a = Metricas.medir("codec.texto.escrever");
+             BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            for (Fechamento f : lista) {
+                for (String ln : f.toBlockLines()) {
+                    writer.write(ln);
+                    writer.newLine();
+                }
+            }
+        }
+        Metricas.contador("codec.texto.escritos").add(lista.size());
+    }
+}
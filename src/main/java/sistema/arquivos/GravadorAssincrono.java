@@ -0,0 +1,311 @@
+package main.java.sistema.arquivos;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import main.java.sistema.arquivos.FechamentoJournal.Operacao;
+import main.java.sistema.arquivos.FechamentoJournal.Registro;
+import main.java.sistema.metricas.Metricas;
+
+/**
+ * Thread única que grava journal e arquivos individuais fora da thread do menu.
+ *
+ * As tarefas entram numa fila limitada (quem pede só espera se o disco ficar muito para trás).
+ * A thread junta o que chegar durante o intervalo de group commit, coalesce várias operações do
+ * mesmo fechamento numa só e grava tudo com uma escrita no journal.
+ *
+ * Um lote que o destino não conseguiu gravar não é descartado: fica guardado, os registros que
+ * chegarem depois são coalescidos por cima e a gravação é tentada de novo com espera crescente
+ * (50 ms até 5 s). Enquanto houver registros sem gravar, {@link #aguardar()} e {@link #encerrar()}
+ * devolvem false.
+ */
+class GravadorAssincrono {
+
+    private record Arquivo(Path path, List<String> linhas) {}
+
+    private record Marca(CountDownLatch feito) {}
+
+    private record ChaveLote(long id, YearMonth mes) {}
+
+    /** Onde o lote de registros é gravado (append no journal, com as travas necessárias). */
+    interface Destino {
+        void gravar(Collection<Registro> registros) throws IOException;
+    }
+
+    private static final Object FIM = new Object();
+
+    private static final long ESPERA_MIN_MS = 50;
+    private static final long ESPERA_MAX_MS = 5000;
+    private static final int TENTATIVAS_FINAIS = 3; // no encerramento, depois que a thread parou
+
+    private final Destino destino;
+    private final Runnable depoisDeGravar;
+    private final long intervaloNanos;
+
+    private final BlockingQueue<Object> fila;
+    private final Thread thread;
+    private volatile boolean encerrado;
+
+    // lote que falhou, na ordem original; só mexido sob 'gravando' (a thread e, depois do
+    // encerramento, quem chamou)
+    private final Object gravando = new Object();
+    private Map<ChaveLote, Registro> falhados = new LinkedHashMap<>();
+    private volatile int naoGravados;
+    private volatile long esperaMs; // espera antes da próxima tentativa; 0 sem falha pendente
+
+    /**
+     * @param destino grava o lote; deve segurar a mesma trava do snapshot, para um append não
+     *                cair entre a gravação do snapshot e o truncamento do journal
+     * @param depoisDeGravar chamado na thread do gravador após cada lote (ex.: compactação)
+     */
+    GravadorAssincrono(Destino destino, Runnable depoisDeGravar, int capacidade, long intervaloMs) {
+        this.destino = destino;
+        this.depoisDeGravar = depoisDeGravar;
+        this.intervaloNanos = TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+
+        thread = new Thread(this::executar, "gravador-fechamentos");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void registrar(Registro r) {
+        enfileirar(r);
+    }
+
+    /**
+     * Grava o arquivo inteiro (temporário + rename), ou apaga se {@code linhas} for null;
+     * pedidos repetidos do mesmo caminho valem o último.
+     */
+    void arquivo(Path path, List<String> linhas) {
+        enfileirar(new Arquivo(path, linhas));
+    }
+
+    /** Tarefas na fila, ainda não gravadas. */
+    int pendentes() {
+        return fila.size();
+    }
+
+    /** Registros que o destino recusou e ainda esperam nova tentativa. */
+    int naoGravados() {
+        return naoGravados;
+    }
+
+    /**
+     * Bloqueia até tudo o que foi enfileirado antes desta chamada ter passado pelo destino (o que
+     * estava pendente de falha anterior é tentado de novo). false se algum registro ainda não foi gravado.
+     */
+    boolean aguardar() {
+        if (encerrado) return naoGravados == 0;
+        Marca m = new Marca(new CountDownLatch(1));
+        enfileirar(m);
+        try {
+            m.feito().await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return naoGravados == 0;
+    }
+
+    /**
+     * Grava o que estiver pendente e termina a thread; o que tinha falhado ganha mais algumas
+     * tentativas. false se sobrou registro sem gravar. Pode ser chamado mais de uma vez.
+     */
+    synchronized boolean encerrar() {
+        if (!encerrado) {
+            enfileirar(FIM);
+            encerrado = true;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (int i = 0; naoGravados > 0 && i < TENTATIVAS_FINAIS && !Thread.currentThread().isInterrupted(); i++) {
+            try {
+                Thread.sleep(esperaMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processar(List.of());
+        }
+        if (naoGravados > 0) {
+            System.err.println(naoGravados + " registro(s) do journal não foram gravados.");
+        }
+        return naoGravados == 0;
+    }
+
+    private void enfileirar(Object tarefa) {
+        if (encerrado) {
+            // depois do encerramento (ex.: gancho de shutdown) grava direto
+            processar(List.of(tarefa));
+            return;
+        }
+        try {
+            fila.put(tarefa);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            processar(List.of(tarefa));
+        }
+    }
+
+    private void executar() {
+        List<Object> lote = new ArrayList<>();
+        boolean fim = false;
+
+        while (!fim) {
+            try {
+                if (naoGravados == 0) {
+                    lote.add(fila.take());
+                } else {
+                    // lote anterior falhou: tenta de novo depois da espera, mesmo sem tarefa nova
+                    Object t = fila.poll(esperaMs, TimeUnit.MILLISECONDS);
+                    if (t != null) lote.add(t);
+                }
+
+                // group commit: espera o intervalo juntando o que chegar, a não ser que alguém já
+                // esteja bloqueado em aguardar() (ou no encerramento) esperando este lote
+                long limite = System.nanoTime() + intervaloNanos;
+                long resta;
+                while (!lote.isEmpty() && (resta = limite - System.nanoTime()) > 0
+                        && !esperado(lote.get(lote.size() - 1))) {
+                    Object t = fila.poll(resta, TimeUnit.NANOSECONDS);
+                    if (t == null) break;
+                    lote.add(t);
+                }
+                fila.drainTo(lote);
+            } catch (InterruptedException e) {
+                fim = true;
+            }
+
+            fim |= lote.remove(FIM);
+            try {
+                processar(lote);
+            } catch (Throwable t) {
+                // um lote com erro inesperado não pode matar a thread: quem espera em aguardar()
+                // ficaria bloqueado para sempre
+                Metricas.incrementar("erros.io");
+                System.err.println("Erro inesperado no gravador: " + t);
+            }
+            lote.clear();
+        }
+    }
+
+    private static boolean esperado(Object tarefa) {
+        return tarefa == FIM || tarefa instanceof Marca;
+    }
+
+    private void processar(List<Object> lote) {
+        synchronized (gravando) {
+            processarLote(lote);
+        }
+    }
+
+    private void processarLote(List<Object> lote) {
+        Map<ChaveLote, Registro> registros = falhados; // o que falhou antes vem primeiro
+        falhados = new LinkedHashMap<>();
+        Map<Path, List<String>> arquivos = new LinkedHashMap<>();
+        List<Marca> marcas = new ArrayList<>();
+
+        for (Object t : lote) {
+            if (t instanceof Registro r) {
+                coalescer(registros, r);
+            } else if (t instanceof Arquivo a) {
+                arquivos.put(a.path(), a.linhas());
+            } else if (t instanceof Marca m) {
+                marcas.add(m);
+            }
+        }
+
+        try {
+            boolean gravou = false;
+            if (!registros.isEmpty()) {
+                Metricas.incrementar("gravador.lotes");
+                Metricas.contador("gravador.registros").add(registros.size());
+                try {
+                    destino.gravar(registros.values());
+                    gravou = true;
+                    naoGravados = 0;
+                    esperaMs = 0;
+                } catch (IOException | RuntimeException e) {
+                    // ex.: disco cheio, ou OverlappingFileLockException com dois repositórios na
+                    // mesma pasta; o lote fica para a próxima tentativa
+                    Metricas.incrementar("erros.io");
+                    falhados = registros;
+                    naoGravados = registros.size();
+                    esperaMs = Math.min(Math.max(ESPERA_MIN_MS, esperaMs * 2), ESPERA_MAX_MS);
+                    System.err.println("Erro ao gravar journal (" + registros.size()
+                            + " registro(s), nova tentativa em " + esperaMs + " ms): " + e);
+                }
+            }
+            for (Map.Entry<Path, List<String>> e : arquivos.entrySet()) {
+                escreverArquivo(e.getKey(), e.getValue());
+            }
+            if (gravou) depoisDeGravar.run();
+        } finally {
+            for (Marca m : marcas) m.feito().countDown();
+        }
+    }
+
+    // várias operações do mesmo id e mês no lote viram uma só; a que sobra vai para o fim do lote,
+    // para a ordem entre meses diferentes (fechamento que mudou de mês) continuar valendo
+    private static void coalescer(Map<ChaveLote, Registro> registros, Registro r) {
+        ChaveLote k = new ChaveLote(r.id(), r.mes());
+        Registro anterior = registros.remove(k);
+        if (anterior == null) {
+            registros.put(k, r);
+        } else if (anterior.op() == Operacao.CRIAR && r.op() == Operacao.EXCLUIR) {
+            // nunca chegou ao disco
+        } else if (anterior.op() == Operacao.CRIAR) {
+            registros.put(k, new Registro(Operacao.CRIAR, r.id(), r.mes(), r.bloco()));
+        } else {
+            registros.put(k, r);
+        }
+    }
+
+    @SuppressWarnings("try")
+    private static void escreverArquivo(Path p, List<String> linhas) {
+        if (linhas == null) {
+            try {
+                Files.deleteIfExists(p);
+            } catch (IOException | RuntimeException e) {
+                Metricas.incrementar("erros.io");
+                System.err.println("Erro ao apagar arquivo individual: " + e.getMessage());
+            }
+            return;
+        }
+        Path tmp = p.resolveSibling(p.getFileName() + ".tmp");
+        try (Metricas.Amostra a = Metricas.medir("arquivo.individual")) {
+            Files.createDirectories(p.getParent());
+
+            // temporário + rename: uma queda no meio da escrita não apaga o arquivo anterior
+            try (BufferedWriter w = Files.newBufferedWriter(
+                    tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                for (String ln : linhas) {
+                    w.write(ln);
+                    w.newLine();
+                }
+            }
+            Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException | RuntimeException e) {
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao gerar arquivo individual: " + e.getMessage());
+        }
+    }
+}
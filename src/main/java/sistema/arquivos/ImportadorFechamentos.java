@@ -0,0 +1,141 @@
+package main.java.sistema.arquivos;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+
+import main.java.sistema.objetos.Fechamento;
+
+/**
+ * Importa em paralelo os arquivos de fechamento de uma pasta (e subpastas):
+ * .txt em blocos (inclusive os fechamento_dd-MM-yyyy_turnoN.txt), .json e .bin.
+ * Deduplica por (data, turno) e devolve os novos para serem gravados num único lote.
+ */
+public class ImportadorFechamentos {
+
+    public record Erro(Path arquivo, String mensagem) {}
+
+    public record Resultado(List<Fechamento> novos, int arquivos, int lidos, int duplicados,
+                            List<Erro> erros, long nanos) {
+
+        public double arquivosPorSegundo() {
+            return nanos == 0 ? 0 : arquivos * 1e9 / nanos;
+        }
+
+        public double fechamentosPorSegundo() {
+            return nanos == 0 ? 0 : lidos * 1e9 / nanos;
+        }
+    }
+
+    private record Chave(LocalDate data, int turno) {}
+
+    private record Lido(Path arquivo, List<Fechamento> fechamentos, List<Erro> erros) {}
+
+    private final int paralelismo;
+
+    public ImportadorFechamentos() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ImportadorFechamentos(int paralelismo) {
+        this.paralelismo = paralelismo;
+    }
+
+    /**
+     * Lê todos os arquivos sob {@code raiz}. Fechamentos cuja (data, turno) já existe na base
+     * ({@code existe}) ou que se repetem entre os arquivos são contados como duplicados; vale o
+     * primeiro na ordem dos caminhos.
+     */
+    public Resultado importar(Path raiz, BiPredicate<LocalDate, Integer> existe) throws IOException {
+        long inicio = System.nanoTime();
+
+        List<Path> arquivos;
+        try (Stream<Path> s = Files.walk(raiz)) {
+            arquivos = s.filter(Files::isRegularFile)
+                    .filter(ImportadorFechamentos::suportado)
+                    .sorted()
+                    .toList();
+        }
+
+        List<Lido> lidos;
+        ForkJoinPool pool = new ForkJoinPool(paralelismo);
+        try {
+            lidos = pool.submit(() -> arquivos.parallelStream().map(this::ler).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importação interrompida.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Falha na importação: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Fechamento> novos = new ArrayList<>();
+        List<Erro> erros = new ArrayList<>();
+        Set<Chave> vistos = new HashSet<>();
+        int total = 0;
+        int duplicados = 0;
+
+        for (Lido l : lidos) {
+            erros.addAll(l.erros());
+            for (Fechamento f : l.fechamentos()) {
+                total++;
+                if (f.getData() == null) {
+                    erros.add(new Erro(l.arquivo(), "Fechamento sem data."));
+                    continue;
+                }
+                Chave c = new Chave(f.getData(), f.getTurno());
+                if (existe.test(c.data(), c.turno()) || !vistos.add(c)) {
+                    duplicados++;
+                    continue;
+                }
+                f.setId(0); // ganha identidade nova na base
+                novos.add(f);
+            }
+        }
+
+        return new Resultado(novos, arquivos.size(), total, duplicados, erros, System.nanoTime() - inicio);
+    }
+
+    private Lido ler(Path arquivo) {
+        List<Fechamento> out = new ArrayList<>();
+        List<Erro> erros = new ArrayList<>();
+        try {
+            if (extensao(arquivo).equals("txt")) {
+                try (LeitorMapeado leitor = new LeitorMapeado(arquivo, msg -> erros.add(new Erro(arquivo, msg)))) {
+                    while (leitor.hasNext()) out.add(leitor.next());
+                }
+            } else {
+                FormatoArquivo.porNome(extensao(arquivo)).ler(arquivo, out::add);
+            }
+        } catch (Exception e) {
+            erros.add(new Erro(arquivo, e.getMessage()));
+        }
+        return new Lido(arquivo, out, erros);
+    }
+
+    private static boolean suportado(Path p) {
+        String nome = p.getFileName().toString();
+        if (nome.startsWith("fechamentos_journal") || nome.endsWith(".tmp")) return false;
+        return switch (extensao(p)) {
+            case "txt", "json", "bin" -> true;
+            default -> false;
+        };
+    }
+
+    private static String extensao(Path p) {
+        String nome = p.getFileName().toString();
+        int ponto = nome.lastIndexOf('.');
+        return ponto < 0 ? "" : nome.substring(ponto + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,202 @@
+package main.java.sistema.arquivos;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import main.java.sistema.objetos.Valor;
+
+/**
+ * Leitor JSON incremental (pull), sem árvore intermediária nem reflexão.
+ * Quem chama percorre a estrutura com esperar('{'), temProximo(), nome(), texto(), numero() e
+ * pular(); as vírgulas entre elementos são conferidas por temProximo() e os dois-pontos por nome().
+ */
+public class JsonLeitor implements Closeable {
+
+    private final Reader in;
+    private final char[] buf = new char[8192];
+    private int pos;
+    private int lim;
+    private long lidos; // posição absoluta, para mensagens de erro
+
+    // por nível de objeto/array aberto: true até o primeiro elemento (sem vírgula antes)
+    private boolean[] primeiro = new boolean[16];
+    private int nivel;
+
+    private final StringBuilder sb = new StringBuilder(32);
+
+    public JsonLeitor(Reader in) {
+        this.in = in;
+    }
+
+    /** Próximo caractere significativo sem consumir; -1 no fim. */
+    public int peek() throws IOException {
+        while (true) {
+            if (pos == lim && !encher()) return -1;
+            char c = buf[pos];
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                pos++;
+                continue;
+            }
+            return c;
+        }
+    }
+
+    public void esperar(char c) throws IOException {
+        int p = peek();
+        if (p != c) throw erro("esperado '" + c + "' mas veio " + descrever(p));
+        pos++;
+        if (c == '{' || c == '[') {
+            if (nivel == primeiro.length) primeiro = Arrays.copyOf(primeiro, nivel * 2);
+            primeiro[nivel++] = true;
+        } else if ((c == '}' || c == ']') && nivel > 0) {
+            nivel--;
+        }
+    }
+
+    /** True enquanto o objeto/array corrente tiver mais elementos; consome a vírgula entre eles. */
+    public boolean temProximo() throws IOException {
+        int p = peek();
+        if (p == '}' || p == ']' || p == -1) return false;
+        if (nivel > 0 && !primeiro[nivel - 1]) {
+            if (p != ',') throw erro("esperado ',' mas veio " + descrever(p));
+            pos++;
+            p = peek();
+            if (p == '}' || p == ']' || p == -1) throw erro("valor esperado depois de ',' mas veio " + descrever(p));
+        }
+        if (nivel > 0) primeiro[nivel - 1] = false;
+        return true;
+    }
+
+    /** Nome do campo, já consumindo os dois-pontos. */
+    public String nome() throws IOException {
+        String nome = texto();
+        esperar(':');
+        return nome;
+    }
+
+    /** Consome "null" se for o próximo valor. */
+    public boolean nulo() throws IOException {
+        if (peek() != 'n') return false;
+        literal("null");
+        return true;
+    }
+
+    public String texto() throws IOException {
+        esperar('"');
+        sb.setLength(0);
+        while (true) {
+            char c = ler();
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char e = ler();
+            switch (e) {
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    int v = 0;
+                    for (int i = 0; i < 4; i++) {
+                        char h = ler();
+                        int d = h < 128 ? Character.digit(h, 16) : -1;
+                        if (d < 0) throw erro("escape \\u com dígito hexadecimal inválido");
+                        v = (v << 4) | d;
+                    }
+                    sb.append((char) v);
+                }
+                case '"', '\\', '/' -> sb.append(e);
+                default -> throw erro("escape inválido '\\" + e + "'");
+            }
+        }
+    }
+
+    public double numero() throws IOException {
+        return Double.parseDouble(tokenNumerico().toString());
+    }
+
+    /** Número lido direto para centavos, sem passar por double. */
+    public Valor valor() throws IOException {
+        return Valor.parse(tokenNumerico());
+    }
+
+    public long inteiro() throws IOException {
+        CharSequence t = tokenNumerico();
+        return Long.parseLong(t, 0, t.length(), 10);
+    }
+
+    /** Descarta o próximo valor (campo desconhecido). */
+    public void pular() throws IOException {
+        int p = peek();
+        switch (p) {
+            case '"' -> texto();
+            case '{', '[' -> {
+                esperar((char) p);
+                while (temProximo()) {
+                    if (p == '{') nome();
+                    pular();
+                }
+                esperar(p == '{' ? '}' : ']');
+            }
+            case 't' -> literal("true");
+            case 'f' -> literal("false");
+            case 'n' -> literal("null");
+            default -> tokenNumerico();
+        }
+    }
+
+    // devolve o buffer reutilizado; válido só até a próxima leitura
+    private CharSequence tokenNumerico() throws IOException {
+        peek();
+        sb.setLength(0);
+        while (pos < lim || encher()) {
+            char c = buf[pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                sb.append(c);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (sb.length() == 0) throw erro("número esperado");
+        return sb;
+    }
+
+    private void literal(String s) throws IOException {
+        peek();
+        for (int i = 0; i < s.length(); i++) {
+            if (ler() != s.charAt(i)) throw erro("literal inválido, esperado " + s);
+        }
+    }
+
+    private char ler() throws IOException {
+        if (pos == lim && !encher()) throw erro("fim inesperado");
+        return buf[pos++];
+    }
+
+    private boolean encher() throws IOException {
+        lidos += lim;
+        int n = in.read(buf, 0, buf.length);
+        pos = 0;
+        lim = Math.max(n, 0);
+        return n > 0;
+    }
+
+    private IOException erro(String msg) {
+        return new IOException("JSON inválido na posição " + (lidos + pos) + ": " + msg);
+    }
+
+    private static String descrever(int c) {
+        return c == -1 ? "fim do arquivo" : "'" + (char) c + "'";
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,95 @@
+package main.java.sistema.arquivos;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.BiConsumer;
+
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.MaquinaCartao;
+import main.java.sistema.objetos.Valor;
+
+/**
+ * Lançamentos em CSV para o modo lote: um fechamento por linha, com os valores como digitados
+ * no console (máquinas antes da taxa).
+ *
+ * <pre>
+ * responsavel;data;turno;relatorioCredito;relatorioDebito;relatorioPix;entradaDinheiro;relatorioDinheiro;trocoInicial;credito;debito;pix[;credito;debito;pix...]
+ * </pre>
+ *
+ * Cada trinca final é uma máquina. Data em AAAA-MM-DD ou D/M/AAAA; valores com ponto ou vírgula.
+ * O separador é ';', ou ',' se a primeira linha não tiver ';' (aí os valores usam ponto).
+ * Linha de cabeçalho (começando por "responsavel"), linhas vazias e '#' são ignoradas.
+ */
+public final class LancamentosCsv {
+
+    private static final int FIXAS = 9;
+    private static final DateTimeFormatter DATA_BR = DateTimeFormatter.ofPattern("d/M/yyyy");
+
+    private LancamentosCsv() {}
+
+    /** Entrega cada linha válida a {@code destino(numeroDaLinha, fechamento)}; as inválidas a {@code erro(numeroDaLinha, mensagem)}. */
+    public static void ler(BufferedReader in, BiConsumer<Integer, Fechamento> destino, BiConsumer<Integer, String> erro)
+            throws IOException {
+        String sep = null;
+        String ln;
+        int n = 0;
+        while ((ln = in.readLine()) != null) {
+            n++;
+            ln = ln.trim();
+            if (ln.isEmpty() || ln.startsWith("#")) continue;
+            if (sep == null) sep = ln.indexOf(';') >= 0 ? ";" : ",";
+            if (ln.regionMatches(true, 0, "responsavel", 0, 11)) continue;
+
+            Fechamento f;
+            try {
+                f = linha(ln.split(sep, -1));
+            } catch (RuntimeException e) {
+                erro.accept(n, e.getMessage());
+                continue;
+            }
+            destino.accept(n, f);
+        }
+    }
+
+    private static Fechamento linha(String[] c) {
+        if (c.length < FIXAS || (c.length - FIXAS) % 3 != 0) {
+            throw new IllegalArgumentException("esperadas " + FIXAS + " colunas + 3 por máquina, vieram " + c.length + ".");
+        }
+        Fechamento f = new Fechamento(c[0].trim(), data(c[1].trim()), turno(c[2].trim()));
+        f.setRelatorioCredito(valor(c[3]));
+        f.setRelatorioDebito(valor(c[4]));
+        f.setRelatorioPix(valor(c[5]));
+        f.setEntradaDinheiro(valor(c[6]));
+        f.setRelatorioDinheiro(valor(c[7]));
+        f.setTrocoInicial(valor(c[8]));
+        for (int i = FIXAS; i < c.length; i += 3) {
+            f.addMaquina(new MaquinaCartao(valor(c[i]), valor(c[i + 1]), valor(c[i + 2])));
+        }
+        return f;
+    }
+
+    private static LocalDate data(String s) {
+        try {
+            return s.indexOf('/') >= 0 ? LocalDate.parse(s, DATA_BR) : LocalDate.parse(s);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("data inválida: " + s);
+        }
+    }
+
+    private static int turno(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("turno inválido: " + s);
+        }
+    }
+
+    // célula em branco na planilha = zero
+    private static Valor valor(String s) {
+        s = s.trim();
+        return s.isEmpty() ? Valor.ZERO : Valor.parse(s);
+    }
+}
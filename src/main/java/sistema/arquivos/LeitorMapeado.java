@@ -0,0 +1,143 @@
+package main.java.sistema.arquivos;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import main.java.sistema.metricas.Metricas;
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.ParserBloco;
+
+/**
+ * Lê o arquivo de blocos mapeado em memória, entregando um fechamento por vez.
+ * O arquivo é mapeado em janelas de no máximo 2 GB; cada janela termina no último "Fim" completo
+ * e o bloco que ficou pela metade é remapeado no início da janela seguinte. Só a janela corrente
+ * fica referenciada; os mapeamentos anteriores são liberados pelo GC. Falha ao mapear uma janela
+ * depois da primeira sai do iterador como {@link UncheckedIOException}.
+ */
+public class LeitorMapeado implements Iterator<Fechamento>, Closeable {
+
+    private static final long JANELA = Integer.MAX_VALUE;
+
+    private final FileChannel canal;
+    private final Consumer<String> erros;
+    private final long tamanho;
+    private final long janela;
+    private long posicao;     // início da próxima janela no arquivo
+    private ParserBloco parser;
+    private Fechamento proximo;
+    private boolean fechado;
+
+    public LeitorMapeado(Path path) throws IOException {
+        this(path, System.err::println);
+    }
+
+    /** @param erros recebe a mensagem de cada bloco que não pôde ser lido */
+    public LeitorMapeado(Path path, Consumer<String> erros) throws IOException {
+        this(path, erros, JANELA);
+    }
+
+    // janela menor só para verificação
+    LeitorMapeado(Path path, Consumer<String> erros, long janela) throws IOException {
+        this.erros = erros;
+        this.janela = janela;
+        canal = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            tamanho = canal.size();
+            mapearJanela();
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (proximo == null) proximo = avancar();
+        return proximo != null;
+    }
+
+    @Override
+    public Fechamento next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Fechamento f = proximo;
+        proximo = null;
+        return f;
+    }
+
+    // o parser lê direto do mapeamento; um bloco inválido é reportado e o parser segue no próximo
+    private Fechamento avancar() {
+        while (!fechado) {
+            if (parser.fim()) {
+                try {
+                    if (!mapearJanela()) return null;
+                } catch (IOException e) {
+                    Metricas.incrementar("erros.io");
+                    throw new UncheckedIOException(e);
+                }
+                continue;
+            }
+            int linha = parser.getLinha();
+            try {
+                return parser.proximo();
+            } catch (IllegalArgumentException e) {
+                erros.accept("Erro ao carregar bloco: " + e.getMessage());
+                if (parser.getLinha() == linha) parser.lerLinha(); // garante progresso
+            }
+        }
+        return null;
+    }
+
+    // ----------------------
+    // JANELAS
+    // ----------------------
+    // Mapeia a partir de 'posicao'; fora a última, a janela é cortada logo depois da sua última
+    // linha "Fim". false quando o arquivo acabou.
+    private boolean mapearJanela() throws IOException {
+        if (posicao >= tamanho && parser != null) return false;
+        long n = Math.min(janela, tamanho - posicao);
+        MappedByteBuffer buf = canal.map(FileChannel.MapMode.READ_ONLY, posicao, n);
+        if (posicao + n < tamanho) {
+            int corte = depoisDoUltimoFim(buf);
+            if (corte < 0) throw new IOException("Bloco maior que a janela de mapeamento na posição " + posicao);
+            buf.limit(corte);
+        }
+        parser = new ParserBloco(buf, parser == null ? 1 : parser.getLinha());
+        posicao += buf.limit();
+        return true;
+    }
+
+    // posição logo depois do '\n' da última linha "Fim" (com espaços nas pontas), ou -1
+    private static int depoisDoUltimoFim(MappedByteBuffer buf) {
+        int fimLinha = buf.limit();
+        while (fimLinha > 0 && buf.get(fimLinha - 1) != '\n') fimLinha--; // linha incompleta fica de fora
+        while (fimLinha > 0) {
+            int ini = fimLinha - 1;
+            while (ini > 0 && buf.get(ini - 1) != '\n') ini--;
+            int a = ini, b = fimLinha - 1;
+            while (a < b && espaco(buf.get(a))) a++;
+            while (b > a && espaco(buf.get(b - 1))) b--;
+            if (b - a == 3 && buf.get(a) == 'F' && buf.get(a + 1) == 'i' && buf.get(a + 2) == 'm') return fimLinha;
+            fimLinha = ini;
+        }
+        return -1;
+    }
+
+    private static boolean espaco(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    @Override
+    public void close() throws IOException {
+        fechado = true;
+        parser = null;
+        canal.close();
+    }
+}
@@ -0,0 +1,232 @@
+package main.java.sistema.arquivos;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import main.java.sistema.objetos.Fechamento;
+
+/**
+ * Base dividida em um segmento por mês (particoes/AAAA-MM.ext) mais um manifesto
+ * (particoes/manifesto.txt) com quantidade, tamanho e maior e menor id de cada mês (a faixa de
+ * ids diz em quais segmentos procurar um id sem abrir os outros).
+ * Fechamentos sem data ficam no segmento 0000-01.
+ *
+ * Só o manifesto é lido ao abrir; cada segmento é lido quando pedido.
+ * Segmentos e manifesto são gravados em temporário e trocados com rename atômico.
+ * Com outro processo na mesma pasta, {@link #recarregarSeMudou()} (chamado sob a trava) relê o
+ * manifesto que ele regravou, para não sobrescrevê-lo com uma cópia velha.
+ */
+class ParticoesMensais {
+
+    static final YearMonth SEM_DATA = YearMonth.of(0, 1);
+
+    // menorId 0: desconhecido (manifesto gravado antes de ter a coluna)
+    record Info(int quantidade, long bytes, long maiorId, long menorId) {}
+
+    private final Path pasta;
+    private final FormatoArquivo formato;
+    private final Path manifesto;
+    private final TreeMap<YearMonth, Info> meses = new TreeMap<>();
+    private List<Object> lido; // identidade do manifesto lido/gravado por último (ver versaoManifesto)
+
+    ParticoesMensais(Path pasta, FormatoArquivo formato) {
+        this.pasta = pasta;
+        this.formato = formato;
+        this.manifesto = pasta.resolve("manifesto.txt");
+        lerManifesto();
+    }
+
+    static YearMonth mes(Fechamento f) {
+        return f.getData() == null ? SEM_DATA : YearMonth.from(f.getData());
+    }
+
+    boolean existe() {
+        return Files.exists(manifesto);
+    }
+
+    /** Relê o manifesto se outro processo o regravou depois da última leitura/gravação deste; true se releu. */
+    boolean recarregarSeMudou() {
+        List<Object> atual = versaoManifesto();
+        if (atual == null || atual.equals(lido)) return false;
+        meses.clear();
+        lerManifesto();
+        return true;
+    }
+
+    // o manifesto é sempre trocado por rename, então o fileKey muda a cada gravação;
+    // data e tamanho cobrem sistemas sem fileKey
+    private List<Object> versaoManifesto() {
+        try {
+            BasicFileAttributes a = Files.readAttributes(manifesto, BasicFileAttributes.class);
+            return Arrays.asList(a.fileKey(), a.lastModifiedTime(), a.size());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    NavigableSet<YearMonth> meses() {
+        return meses.navigableKeySet();
+    }
+
+    long maiorId() {
+        long max = 0;
+        for (Info i : meses.values()) max = Math.max(max, i.maiorId());
+        return max;
+    }
+
+    int total() {
+        int n = 0;
+        for (Info i : meses.values()) n += i.quantidade();
+        return n;
+    }
+
+    long bytes() {
+        long n = 0;
+        for (Info i : meses.values()) n += i.bytes();
+        return n;
+    }
+
+    Path getPasta() {
+        return pasta;
+    }
+
+    /** Meses cujo segmento pode ter o id, pela faixa de ids do manifesto. */
+    List<YearMonth> mesesComId(long id) {
+        List<YearMonth> out = new ArrayList<>();
+        for (Map.Entry<YearMonth, Info> e : meses.entrySet()) {
+            Info i = e.getValue();
+            if (id <= i.maiorId() && id >= i.menorId()) out.add(e.getKey());
+        }
+        return out;
+    }
+
+    /** Preenche o menor id dos meses de um manifesto antigo lendo esses segmentos; true se mudou algo. */
+    boolean completarManifesto() throws IOException {
+        boolean mudou = false;
+        for (Map.Entry<YearMonth, Info> e : meses.entrySet()) {
+            Info i = e.getValue();
+            if (i.menorId() != 0) continue;
+            long min = Long.MAX_VALUE;
+            for (long id : ler(e.getKey()).keySet()) min = Math.min(min, id);
+            if (min == Long.MAX_VALUE || min == 0) continue;
+            e.setValue(new Info(i.quantidade(), i.bytes(), i.maiorId(), min));
+            mudou = true;
+        }
+        return mudou;
+    }
+
+    /** Fechamentos do segmento do mês (id -> fechamento); vazio se o mês não tem segmento. */
+    Map<Long, Fechamento> ler(YearMonth mes) throws IOException {
+        Map<Long, Fechamento> out = new LinkedHashMap<>();
+        Path p = segmento(mes);
+        if (Files.exists(p)) formato.ler(p, f -> out.put(f.getId(), f));
+        return out;
+    }
+
+    /** Regrava o segmento do mês (apaga se a lista for vazia). O manifesto só muda em {@link #salvarManifesto()}. */
+    void escrever(YearMonth mes, Collection<Fechamento> lista) throws IOException {
+        Path p = segmento(mes);
+        if (lista.isEmpty()) {
+            Files.deleteIfExists(p);
+            meses.remove(mes);
+            return;
+        }
+
+        Files.createDirectories(pasta);
+        Path tmp = p.resolveSibling(p.getFileName() + ".tmp");
+        formato.escrever(tmp, lista);
+        Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        meses.put(mes, info(lista.size(), Files.size(p), lista.stream().mapToLong(Fechamento::getId)));
+    }
+
+    void salvarManifesto() throws IOException {
+        Files.createDirectories(pasta);
+        Path tmp = manifesto.resolveSibling("manifesto.txt.tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write("# mes;quantidade;bytes;maior id;menor id");
+            w.newLine();
+            for (Map.Entry<YearMonth, Info> e : meses.entrySet()) {
+                Info i = e.getValue();
+                w.write(e.getKey() + ";" + i.quantidade() + ";" + i.bytes() + ";" + i.maiorId() + ";" + i.menorId());
+                w.newLine();
+            }
+        }
+        Files.move(tmp, manifesto, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lido = versaoManifesto();
+    }
+
+    private void lerManifesto() {
+        if (!Files.exists(manifesto)) {
+            reconstruir();
+            return;
+        }
+        try {
+            lido = versaoManifesto();
+            for (String ln : Files.readAllLines(manifesto, StandardCharsets.UTF_8)) {
+                ln = ln.trim();
+                if (ln.isEmpty() || ln.startsWith("#")) continue;
+                String[] c = ln.split(";");
+                try {
+                    meses.put(YearMonth.parse(c[0]), new Info(Integer.parseInt(c[1]), Long.parseLong(c[2]),
+                            Long.parseLong(c[3]), c.length > 4 ? Long.parseLong(c[4]) : 0));
+                } catch (RuntimeException e) {
+                    System.err.println("Linha inválida no manifesto: " + ln);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler manifesto: " + e.getMessage());
+        }
+    }
+
+    // manifesto perdido com segmentos na pasta: refaz lendo cada segmento
+    private void reconstruir() {
+        if (!Files.isDirectory(pasta)) return;
+        String sufixo = "." + formato.extensao();
+        try (Stream<Path> s = Files.list(pasta)) {
+            for (Path p : s.filter(x -> x.getFileName().toString().endsWith(sufixo)).toList()) {
+                String nome = p.getFileName().toString();
+                YearMonth mes;
+                try {
+                    mes = YearMonth.parse(nome.substring(0, nome.length() - sufixo.length()));
+                } catch (RuntimeException e) {
+                    continue;
+                }
+                Map<Long, Fechamento> m = ler(mes);
+                meses.put(mes, info(m.size(), Files.size(p), m.keySet().stream().mapToLong(Long::longValue)));
+            }
+            if (!meses.isEmpty()) {
+                System.err.println("Manifesto ausente: refeito a partir de " + meses.size() + " segmento(s).");
+                salvarManifesto();
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao refazer manifesto: " + e.getMessage());
+        }
+    }
+
+    private static Info info(int quantidade, long bytes, LongStream ids) {
+        LongSummaryStatistics e = ids.summaryStatistics();
+        return new Info(quantidade, bytes, Math.max(e.getMax(), 0), e.getCount() == 0 ? 0 : e.getMin());
+    }
+
+    private Path segmento(YearMonth mes) {
+        return pasta.resolve(String.format("%04d-%02d.%s", mes.getYear(), mes.getMonthValue(), formato.extensao()));
+    }
+}
@@ -0,0 +1,795 @@
+package main.java.sistema.arquivos;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+import main.java.sistema.arquivos.FechamentoJournal.Evento;
+import main.java.sistema.arquivos.FechamentoJournal.Operacao;
+import main.java.sistema.arquivos.FechamentoJournal.Registro;
+import main.java.sistema.metricas.Metricas;
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.FechamentoIndice;
+import main.java.sistema.objetos.FiltroFechamentos;
+import main.java.sistema.objetos.PaginaFechamentos;
+
+/**
+ * Persistência dos fechamentos de uma pasta: segmentos mensais (particoes/, ver
+ * {@link ParticoesMensais}) + journal (fechamentos_journal.txt) + compactação em segundo plano +
+ * gravador assíncrono. Uma base antiga num arquivo único (fechamentos_db.*) é dividida em
+ * partições na primeira abertura.
+ *
+ * Um mês é lido sob demanda ({@link #carregarMes}): segmento do mês + registros do journal que
+ * caem nele. A compactação regrava só os meses que aparecem no journal.
+ *
+ * Dentro da JVM as operações de arquivo são serializadas por um monitor por pasta (compartilhado
+ * entre instâncias); entre processos, por um FileChannel.lock no arquivo ".trava" da pasta, então
+ * dois processos apontando para a mesma pasta não intercalam registros nem truncam o journal um do
+ * outro. O próprio ".trava" guarda o próximo id (8 bytes), reservado sob a trava: ids atribuídos
+ * por outro processo contam mesmo antes de chegarem ao journal.
+ *
+ * Os registros lidos do journal (e do journal em compactação) ficam em memória, pelo fileKey e pela
+ * primeira linha do arquivo: como ele só cresce por append e a rotação é um rename, cada leitura só
+ * processa o que foi acrescentado desde a anterior. Arquivo apagado, encolhido ou recriado (por
+ * outro processo) é lido de novo do início.
+ *
+ * Para conferir data/turno de um fechamento novo, cada mês já conferido guarda em memória data/turno
+ * -> id; os registros novos do journal são aplicados a ela, então a conferência sob a trava custa o
+ * que foi acrescentado ao journal, não o journal inteiro. Se outro processo regravou partições, os
+ * meses são conferidos de novo.
+ */
+public class RepositorioTerminal {
+
+    private final FormatoArquivo formato;
+    private final ParticoesMensais particoes;
+    private final Path legadoPath;
+    private final Path journalPath;
+    private final Path compactandoPath;
+    private final Path travaPath;
+    private final int limiteCompactacao;
+
+    // um monitor por arquivo de trava: duas instâncias na mesma pasta não disputam o FileLock
+    // (que na mesma JVM daria OverlappingFileLockException)
+    private static final Map<Path, Object> TRAVAS = new ConcurrentHashMap<>();
+
+    private final FechamentoJournal journal;
+    private final Object snapshotLock;
+    private FileChannel trava; // canal do ".trava", só enquanto travado() executa
+    private final AtomicLong proximoId = new AtomicLong(1); // menor id livre visto na abertura
+    private final AtomicLong versao = new AtomicLong(); // muda a cada gravação pedida a este repositório
+    private final Map<YearMonth, Long> versaoMes = new ConcurrentHashMap<>(); // versão da última gravação no mês
+    private volatile long versaoTodos; // saveAll: todos os meses mudaram
+    // só sob travado(): registros lidos de cada arquivo de journal, e data/turno ocupados por mês
+    private final Map<Object, EventosLidos> eventosLidos = new HashMap<>();
+    private EventosLidos lidosCompactando;
+    private EventosLidos lidosJournal;
+    private final Map<YearMonth, Map<ChaveDia, Long>> ocupacao = new HashMap<>();
+    private final Map<Long, ChaveDia> diaDoId = new HashMap<>();
+    private final GravadorAssincrono gravador;
+    private final ExecutorService compactador;
+    private final Thread gancho;
+    private boolean aberto;
+
+    private interface AcaoIO {
+        void executar() throws IOException;
+    }
+
+    // registros de um arquivo de journal já lidos, até a posição 'lidos'
+    private static final class EventosLidos {
+        final List<Evento> eventos = new ArrayList<>();
+        long lidos;
+    }
+
+    private static final int PRIMEIRA_LINHA = 64; // bytes lidos para identificar o arquivo
+
+    @SuppressWarnings("try")
+    public RepositorioTerminal(Path pasta, FormatoArquivo formato) {
+        this.formato = formato;
+        this.particoes = new ParticoesMensais(pasta.resolve("particoes"), formato);
+        this.legadoPath = pasta.resolve("fechamentos_db." + formato.extensao());
+        this.journalPath = pasta.resolve("fechamentos_journal.txt");
+        this.compactandoPath = pasta.resolve("fechamentos_journal.compactando.txt");
+        this.travaPath = pasta.resolve(".trava");
+        this.snapshotLock = TRAVAS.computeIfAbsent(travaPath.toAbsolutePath().normalize(), k -> new Object());
+        this.limiteCompactacao = Integer.getInteger("aurelius.journal.limite", 200);
+
+        journal = new FechamentoJournal(journalPath, Boolean.getBoolean("aurelius.journal.fsync"));
+        gravador = new GravadorAssincrono(
+                regs -> {
+                    try (Metricas.Amostra a = Metricas.medir("journal.append")) {
+                        travado(() -> journal.appendRegistros(regs));
+                    }
+                },
+                this::compactarSeNecessario,
+                Integer.getInteger("aurelius.gravador.fila", 1024),
+                Long.getLong("aurelius.gravador.intervalo", 5));
+        compactador = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "compactador-journal");
+            t.setDaemon(true);
+            return t;
+        });
+
+        gancho = new Thread(this::encerrar, "encerrar-repositorio");
+        Runtime.getRuntime().addShutdownHook(gancho);
+    }
+
+    /** Toda a base (todos os meses). */
+    public List<Fechamento> loadAll() {
+        List<Fechamento> out = new ArrayList<>();
+        for (List<Fechamento> mes : carregar(meses()).values()) out.addAll(mes);
+        return out;
+    }
+
+    /** Fechamentos de um mês, já com o que está no journal. */
+    public List<Fechamento> carregarMes(YearMonth mes) {
+        return carregar(List.of(mes)).getOrDefault(mes, List.of());
+    }
+
+    /** Vários meses com uma única leitura do journal. */
+    @SuppressWarnings("try")
+    public Map<YearMonth, List<Fechamento>> carregar(Collection<YearMonth> meses) {
+        gravador.aguardar();
+        Map<YearMonth, List<Fechamento>> out = new TreeMap<>();
+        try (Metricas.Amostra a = Metricas.medir("repositorio.carregar")) {
+            travado(() -> {
+                abrir();
+                List<Evento> eventos = eventosPendentes();
+                for (YearMonth m : meses) {
+                    Map<Long, Fechamento> estado = particoes.ler(m);
+                    aplicar(m, estado, eventos);
+                    if (!estado.isEmpty()) out.put(m, new ArrayList<>(estado.values()));
+                }
+            });
+        } catch (IOException e) {
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao ler persistência: " + e.getMessage());
+        }
+        return out;
+    }
+
+    /**
+     * Uma página da listagem em ordem de data/turno a partir do cursor; lê só os meses
+     * necessários para encher a página (ver {@link PaginaFechamentos}).
+     */
+    @SuppressWarnings("try")
+    public PaginaFechamentos pagina(FiltroFechamentos filtro, PaginaFechamentos.Cursor depois, int tamanho,
+                                    boolean decrescente) {
+        try (Metricas.Amostra a = Metricas.medir("repositorio.pagina")) {
+            return PaginaFechamentos.paginar(meses(), m -> new FechamentoIndice(carregarMes(m)),
+                    filtro, depois, tamanho, decrescente);
+        }
+    }
+
+    /** Meses com fechamentos (partições gravadas + meses que por enquanto só aparecem no journal). */
+    @SuppressWarnings("try")
+    public NavigableSet<YearMonth> meses() {
+        gravador.aguardar();
+        NavigableSet<YearMonth> out = new TreeSet<>();
+        try (Metricas.Amostra a = Metricas.medir("repositorio.meses")) {
+            travado(() -> {
+                abrir();
+                out.addAll(particoes.meses());
+                for (Evento e : eventosPendentes()) {
+                    if (e.fechamento() != null && e.op() != Operacao.EXCLUIR) out.add(ParticoesMensais.mes(e.fechamento()));
+                }
+            });
+        } catch (IOException e) {
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao ler persistência: " + e.getMessage());
+        }
+        return out;
+    }
+
+    /**
+     * Meses em que o fechamento do id pode estar (pela faixa de ids de cada segmento no manifesto e
+     * pelos registros do journal), sem ler segmento nenhum.
+     */
+    @SuppressWarnings("try")
+    public NavigableSet<YearMonth> mesesDoId(long id) {
+        gravador.aguardar();
+        NavigableSet<YearMonth> out = new TreeSet<>();
+        try (Metricas.Amostra a = Metricas.medir("repositorio.mesesDoId")) {
+            travado(() -> {
+                abrir();
+                out.addAll(particoes.mesesComId(id));
+                for (Evento e : eventosPendentes()) {
+                    if (e.id() == id && e.fechamento() != null) out.add(ParticoesMensais.mes(e.fechamento()));
+                }
+            });
+        } catch (IOException e) {
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao ler persistência: " + e.getMessage());
+        }
+        return out;
+    }
+
+    // primeira abertura: migra a base antiga, limpa o fim do journal e acha o maior id gravado
+    private void abrir() throws IOException {
+        if (aberto) return;
+        if (Files.exists(legadoPath) && !particoes.existe()) migrar();
+        if (particoes.completarManifesto()) particoes.salvarManifesto(); // manifesto sem a faixa de ids
+
+        long[] max = {particoes.maiorId()};
+        FechamentoJournal.replay(compactandoPath, e -> max[0] = Math.max(max[0], e.id()));
+        journal.recuperar(e -> max[0] = Math.max(max[0], e.id()));
+        proximoId.accumulateAndGet(max[0] + 1, Math::max);
+        aberto = true;
+    }
+
+    // arquivo único antigo -> um segmento por mês; o antigo fica como .migrado
+    private void migrar() throws IOException {
+        List<Fechamento> semId = new ArrayList<>();
+        Map<YearMonth, List<Fechamento>> porMes = new TreeMap<>();
+        long[] max = {0};
+
+        formato.ler(legadoPath, f -> {
+            if (f.getId() == 0) semId.add(f);
+            else max[0] = Math.max(max[0], f.getId());
+            porMes.computeIfAbsent(ParticoesMensais.mes(f), k -> new ArrayList<>()).add(f);
+        });
+        // base antiga sem identificadores: recebem ids agora
+        for (Fechamento f : semId) f.setId(++max[0]);
+
+        for (Map.Entry<YearMonth, List<Fechamento>> e : porMes.entrySet()) particoes.escrever(e.getKey(), e.getValue());
+        particoes.salvarManifesto();
+        Files.move(legadoPath, legadoPath.resolveSibling(legadoPath.getFileName() + ".migrado"),
+                StandardCopyOption.REPLACE_EXISTING);
+        System.err.println("Base migrada para partições mensais: " + porMes.size() + " mês(es).");
+    }
+
+    // registros do journal em compactação + journal, em ordem; dentro de travado()
+    private List<Evento> eventosPendentes() throws IOException {
+        atualizarEventos();
+        List<Evento> eventos = new ArrayList<>();
+        if (lidosCompactando != null) eventos.addAll(lidosCompactando.eventos);
+        if (lidosJournal != null) eventos.addAll(lidosJournal.eventos);
+        return eventos;
+    }
+
+    // lê só o que foi acrescentado aos dois arquivos desde a última vez; os registros novos
+    // também vão para a ocupação dos meses já conferidos
+    @SuppressWarnings("try")
+    private void atualizarEventos() throws IOException {
+        Map<Object, EventosLidos> vistos = new HashMap<>(4);
+        try (Metricas.Amostra a = Metricas.medir("journal.replay")) {
+            lidosCompactando = lerEventos(compactandoPath, vistos);
+            lidosJournal = lerEventos(journalPath, vistos);
+        }
+        eventosLidos.keySet().retainAll(vistos.keySet()); // compactado ou apagado
+        eventosLidos.putAll(vistos);
+    }
+
+    private EventosLidos lerEventos(Path p, Map<Object, EventosLidos> vistos) throws IOException {
+        BasicFileAttributes at;
+        try {
+            at = Files.readAttributes(p, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        // fileKey + primeira linha (cabeçalho do primeiro quadro, com o CRC): o mesmo arquivo
+        // depois de rotacionado, e um arquivo novo mesmo que reaproveite o fileKey (ou sem fileKey)
+        Object chave = Arrays.asList(at.fileKey(), primeiraLinha(p));
+        EventosLidos c = eventosLidos.get(chave);
+        if (c == null || at.size() < c.lidos) c = new EventosLidos();
+        if (at.size() > c.lidos) {
+            long antes = c.lidos;
+            int n = c.eventos.size();
+            c.lidos = FechamentoJournal.replay(p, c.lidos, c.eventos::add);
+            Metricas.contador("journal.replay.bytes").add(c.lidos - antes);
+            for (Evento e : c.eventos.subList(n, c.eventos.size())) ocupar(e);
+        }
+        vistos.put(chave, c);
+        return c;
+    }
+
+    private static String primeiraLinha(Path p) throws IOException {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(PRIMEIRA_LINHA);
+            while (b.hasRemaining() && ch.read(b, b.position()) >= 0) {
+                // lê até PRIMEIRA_LINHA bytes
+            }
+            int n = 0;
+            while (n < b.position() && b.get(n) != '\n') n++;
+            return new String(b.array(), 0, n, StandardCharsets.UTF_8);
+        }
+    }
+
+    // ----------------------
+    // OCUPAÇÃO (data/turno -> id)
+    // ----------------------
+    // mês conferido pela primeira vez: segmento + journal; depois só recebe os registros novos
+    private Map<ChaveDia, Long> ocupacao(YearMonth mes) throws IOException {
+        Map<ChaveDia, Long> o = ocupacao.get(mes);
+        if (o != null) return o;
+
+        Map<Long, Fechamento> estado = particoes.ler(mes);
+        aplicar(mes, estado, eventosPendentes());
+        o = new HashMap<>();
+        for (Fechamento f : estado.values()) {
+            if (f.getData() == null) continue;
+            ChaveDia k = new ChaveDia(f.getData(), f.getTurno());
+            o.put(k, f.getId());
+            diaDoId.put(f.getId(), k);
+        }
+        ocupacao.put(mes, o);
+        return o;
+    }
+
+    // mesmo critério de aplicar(), só para os meses já conferidos
+    private void ocupar(Evento e) {
+        Fechamento f = e.fechamento();
+        YearMonth mes = f == null ? null : ParticoesMensais.mes(f);
+        ChaveDia antiga = diaDoId.get(e.id());
+        if (antiga != null && (f == null || e.op() != Operacao.EXCLUIR || YearMonth.from(antiga.data()).equals(mes))) {
+            Map<ChaveDia, Long> o = ocupacao.get(YearMonth.from(antiga.data()));
+            if (o != null) o.remove(antiga, e.id());
+            diaDoId.remove(e.id());
+        }
+        if (f == null || f.getData() == null || e.op() == Operacao.EXCLUIR) return;
+        Map<ChaveDia, Long> o = ocupacao.get(mes);
+        if (o == null) return;
+        ChaveDia k = new ChaveDia(f.getData(), f.getTurno());
+        o.put(k, e.id());
+        diaDoId.put(e.id(), k);
+    }
+
+    // outro processo regravou partições (saveAll, consolidação): confere os meses de novo
+    private void descartarOcupacao() {
+        ocupacao.clear();
+        diaDoId.clear();
+    }
+
+    // aplica, em ordem, os registros que afetam o mês: gravação no próprio mês entra,
+    // gravação do mesmo id em outro mês tira (o fechamento mudou de mês)
+    private static void aplicar(YearMonth mes, Map<Long, Fechamento> estado, List<Evento> eventos) {
+        for (Evento e : eventos) {
+            Fechamento f = e.fechamento();
+            if (f == null) {
+                estado.remove(e.id()); // exclusão antiga, sem mês
+                continue;
+            }
+            boolean doMes = ParticoesMensais.mes(f).equals(mes);
+            if (e.op() == Operacao.EXCLUIR) {
+                if (doMes) estado.remove(e.id());
+            } else if (doMes) {
+                estado.put(e.id(), f);
+            } else {
+                estado.remove(e.id());
+            }
+        }
+    }
+
+    /** Grava a lista como a base completa (meses ausentes da lista deixam de existir) e descarta o journal. */
+    @SuppressWarnings("try")
+    public void saveAll(List<Fechamento> lista) {
+        atribuirIds(lista);
+        versaoTodos = versao.incrementAndGet();
+        gravador.aguardar();
+
+        Map<YearMonth, List<Fechamento>> porMes = new TreeMap<>();
+        for (Fechamento f : lista) porMes.computeIfAbsent(ParticoesMensais.mes(f), k -> new ArrayList<>()).add(f);
+
+        try (Metricas.Amostra a = Metricas.medir("repositorio.saveAll")) {
+            travado(() -> {
+                abrir();
+                for (YearMonth m : new ArrayList<>(particoes.meses())) {
+                    if (!porMes.containsKey(m)) particoes.escrever(m, List.of());
+                }
+                for (Map.Entry<YearMonth, List<Fechamento>> e : porMes.entrySet()) {
+                    particoes.escrever(e.getKey(), e.getValue());
+                }
+                particoes.salvarManifesto();
+                journal.truncar();
+                Files.deleteIfExists(compactandoPath);
+                eventosLidos.clear();
+                descartarOcupacao();
+            });
+        } catch (IOException e) {
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao salvar persistência: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Leva tudo o que está no journal para as partições e descarta o journal (saída do sistema).
+     * false se algo falhou, inclusive registro que o gravador ainda não conseguiu gravar.
+     */
+    @SuppressWarnings("try")
+    public boolean consolidar() {
+        boolean gravados = gravador.aguardar();
+        try (Metricas.Amostra a = Metricas.medir("repositorio.consolidar")) {
+            travado(() -> {
+                abrir();
+                journal.fechar();
+                consolidarEventos(eventosPendentes());
+                journal.truncar();
+                Files.deleteIfExists(compactandoPath);
+                eventosLidos.clear();
+            });
+        } catch (IOException e) {
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao salvar persistência: " + e.getMessage());
+            return false;
+        }
+        return gravados;
+    }
+
+    // regrava só os meses citados nos registros (todos, se houver exclusão antiga sem mês)
+    private void consolidarEventos(List<Evento> eventos) throws IOException {
+        if (eventos.isEmpty()) return;
+        Set<YearMonth> afetados = new TreeSet<>();
+        for (Evento e : eventos) {
+            if (e.fechamento() == null) {
+                afetados.addAll(particoes.meses());
+            } else {
+                afetados.add(ParticoesMensais.mes(e.fechamento()));
+            }
+        }
+        for (YearMonth m : afetados) {
+            Map<Long, Fechamento> estado = particoes.ler(m);
+            aplicar(m, estado, eventos);
+            particoes.escrever(m, estado.values());
+        }
+        particoes.salvarManifesto();
+    }
+
+    /**
+     * Grava um fechamento novo. A data/turno é conferida contra o que está gravado (por qualquer
+     * processo) sob a trava da pasta, e o registro vai para o journal antes de a trava ser solta.
+     *
+     * @throws IllegalStateException se já existe fechamento na mesma data e turno
+     */
+    public void inserir(Fechamento f) {
+        List<Fechamento> recusados = inserirTodos(List.of(f));
+        if (!recusados.isEmpty()) {
+            throw new IllegalStateException("Já existe fechamento para " + f.getData() + " turno " + f.getTurno() + ".");
+        }
+    }
+
+    /**
+     * Grava vários fechamentos novos num único append, conferindo data/turno como {@link #inserir}.
+     * Devolve os recusados por já existir fechamento na mesma data e turno (na base ou no próprio lote).
+     */
+    public List<Fechamento> inserirTodos(Collection<Fechamento> lista) {
+        if (lista.isEmpty()) return List.of();
+        gravador.aguardar(); // o que esta instância já pediu entra na conferência
+        return inserir(lista, id -> false);
+    }
+
+    /**
+     * Como {@link #inserirTodos}, para quem já conferiu data/turno contra o que ele mesmo gravou
+     * ({@link ServicoFechamentos}) e pode ter edições ainda na fila do gravador: só recusa o
+     * fechamento se a data/turno está ocupada por um id que {@code conhecido} não reconhece (gravado
+     * por outro processo). Não espera o gravador.
+     */
+    List<Fechamento> inserirConferidos(Collection<Fechamento> lista, LongPredicate conhecido) {
+        if (lista.isEmpty()) return List.of();
+        return inserir(lista, conhecido);
+    }
+
+    // sob a trava: registros novos do journal -> ocupação dos meses do lote -> append
+    @SuppressWarnings("try")
+    private List<Fechamento> inserir(Collection<Fechamento> lista, LongPredicate conhecido) {
+        List<Fechamento> aceitos = new ArrayList<>();
+        List<Fechamento> recusados = new ArrayList<>();
+        try (Metricas.Amostra a = Metricas.medir("repositorio.inserir")) {
+            travado(() -> {
+                abrir();
+                atualizarEventos();
+                Set<ChaveDia> doLote = new HashSet<>();
+                for (Fechamento f : lista) {
+                    if (f.getData() == null) {
+                        aceitos.add(f);
+                        continue;
+                    }
+                    ChaveDia k = new ChaveDia(f.getData(), f.getTurno());
+                    Long ocupante = ocupacao(YearMonth.from(f.getData())).get(k);
+                    boolean livre = ocupante == null || ocupante == f.getId() || conhecido.test(ocupante);
+                    if (livre && doLote.add(k)) aceitos.add(f);
+                    else recusados.add(f);
+                }
+                reservarIds(aceitos);
+                List<Registro> regs = new ArrayList<>(aceitos.size());
+                for (Fechamento f : aceitos) regs.add(Registro.de(Operacao.CRIAR, f));
+                journal.appendRegistros(regs);
+            });
+        } catch (IOException e) {
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao gravar journal: " + e.getMessage());
+            // não perde o que foi digitado: o que não foi recusado vai pelo gravador, sem conferência
+            aceitos.clear();
+            for (Fechamento f : lista) {
+                if (!recusados.contains(f)) aceitos.add(f);
+            }
+            atribuirIds(aceitos);
+            for (Fechamento f : aceitos) gravador.registrar(Registro.de(Operacao.CRIAR, f));
+        }
+        Metricas.contador("repositorio.criar").add(aceitos.size());
+        if (!recusados.isEmpty()) Metricas.contador("repositorio.duplicados").add(recusados.size());
+        mudou(aceitos);
+        compactarSeNecessario();
+        return recusados;
+    }
+
+    private record ChaveDia(LocalDate data, int turno) {}
+
+    public void atualizar(Fechamento f) {
+        atribuirId(f);
+        registrar(Operacao.ALTERAR, f);
+    }
+
+    /** Edição em que a data pode ter mudado: se mudou de mês, tira o id da partição antiga. */
+    public void atualizar(Fechamento f, LocalDate dataAnterior) {
+        atribuirId(f);
+        if (dataAnterior != null && f.getData() != null
+                && !YearMonth.from(dataAnterior).equals(YearMonth.from(f.getData()))) {
+            gravador.registrar(Registro.exclusao(f.getId(), dataAnterior));
+            mudou(YearMonth.from(dataAnterior));
+        }
+        registrar(Operacao.ALTERAR, f);
+    }
+
+    public void remover(Fechamento f) {
+        if (f.getId() == 0) return;
+        registrar(Operacao.EXCLUIR, f);
+    }
+
+    private void atribuirId(Fechamento f) {
+        if (f.getId() == 0) atribuirIds(List.of(f));
+    }
+
+    // reserva de uma vez os ids dos que ainda não têm, sob a trava entre processos
+    private void atribuirIds(Collection<Fechamento> lista) {
+        int semId = 0;
+        for (Fechamento f : lista) {
+            if (f.getId() == 0) semId++;
+        }
+        if (semId == 0) return;
+
+        try {
+            travado(() -> {
+                abrir();
+                reservarIds(lista);
+            });
+        } catch (IOException e) {
+            // sem a trava: segue com o contador local para não perder o fechamento
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao reservar ids: " + e.getMessage());
+            long id = proximoId.getAndAdd(semId);
+            for (Fechamento f : lista) {
+                if (f.getId() == 0) f.setId(id++);
+            }
+        }
+    }
+
+    /** Reserva {@code n} ids seguidos (para quem distribui ids sem passar pela trava a cada fechamento). */
+    long reservarBloco(int n) throws IOException {
+        long[] primeiro = new long[1];
+        travado(() -> {
+            abrir();
+            primeiro[0] = reservar(n);
+        });
+        return primeiro[0];
+    }
+
+    // dentro de travado(): ids para os que ainda não têm
+    private void reservarIds(Collection<Fechamento> lista) throws IOException {
+        int semId = 0;
+        for (Fechamento f : lista) {
+            if (f.getId() == 0) semId++;
+        }
+        if (semId == 0) return;
+        long id = reservar(semId);
+        for (Fechamento f : lista) {
+            if (f.getId() == 0) f.setId(id++);
+        }
+    }
+
+    // lê o contador gravado no ".trava", avança n e devolve o primeiro id reservado
+    private long reservar(int n) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(Long.BYTES);
+        long gravado = trava.read(b, 0) == Long.BYTES ? b.getLong(0) : 0; // ".trava" vazio: base antiga
+        long primeiro = Math.max(gravado, proximoId.get());
+
+        b.putLong(0, primeiro + n).rewind();
+        trava.write(b, 0);
+        proximoId.set(primeiro + n);
+        return primeiro;
+    }
+
+    // serializa já (quem chamou pode continuar alterando o objeto) e deixa a escrita para o gravador
+    private void registrar(Operacao op, Fechamento f) {
+        gravador.registrar(Registro.de(op, f));
+        Metricas.incrementar(switch (op) {
+            case CRIAR -> "repositorio.criar";
+            case ALTERAR -> "repositorio.alterar";
+            case EXCLUIR -> "repositorio.excluir";
+        });
+        mudou(ParticoesMensais.mes(f));
+    }
+
+    private void mudou(Collection<Fechamento> lista) {
+        Set<YearMonth> meses = new HashSet<>();
+        for (Fechamento f : lista) meses.add(ParticoesMensais.mes(f));
+        if (meses.isEmpty()) return;
+        long v = versao.incrementAndGet();
+        for (YearMonth m : meses) versaoMes.merge(m, v, Math::max);
+    }
+
+    private void mudou(YearMonth mes) {
+        versaoMes.merge(mes, versao.incrementAndGet(), Math::max);
+    }
+
+    /**
+     * Contador de alterações feitas por este repositório: quem guarda uma cópia dos meses
+     * (ex.: a API HTTP) compara com o valor da leitura para saber se precisa reler.
+     */
+    public long versao() {
+        return versao.get();
+    }
+
+    /** Como {@link #versao()}, mas só muda com gravações que caem no mês. */
+    public long versao(YearMonth mes) {
+        return Math.max(versaoTodos, versaoMes.getOrDefault(mes, 0L));
+    }
+
+    /** Fechamentos gravados nas partições (pelo manifesto, sem ler segmentos). */
+    public int quantidade() {
+        synchronized (snapshotLock) {
+            return particoes.total();
+        }
+    }
+
+    /** Bytes das partições + journal. */
+    public long bytes() {
+        long journalBytes;
+        try {
+            journalBytes = Files.exists(journalPath) ? Files.size(journalPath) : 0;
+        } catch (IOException e) {
+            journalBytes = 0;
+        }
+        synchronized (snapshotLock) {
+            return particoes.bytes() + journalBytes;
+        }
+    }
+
+    /** Tarefas esperando o gravador. */
+    public int pendentes() {
+        return gravador.pendentes();
+    }
+
+    /** Registros que o gravador não conseguiu gravar e vai tentar de novo. */
+    public int naoGravados() {
+        return gravador.naoGravados();
+    }
+
+    /** Grava um arquivo avulso pela mesma fila (temporário + rename). */
+    public void gravarArquivo(Path p, List<String> linhas) {
+        gravador.arquivo(p, linhas);
+    }
+
+    /** Apaga um arquivo avulso pela mesma fila (na ordem dos pedidos de gravação). */
+    public void apagarArquivo(Path p) {
+        gravador.arquivo(p, null);
+    }
+
+    /** Bloqueia até tudo o que já foi registrado estar no disco; false se algum registro não foi gravado. */
+    public boolean sincronizar() {
+        return gravador.aguardar();
+    }
+
+    // rotação sob a trava: outro processo (ou instância) não pode estar gravando no journal enquanto
+    // ele é renomeado, e o canal dele é reaberto no próximo append (ver FechamentoJournal)
+    private void compactarSeNecessario() {
+        if (journal.getRegistros() < limiteCompactacao || compactador.isShutdown()) return;
+
+        boolean[] rotacionado = {false};
+        try {
+            travado(() -> {
+                // compactação anterior ainda pendente: continua acumulando no journal atual
+                if (Files.exists(compactandoPath)) return;
+                rotacionado[0] = journal.rotacionar(compactandoPath);
+            });
+            if (rotacionado[0]) compactador.submit(this::compactar);
+        } catch (IOException e) {
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao rotacionar journal: " + e.getMessage());
+        }
+    }
+
+    // roda na thread do compactador: journal rotacionado -> partições dos meses afetados
+    @SuppressWarnings("try")
+    private void compactar() {
+        try (Metricas.Amostra a = Metricas.medir("journal.compactar")) {
+            travado(() -> {
+                if (!Files.exists(compactandoPath)) return; // saveAll já consolidou tudo
+
+                List<Evento> eventos = new ArrayList<>();
+                FechamentoJournal.replay(compactandoPath, eventos::add);
+                consolidarEventos(eventos);
+                Files.delete(compactandoPath);
+            });
+        } catch (IOException e) {
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao compactar journal: " + e.getMessage());
+        }
+    }
+
+    // snapshotLock dentro da JVM + lock de arquivo entre processos
+    @SuppressWarnings("try")
+    private void travado(AcaoIO acao) throws IOException {
+        synchronized (snapshotLock) {
+            Files.createDirectories(travaPath.getParent());
+            try (FileChannel ch = FileChannel.open(travaPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock ignored = ch.lock()) {
+                trava = ch;
+                try {
+                    // outro processo pode ter compactado/regravado meses
+                    if (particoes.recarregarSeMudou()) descartarOcupacao();
+                    acao.executar();
+                } finally {
+                    trava = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Grava o que estiver na fila, aguarda compactações pendentes e fecha o journal.
+     * false se sobrou registro sem gravar.
+     */
+    public boolean encerrar() {
+        boolean gravados = gravador.encerrar();
+        compactador.shutdown();
+        try {
+            compactador.awaitTermination(30, TimeUnit.SECONDS);
+            journal.fechar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            Metricas.incrementar("erros.io");
+            System.err.println("Erro ao fechar journal: " + e.getMessage());
+        }
+        if (Thread.currentThread() != gancho) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(gancho);
+            } catch (IllegalStateException ignore) {
+                // JVM já está encerrando
+            }
+        }
+        return gravados;
+    }
+
+    /** Pasta das partições mensais. */
+    public Path getSavePath() {
+        return particoes.getPasta();
+    }
+}
@@ -0,0 +1,389 @@
+package main.java.sistema.arquivos;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import main.java.sistema.metricas.Metricas;
+import main.java.sistema.objetos.Fechamento;
+
+/**
+ * Fechamentos de várias lojas e terminais, acessíveis por várias threads ao mesmo tempo.
+ *
+ * Cada terminal tem sua própria pasta (raiz/loja/terminal) com um {@link RepositorioTerminal}; a base
+ * do console (~/Documents) entra por {@link #abrir}. Escritas são serializadas por faixas de trava
+ * escolhidas pelo mês do fechamento, então fechamentos de meses diferentes (ou de terminais
+ * diferentes) não disputam a mesma trava; leituras não travam nada.
+ *
+ * Um mês é lido do repositório na primeira vez que uma operação precisa dele, sob a trava da faixa.
+ * A conferência de data/turno e a distribuição de ids (blocos de aurelius.ids.bloco ids reservados
+ * no repositório, um por faixa) ficam na faixa; a trava da pasta só cobre o append da criação, que
+ * ainda recusa a data/turno gravada por outro processo.
+ *
+ * Os fechamentos entregues ao serviço passam a ser dele: para editar, passe uma nova instância
+ * com o mesmo id em {@link #alterar}.
+ */
+public class ServicoFechamentos {
+
+    private static final Pattern NOME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final int FAIXAS = 64;
+    private static final int BLOCO_IDS = Integer.getInteger("aurelius.ids.bloco", 16);
+
+    public record Terminal(String loja, String terminal) {
+        public Terminal {
+            if (loja == null || !NOME.matcher(loja).matches()) throw new IllegalArgumentException("Loja inválida: " + loja);
+            if (terminal == null || !NOME.matcher(terminal).matches()) throw new IllegalArgumentException("Terminal inválido: " + terminal);
+        }
+    }
+
+    private static final class Base {
+        final RepositorioTerminal repo;
+        final ConcurrentHashMap<Long, Fechamento> porId = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<Long, Fechamento> porChave = new ConcurrentSkipListMap<>(); // data+turno
+        final ReentrantLock[] faixas = new ReentrantLock[FAIXAS];
+        final Set<YearMonth> carregados = ConcurrentHashMap.newKeySet();
+        final ConcurrentSkipListSet<YearMonth> existentes;
+        // bloco de ids de cada faixa: próximo a entregar e fim (exclusivo); só sob a trava da faixa
+        final long[] proximoId = new long[FAIXAS];
+        final long[] fimIds = new long[FAIXAS];
+
+        Base(RepositorioTerminal repo) {
+            this.repo = repo;
+            for (int i = 0; i < FAIXAS; i++) faixas[i] = new ReentrantLock();
+            existentes = new ConcurrentSkipListSet<>(repo.meses());
+        }
+    }
+
+    private final Path raiz;
+    private final FormatoArquivo formato;
+    private final ConcurrentHashMap<Terminal, Base> bases = new ConcurrentHashMap<>();
+
+    public ServicoFechamentos(Path raiz, FormatoArquivo formato) {
+        this.raiz = raiz;
+        this.formato = formato;
+    }
+
+    /** Atende o terminal com um repositório já aberto; se já estava aberto, descarta o que havia em memória. */
+    public void abrir(Terminal t, RepositorioTerminal repo) {
+        bases.put(t, new Base(repo));
+    }
+
+    /** Registra um fechamento novo; falha se o terminal já tem fechamento na mesma data e turno. */
+    public Fechamento registrar(Terminal t, Fechamento f) {
+        if (f.getData() == null) throw new IllegalArgumentException("Fechamento sem data.");
+        if (!registrarTodos(t, List.of(f)).isEmpty()) {
+            throw new IllegalStateException("Já existe fechamento para " + f.getData() + " turno " + f.getTurno() + ".");
+        }
+        return f;
+    }
+
+    /**
+     * Registra vários fechamentos novos (um append por faixa); devolve os recusados por já existir
+     * fechamento na mesma data e turno (no terminal ou no próprio lote).
+     */
+    public List<Fechamento> registrarTodos(Terminal t, Collection<Fechamento> lista) {
+        Base b = base(t);
+        Map<Integer, List<Fechamento>> porFaixa = new LinkedHashMap<>();
+        for (Fechamento f : lista) {
+            if (f.getData() == null) throw new IllegalArgumentException("Fechamento sem data.");
+            porFaixa.computeIfAbsent(faixa(f.getData()), k -> new ArrayList<>()).add(f);
+        }
+
+        List<Fechamento> recusados = new ArrayList<>();
+        for (Map.Entry<Integer, List<Fechamento>> e : porFaixa.entrySet()) {
+            ReentrantLock trava = b.faixas[e.getKey()];
+            trava.lock();
+            try {
+                recusados.addAll(registrarNaFaixa(b, e.getKey(), e.getValue()));
+            } finally {
+                trava.unlock();
+            }
+        }
+        return recusados;
+    }
+
+    // com a trava da faixa: confere data/turno na memória, dá ids do bloco da faixa e grava
+    private static List<Fechamento> registrarNaFaixa(Base b, int faixa, List<Fechamento> lista) {
+        List<Fechamento> aceitos = new ArrayList<>();
+        List<Fechamento> recusados = new ArrayList<>();
+        Set<Long> doLote = new HashSet<>();
+        for (Fechamento f : lista) {
+            garantir(b, YearMonth.from(f.getData()));
+            long k = chave(f.getData(), f.getTurno());
+            if (b.porChave.containsKey(k) || !doLote.add(k)) {
+                recusados.add(f);
+            } else {
+                f.setId(proximoId(b, faixa));
+                aceitos.add(f);
+            }
+        }
+
+        // a base só recusa o que outro processo gravou: o resto já foi conferido aqui
+        List<Fechamento> naBase = b.repo.inserirConferidos(aceitos, b.porId::containsKey);
+        for (Fechamento f : aceitos) {
+            if (naBase.contains(f)) continue;
+            b.porId.put(f.getId(), f);
+            b.porChave.put(chave(f.getData(), f.getTurno()), f);
+            b.existentes.add(YearMonth.from(f.getData()));
+        }
+        for (Fechamento f : naBase) {
+            f.setId(0);
+            descartarMes(b, YearMonth.from(f.getData())); // outro processo gravou no mês: relido na próxima operação
+        }
+        recusados.addAll(naBase);
+        return recusados;
+    }
+
+    // com a trava da faixa
+    private static long proximoId(Base b, int faixa) {
+        if (b.proximoId[faixa] == b.fimIds[faixa]) {
+            try {
+                b.proximoId[faixa] = b.repo.reservarBloco(BLOCO_IDS);
+            } catch (IOException e) {
+                Metricas.incrementar("erros.io");
+                throw new UncheckedIOException("Erro ao reservar ids", e);
+            }
+            b.fimIds[faixa] = b.proximoId[faixa] + BLOCO_IDS;
+        }
+        return b.proximoId[faixa]++;
+    }
+
+    /**
+     * Executa {@code acao} com a trava da faixa da data (o mês já em memória): operações do mesmo dia
+     * feitas dentro dela (buscar, registrar, alterar sem mudar de mês) não se intercalam com outras.
+     */
+    public void naFaixa(Terminal t, LocalDate data, Runnable acao) {
+        Base b = base(t);
+        ReentrantLock trava = b.faixas[faixa(data)];
+        trava.lock();
+        try {
+            garantir(b, YearMonth.from(data));
+            acao.run();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /** Substitui o fechamento de mesmo id; a data/turno pode mudar desde que não colida com outro. */
+    public void alterar(Terminal t, Fechamento novo) {
+        if (novo.getData() == null) throw new IllegalArgumentException("Fechamento sem data.");
+        Base b = base(t);
+        while (true) {
+            Fechamento atual = localizar(b, novo.getId());
+            if (atual == null) throw new IllegalArgumentException("Fechamento " + novo.getId() + " não existe.");
+
+            // duas faixas quando o mês muda: sempre na mesma ordem para não haver deadlock
+            int f1 = faixa(atual.getData());
+            int f2 = faixa(novo.getData());
+            ReentrantLock primeira = b.faixas[Math.min(f1, f2)];
+            ReentrantLock segunda = b.faixas[Math.max(f1, f2)];
+            primeira.lock();
+            segunda.lock();
+            try {
+                garantir(b, YearMonth.from(novo.getData()));
+                atual = b.porId.get(novo.getId());
+                if (atual == null) throw new IllegalArgumentException("Fechamento " + novo.getId() + " não existe.");
+                // outra thread mudou o fechamento de mês antes de pegarmos a trava: tenta de novo
+                if (faixa(atual.getData()) != f1) continue;
+
+                substituir(b, atual, novo);
+                return;
+            } finally {
+                segunda.unlock();
+                primeira.unlock();
+            }
+        }
+    }
+
+    // com as faixas do mês antigo e do novo travadas
+    private static void substituir(Base b, Fechamento atual, Fechamento novo) {
+        long antiga = chave(atual.getData(), atual.getTurno());
+        long nova = chave(novo.getData(), novo.getTurno());
+        Fechamento ocupante = b.porChave.get(nova);
+        if (ocupante != null && ocupante.getId() != novo.getId()) {
+            throw new IllegalStateException("Já existe fechamento para " + novo.getData() + " turno " + novo.getTurno() + ".");
+        }
+
+        b.repo.atualizar(novo, atual.getData());
+        b.porChave.remove(antiga);
+        b.porChave.put(nova, novo);
+        b.porId.put(novo.getId(), novo);
+        b.existentes.add(YearMonth.from(novo.getData()));
+    }
+
+    public boolean remover(Terminal t, long id) {
+        Base b = base(t);
+        while (true) {
+            Fechamento atual = localizar(b, id);
+            if (atual == null) return false;
+
+            int f = faixa(atual.getData());
+            ReentrantLock trava = b.faixas[f];
+            trava.lock();
+            try {
+                // lido de novo sob a trava; se mudou de mês nesse meio tempo, a faixa é outra
+                atual = b.porId.get(id);
+                if (atual == null) return false;
+                if (faixa(atual.getData()) != f) continue;
+
+                b.porId.remove(id);
+                b.porChave.remove(chave(atual.getData(), atual.getTurno()));
+                b.repo.remover(atual);
+                return true;
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    public Optional<Fechamento> buscar(Terminal t, long id) {
+        return Optional.ofNullable(localizar(base(t), id));
+    }
+
+    public Optional<Fechamento> buscar(Terminal t, LocalDate data, int turno) {
+        Base b = base(t);
+        carregar(b, YearMonth.from(data));
+        return Optional.ofNullable(b.porChave.get(chave(data, turno)));
+    }
+
+    /** Fechamentos do terminal no intervalo (inclusivo), em ordem de data e turno. */
+    public List<Fechamento> listar(Terminal t, LocalDate inicio, LocalDate fim) {
+        Base b = base(t);
+        for (YearMonth m : b.existentes.subSet(YearMonth.from(inicio), true, YearMonth.from(fim), true)) carregar(b, m);
+        return new ArrayList<>(b.porChave.subMap(chave(inicio, 0), true, chave(fim, 3), true).values());
+    }
+
+    /** Esquece o mês em memória (gravado por fora do serviço); é relido na próxima operação que precisar dele. */
+    public void descartar(Terminal t, YearMonth m) {
+        Base b = base(t);
+        ReentrantLock trava = b.faixas[faixa(m)];
+        trava.lock();
+        try {
+            descartarMes(b, m);
+            b.existentes.add(m);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /** Terminais com pasta em disco ou já abertos neste processo. */
+    public Set<Terminal> terminais() {
+        Set<Terminal> out = new TreeSet<>((a, b) -> a.loja().equals(b.loja())
+                ? a.terminal().compareTo(b.terminal()) : a.loja().compareTo(b.loja()));
+        out.addAll(bases.keySet());
+        if (Files.isDirectory(raiz)) {
+            try (Stream<Path> lojas = Files.list(raiz)) {
+                for (Path loja : lojas.filter(Files::isDirectory).toList()) {
+                    try (Stream<Path> ts = Files.list(loja)) {
+                        ts.filter(Files::isDirectory).forEach(p -> {
+                            try {
+                                out.add(new Terminal(loja.getFileName().toString(), p.getFileName().toString()));
+                            } catch (IllegalArgumentException ignore) {
+                                // pasta que não é de terminal
+                            }
+                        });
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Erro ao listar terminais: " + e.getMessage());
+            }
+        }
+        return out;
+    }
+
+    /** Bloqueia até tudo o que já foi registrado em todos os terminais estar no disco; false se algo não foi gravado. */
+    public boolean sincronizar() {
+        boolean ok = true;
+        for (Base b : bases.values()) ok &= b.repo.sincronizar();
+        return ok;
+    }
+
+    /** Encerra todos os terminais; false se sobrou registro sem gravar em algum. */
+    public boolean encerrar() {
+        boolean ok = true;
+        for (Base b : bases.values()) ok &= b.repo.encerrar();
+        return ok;
+    }
+
+    private Base base(Terminal t) {
+        return bases.computeIfAbsent(t, k ->
+                new Base(new RepositorioTerminal(raiz.resolve(k.loja()).resolve(k.terminal()), formato)));
+    }
+
+    // ----------------------
+    // MESES EM MEMÓRIA
+    // ----------------------
+    // id fora da memória: lê os meses em que o repositório diz que ele pode estar
+    private static Fechamento localizar(Base b, long id) {
+        Fechamento f = b.porId.get(id);
+        if (f != null) return f;
+        boolean leu = false;
+        for (YearMonth m : b.repo.mesesDoId(id)) {
+            if (m.equals(ParticoesMensais.SEM_DATA) || b.carregados.contains(m)) continue;
+            carregar(b, m);
+            leu = true;
+        }
+        return leu ? b.porId.get(id) : null;
+    }
+
+    private static void carregar(Base b, YearMonth m) {
+        if (b.carregados.contains(m)) return;
+        ReentrantLock trava = b.faixas[faixa(m)];
+        trava.lock();
+        try {
+            garantir(b, m);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    // com a trava da faixa do mês
+    private static void garantir(Base b, YearMonth m) {
+        if (b.carregados.contains(m)) return;
+        for (Fechamento f : b.repo.carregarMes(m)) {
+            if (f.getData() == null) continue;
+            b.porId.putIfAbsent(f.getId(), f); // já em memória em outro mês: a versão de lá é a mais nova
+            b.porChave.putIfAbsent(chave(f.getData(), f.getTurno()), f);
+        }
+        b.carregados.add(m);
+    }
+
+    // com a trava da faixa do mês: esquece o mês para relê-lo do repositório
+    private static void descartarMes(Base b, YearMonth m) {
+        b.carregados.remove(m);
+        for (Fechamento f : b.porChave.subMap(chave(m.atDay(1), 0), true, chave(m.atEndOfMonth(), 3), true).values()) {
+            b.porChave.remove(chave(f.getData(), f.getTurno()));
+            b.porId.remove(f.getId(), f);
+        }
+    }
+
+    private static long chave(LocalDate data, int turno) {
+        return data.toEpochDay() * 4 + turno;
+    }
+
+    private static int faixa(LocalDate data) {
+        return faixa(YearMonth.from(data));
+    }
+
+    private static int faixa(YearMonth m) {
+        return Math.floorMod(m.getYear() * 12 + m.getMonthValue(), FAIXAS);
+    }
+}
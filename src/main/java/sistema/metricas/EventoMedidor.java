@@ -0,0 +1,23 @@
+package main.java.sistema.metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/** Valor de um medidor (quantidade de registros, bytes da base...), emitido periodicamente na gravação JFR. */
+@Name("sistema.Medidor")
+@Label("Medidor")
+@Category("Aurelius")
+@Period("10 s")
+@StackTrace(false)
+class EventoMedidor extends Event {
+
+    @Label("Nome")
+    String nome;
+
+    @Label("Valor")
+    long valor;
+}
@@ -0,0 +1,23 @@
+package main.java.sistema.metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR de cada operação medida por {@link Metricas#medir}: aparece no JDK Mission Control
+ * ao gravar com {@code -XX:StartFlightRecording} (sem gravação ativa quase não custa nada).
+ */
+@Name("sistema.Operacao")
+@Label("Operação")
+@Category("Aurelius")
+@Description("Carga, gravação, journal e leitura/escrita de arquivos de fechamentos")
+@StackTrace(false)
+class EventoOperacao extends Event {
+
+    @Label("Nome")
+    String nome;
+}
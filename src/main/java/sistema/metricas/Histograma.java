@@ -0,0 +1,75 @@
+package main.java.sistema.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências em nanossegundos com baldes logarítmicos (como o HdrHistogram):
+ * cada potência de 2 é dividida em {@link #SUB} baldes, então o erro de um percentil fica abaixo
+ * de 1/SUB (12,5%) em qualquer escala, com memória fixa e sem alocação ao registrar.
+ *
+ * Seguro para várias threads; os percentis são lidos sem parar quem registra.
+ */
+public final class Histograma {
+
+    private static final int BITS = 3;
+    static final int SUB = 1 << BITS;
+    private static final int BALDES = (63 - BITS + 1) * SUB;
+
+    private final AtomicLongArray baldes = new AtomicLongArray(BALDES);
+    private final LongAdder quantidade = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    public void registrar(long nanos) {
+        if (nanos < 0) nanos = 0;
+        baldes.incrementAndGet(balde(nanos));
+        quantidade.increment();
+        soma.add(nanos);
+        if (nanos > maximo.get()) maximo.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long quantidade() {
+        return quantidade.sum();
+    }
+
+    public long media() {
+        long n = quantidade.sum();
+        return n == 0 ? 0 : soma.sum() / n;
+    }
+
+    public long maximo() {
+        return maximo.get();
+    }
+
+    /** Limite superior do balde onde cai o percentil {@code p} (0 a 100), nunca acima do máximo. */
+    public long percentil(double p) {
+        long[] c = new long[BALDES];
+        long n = 0;
+        for (int i = 0; i < BALDES; i++) n += c[i] = baldes.get(i);
+        if (n == 0) return 0;
+
+        long alvo = Math.max(1, (long) Math.ceil(n * p / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < BALDES; i++) {
+            acumulado += c[i];
+            if (acumulado >= alvo) return Math.min(superior(i), maximo.get());
+        }
+        return maximo.get();
+    }
+
+    // valores < SUB têm balde próprio; acima, expoente (posição do bit mais alto) + 3 bits seguintes
+    static int balde(long v) {
+        if (v < SUB) return (int) v;
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        return (e - BITS + 1) * SUB + (int) ((v >>> (e - BITS)) & (SUB - 1));
+    }
+
+    static long superior(int balde) {
+        if (balde < SUB) return balde;
+        int e = balde / SUB + BITS - 1;
+        long inferior = (long) (SUB + balde % SUB) << (e - BITS);
+        return inferior + (1L << (e - BITS)) - 1;
+    }
+}
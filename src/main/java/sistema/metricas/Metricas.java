@@ -0,0 +1,162 @@
+package main.java.sistema.metricas;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Métricas do processo, sem dependências: contadores, histogramas de tempo ({@link Histograma})
+ * e medidores (valores lidos na hora, ex. quantidade de registros e tamanho da base).
+ *
+ * Os nomes são livres, com pontos ("repositorio.carregar"); o mesmo nome devolve sempre o mesmo
+ * contador/histograma. Cada {@link #medir} também vira um evento JFR ({@link EventoOperacao}) e os
+ * medidores são emitidos periodicamente ({@link EventoMedidor}) quando há gravação JFR.
+ *
+ * Uso:
+ * <pre>
+ * try (Metricas.Amostra a = Metricas.medir("repositorio.carregar")) {
+ *     ...
+ * }
+ * </pre>
+ * A amostra não é usada dentro do bloco; o método que mede leva {@code @SuppressWarnings("try")},
+ * já que o build compila com -Xlint:all.
+ */
+public final class Metricas {
+
+    private static final Map<String, LongAdder> contadores = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histograma> histogramas = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> medidores = new ConcurrentSkipListMap<>();
+
+    private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    static {
+        FlightRecorder.addPeriodicEvent(EventoMedidor.class, Metricas::emitirMedidores);
+    }
+
+    private Metricas() {}
+
+    /** Tempo de uma operação: registra no histograma e emite o evento JFR ao fechar. */
+    public static final class Amostra implements AutoCloseable {
+        private final Histograma histograma;
+        private final EventoOperacao evento;
+        private final String nome;
+        private final long inicio;
+
+        private Amostra(String nome) {
+            this.nome = nome;
+            this.histograma = histograma(nome);
+            this.evento = new EventoOperacao();
+            evento.begin();
+            this.inicio = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            histograma.registrar(System.nanoTime() - inicio);
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.nome = nome;
+                evento.commit();
+            }
+        }
+    }
+
+    public static Amostra medir(String nome) {
+        return new Amostra(nome);
+    }
+
+    public static LongAdder contador(String nome) {
+        LongAdder c = contadores.get(nome);
+        return c != null ? c : contadores.computeIfAbsent(nome, k -> new LongAdder());
+    }
+
+    public static void incrementar(String nome) {
+        contador(nome).increment();
+    }
+
+    public static Histograma histograma(String nome) {
+        Histograma h = histogramas.get(nome);
+        return h != null ? h : histogramas.computeIfAbsent(nome, k -> new Histograma());
+    }
+
+    /** Registra (ou troca) um medidor; o valor é lido a cada resumo e a cada evento JFR periódico. */
+    public static void medidor(String nome, LongSupplier valor) {
+        medidores.put(nome, valor);
+    }
+
+    // ----------------------
+    // RESUMO / ARQUIVO
+    // ----------------------
+    public static String resumo() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Métricas em ").append(LocalDateTime.now().format(FMT)).append('\n');
+
+        sb.append("\n-- Contadores --\n");
+        for (Map.Entry<String, LongAdder> e : contadores.entrySet()) {
+            sb.append(String.format("%-34s %12d%n", e.getKey(), e.getValue().sum()));
+        }
+
+        sb.append("\n-- Medidores --\n");
+        for (Map.Entry<String, LongSupplier> e : medidores.entrySet()) {
+            sb.append(String.format("%-34s %12s%n", e.getKey(), ler(e.getValue())));
+        }
+
+        sb.append("\n-- Tempos (ms) --\n");
+        sb.append(String.format("%-34s %8s %9s %9s %9s %9s %9s %9s%n",
+                "operação", "qtd", "média", "p50", "p90", "p99", "p99.9", "máx"));
+        for (Map.Entry<String, Histograma> e : histogramas.entrySet()) {
+            Histograma h = e.getValue();
+            sb.append(String.format("%-34s %8d %9s %9s %9s %9s %9s %9s%n", e.getKey(), h.quantidade(),
+                    ms(h.media()), ms(h.percentil(50)), ms(h.percentil(90)), ms(h.percentil(99)),
+                    ms(h.percentil(99.9)), ms(h.maximo())));
+        }
+        return sb.toString();
+    }
+
+    /** Grava o resumo no arquivo (temporário + rename). */
+    public static void gravar(Path p) throws IOException {
+        Path tmp = p.resolveSibling(p.getFileName() + ".tmp");
+        Files.createDirectories(p.toAbsolutePath().getParent());
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write(resumo());
+        }
+        Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void emitirMedidores() {
+        for (Map.Entry<String, LongSupplier> e : medidores.entrySet()) {
+            EventoMedidor ev = new EventoMedidor();
+            ev.nome = e.getKey();
+            try {
+                ev.valor = e.getValue().getAsLong();
+            } catch (RuntimeException ex) {
+                continue;
+            }
+            ev.commit();
+        }
+    }
+
+    // medidor que falhou não derruba o resumo
+    private static String ler(LongSupplier s) {
+        try {
+            return Long.toString(s.getAsLong());
+        } catch (RuntimeException e) {
+            return "erro";
+        }
+    }
+
+    private static String ms(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,93 @@
+package main.java.sistema.objetos;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diferença do turno 2 para o turno 1 do mesmo dia, mantida incrementalmente.
+ *
+ * As máquinas acumulam o dia inteiro: o turno 2 guarda as leituras acumuladas e uma máquina com a
+ * diferença (ver {@link RegrasFechamento#ajustarTurno2}). Aqui ficam em cache, por data, os totais
+ * das máquinas do turno 1 e o turno 2 do dia, então criar, editar ou excluir qualquer um dos dois
+ * refaz a diferença em O(1), sem procurar o outro turno nem somar máquinas de novo.
+ *
+ * Os métodos devolvem o turno 2 cuja diferença mudou, para quem chamou gravar e atualizar seus
+ * índices; turnos 2 antigos, sem leituras, ficam como estão.
+ */
+public class DeltaTurnos {
+
+    private record Registro(LocalDate data, int turno) {}
+
+    private final Map<LocalDate, long[]> turno1 = new HashMap<>(); // crédito, débito, pix em centavos
+    private final Map<LocalDate, Fechamento> turno2 = new HashMap<>();
+    private final Map<Long, Registro> registrados = new HashMap<>();
+
+    public DeltaTurnos() {}
+
+    public DeltaTurnos(Collection<Fechamento> lista) {
+        for (Fechamento f : lista) adicionar(f);
+    }
+
+    /** Turno 2 alterado pela entrada de {@code f} (o próprio f, se for turno 2 e mudou), ou null. */
+    public Fechamento adicionar(Fechamento f) {
+        if (f.getData() == null) return null;
+        registrados.put(f.getId(), new Registro(f.getData(), f.getTurno()));
+
+        if (f.getTurno() == 1) {
+            turno1.put(f.getData(), new long[] {
+                    f.totalCreditoMaquinas().centavos(), f.totalDebitoMaquinas().centavos(), f.totalPixMaquinas().centavos()});
+        } else {
+            turno2.put(f.getData(), f);
+        }
+        return recalcular(f.getData());
+    }
+
+    /** Turno 2 alterado pela saída de {@code f} (ex.: excluiu o turno 1 do dia), ou null. */
+    public Fechamento remover(Fechamento f) {
+        Registro r = esquecer(f);
+        return r == null || r.turno() != 1 ? null : recalcular(r.data());
+    }
+
+    /** Tira da memória sem recalcular nada (mês descarregado). */
+    public void descartar(Fechamento f) {
+        esquecer(f);
+    }
+
+    /**
+     * Depois de uma edição de {@code f} (máquinas, data ou turno): turnos 2 de outros fechamentos
+     * cuja diferença mudou. A diferença do próprio f, se for turno 2, já fica refeita.
+     */
+    public List<Fechamento> atualizar(Fechamento f) {
+        List<Fechamento> out = new ArrayList<>(2);
+        Fechamento a = remover(f);
+        Fechamento b = adicionar(f);
+        if (a != null && a != f) out.add(a);
+        if (b != null && b != f && b != a) out.add(b);
+        return out;
+    }
+
+    private Registro esquecer(Fechamento f) {
+        Registro r = registrados.remove(f.getId());
+        if (r == null) return null;
+        if (r.turno() == 1) {
+            turno1.remove(r.data());
+        } else if (turno2.get(r.data()) == f) {
+            turno2.remove(r.data());
+        }
+        return r;
+    }
+
+    private Fechamento recalcular(LocalDate data) {
+        Fechamento t2 = turno2.get(data);
+        if (t2 == null) return null;
+        long[] t1 = turno1.get(data);
+        boolean mudou = t1 == null
+                ? RegrasFechamento.diferencaTurno2(t2, 0, 0, 0)
+                : RegrasFechamento.diferencaTurno2(t2, t1[0], t1[1], t1[2]);
+        return mudou ? t2 : null;
+    }
+}
@@ -1,8 +1,11 @@
 package main.java.sistema.objetos;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -11,21 +14,36 @@ import java.util.List;
  */
 public class Fechamento {
 
+    private long id; // identidade usada pelo journal (0 = ainda não registrado)
     private String responsavel;
     private LocalDate data;
     private int turno; // 1 = manhã, 2 = tarde/noite
 
     private final List<MaquinaCartao> maquinas = new ArrayList<>();
+    private final List<MaquinaCartao> maquinasView = Collections.unmodifiableList(maquinas);
+
+    // totais das máquinas, mantidos por addMaquina/clearMaquinas e pelos setters de MaquinaCartao
+    private Valor totalCredito = Valor.ZERO;
+    private Valor totalDebito = Valor.ZERO;
+    private Valor totalPix = Valor.ZERO;
+
+    // turno 2: leituras acumuladas do dia por máquina (líquido e bruto); as máquinas ficam só com a
+    // diferença para o turno 1, mantida por DeltaTurnos. Vazio no turno 1 e em turnos 2 antigos.
+    private final List<MaquinaCartao> leituras = new ArrayList<>();
+    private final List<MaquinaCartao> leiturasView = Collections.unmodifiableList(leituras);
+    private long leituraCredito;
+    private long leituraDebito;
+    private long leituraPix;
 
     // valores informados pelo relatório (operadora / cofre)
-    private double relatorioCredito;
-    private double relatorioDebito;
-    private double relatorioPix;
-    private double relatorioDinheiro;
+    private Valor relatorioCredito = Valor.ZERO;
+    private Valor relatorioDebito = Valor.ZERO;
+    private Valor relatorioPix = Valor.ZERO;
+    private Valor relatorioDinheiro = Valor.ZERO;
 
     // valores contados/entrada
-    private double entradaDinheiro;
-    private double trocoInicial;
+    private Valor entradaDinheiro = Valor.ZERO;
+    private Valor trocoInicial = Valor.ZERO;
 
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ISO_LOCAL_DATE; // yyyy-MM-dd
 
@@ -38,6 +56,12 @@ public class Fechamento {
     }
 
     // getters / setters
+    public long getId() { return id; }
+    public void setId(long id) {
+        if (id < 0) throw new IllegalArgumentException("Id inválido.");
+        this.id = id;
+    }
+
     public String getResponsavel() { return responsavel; }
     public void setResponsavel(String responsavel) {
         if (responsavel == null || responsavel.isBlank()) throw new IllegalArgumentException("Responsável inválido.");
@@ -56,99 +80,144 @@ public class Fechamento {
         this.turno = turno;
     }
 
-    public List<MaquinaCartao> getMaquinas() { return maquinas; }
+    /** Somente leitura: alterações passam por addMaquina/clearMaquinas ou pelos setters da máquina. */
+    public List<MaquinaCartao> getMaquinas() { return maquinasView; }
     public void addMaquina(MaquinaCartao m) {
         if (m == null) throw new IllegalArgumentException("Máquina não pode ser nula.");
+        if (m.dono != null && m.dono != this) throw new IllegalArgumentException("Máquina já pertence a outro fechamento.");
+        ajustarTotais(m.getCredito().centavos(), m.getDebito().centavos(), m.getPix().centavos());
+        m.dono = this;
         maquinas.add(m);
     }
-    public void clearMaquinas() { maquinas.clear(); }
+    public void clearMaquinas() {
+        for (MaquinaCartao m : maquinas) m.dono = null;
+        maquinas.clear();
+        totalCredito = Valor.ZERO;
+        totalDebito = Valor.ZERO;
+        totalPix = Valor.ZERO;
+    }
 
-    public double getRelatorioCredito() { return relatorioCredito; }
-    public void setRelatorioCredito(double relatorioCredito) {
+    /** Somente leitura (as leituras são cópias, sem dono): para mudar, clearLeituras + addLeitura. */
+    public List<MaquinaCartao> getLeituras() { return leiturasView; }
+    public boolean temLeituras() { return !leituras.isEmpty(); }
+    public void addLeitura(MaquinaCartao m) {
+        if (m == null) throw new IllegalArgumentException("Leitura não pode ser nula.");
+        long credito = Math.addExact(leituraCredito, m.getCredito().centavos());
+        long debito = Math.addExact(leituraDebito, m.getDebito().centavos());
+        long pix = Math.addExact(leituraPix, m.getPix().centavos());
+        leituras.add(m.copia());
+        leituraCredito = credito;
+        leituraDebito = debito;
+        leituraPix = pix;
+    }
+    public void clearLeituras() {
+        leituras.clear();
+        leituraCredito = 0;
+        leituraDebito = 0;
+        leituraPix = 0;
+    }
+
+    // totais das leituras acumuladas, em centavos
+    public long leituraCredito() { return leituraCredito; }
+    public long leituraDebito() { return leituraDebito; }
+    public long leituraPix() { return leituraPix; }
+
+    // chamado por MaquinaCartao quando um valor muda (deltas em centavos); estouro lança
+    // ArithmeticException antes de mexer em qualquer total
+    void ajustarTotais(long credito, long debito, long pix) {
+        long c = Math.addExact(totalCredito.centavos(), credito);
+        long d = Math.addExact(totalDebito.centavos(), debito);
+        long p = Math.addExact(totalPix.centavos(), pix);
+        if (credito != 0) totalCredito = Valor.deCentavos(c);
+        if (debito != 0) totalDebito = Valor.deCentavos(d);
+        if (pix != 0) totalPix = Valor.deCentavos(p);
+    }
+
+    public Valor getRelatorioCredito() { return relatorioCredito; }
+    public void setRelatorioCredito(Valor relatorioCredito) {
         validarNaoNegativo(relatorioCredito, "Relatório Crédito");
         this.relatorioCredito = relatorioCredito;
     }
 
-    public double getRelatorioDebito() { return relatorioDebito; }
-    public void setRelatorioDebito(double relatorioDebito) {
+    public Valor getRelatorioDebito() { return relatorioDebito; }
+    public void setRelatorioDebito(Valor relatorioDebito) {
         validarNaoNegativo(relatorioDebito, "Relatório Débito");
         this.relatorioDebito = relatorioDebito;
     }
 
-    public double getRelatorioPix() { return relatorioPix; }
-    public void setRelatorioPix(double relatorioPix) {
+    public Valor getRelatorioPix() { return relatorioPix; }
+    public void setRelatorioPix(Valor relatorioPix) {
         validarNaoNegativo(relatorioPix, "Relatório Pix");
         this.relatorioPix = relatorioPix;
     }
 
-    public double getRelatorioDinheiro() { return relatorioDinheiro; }
-    public void setRelatorioDinheiro(double relatorioDinheiro) {
+    public Valor getRelatorioDinheiro() { return relatorioDinheiro; }
+    public void setRelatorioDinheiro(Valor relatorioDinheiro) {
         validarNaoNegativo(relatorioDinheiro, "Relatório Dinheiro");
         this.relatorioDinheiro = relatorioDinheiro;
     }
 
-    public double getEntradaDinheiro() { return entradaDinheiro; }
-    public void setEntradaDinheiro(double entradaDinheiro) {
+    public Valor getEntradaDinheiro() { return entradaDinheiro; }
+    public void setEntradaDinheiro(Valor entradaDinheiro) {
         validarNaoNegativo(entradaDinheiro, "Entrada Dinheiro");
         this.entradaDinheiro = entradaDinheiro;
     }
 
-    public double getTrocoInicial() { return trocoInicial; }
-    public void setTrocoInicial(double trocoInicial) {
+    public Valor getTrocoInicial() { return trocoInicial; }
+    public void setTrocoInicial(Valor trocoInicial) {
         validarNaoNegativo(trocoInicial, "Troco Inicial");
         this.trocoInicial = trocoInicial;
     }
 
-    private void validarNaoNegativo(double v, String nome) {
-        if (v < 0) throw new IllegalArgumentException(nome + " não pode ser negativo.");
+    private void validarNaoNegativo(Valor v, String nome) {
+        if (v == null) throw new IllegalArgumentException(nome + " não pode ser nulo.");
+        if (v.isNegativo()) throw new IllegalArgumentException(nome + " não pode ser negativo.");
     }
 
     // totais por tipo calculados nas máquinas
-    public double totalCreditoMaquinas() {
-        return maquinas.stream().mapToDouble(MaquinaCartao::getCredito).sum();
-    }
-    public double totalDebitoMaquinas() {
-        return maquinas.stream().mapToDouble(MaquinaCartao::getDebito).sum();
-    }
-    public double totalPixMaquinas() {
-        return maquinas.stream().mapToDouble(MaquinaCartao::getPix).sum();
-    }
+    public Valor totalCreditoMaquinas() { return totalCredito; }
+    public Valor totalDebitoMaquinas() { return totalDebito; }
+    public Valor totalPixMaquinas() { return totalPix; }
 
     // aliases
-    public double getTotalCredito() { return totalCreditoMaquinas(); }
-    public double getTotalDebito() { return totalDebitoMaquinas(); }
-    public double getTotalPix() { return totalPixMaquinas(); }
+    public Valor getTotalCredito() { return totalCreditoMaquinas(); }
+    public Valor getTotalDebito() { return totalDebitoMaquinas(); }
+    public Valor getTotalPix() { return totalPixMaquinas(); }
 
     // diferenças
-    public double diferencaCredito() {
-        return totalCreditoMaquinas() - relatorioCredito;
+    public Valor diferencaCredito() {
+        return totalCredito.menos(relatorioCredito);
     }
-    public double diferencaDebito() {
-        return totalDebitoMaquinas() - relatorioDebito;
+    public Valor diferencaDebito() {
+        return totalDebito.menos(relatorioDebito);
     }
-    public double diferencaPix() {
-        return totalPixMaquinas() - relatorioPix;
+    public Valor diferencaPix() {
+        return totalPix.menos(relatorioPix);
     }
-    public double diferencaDinheiro() {
-        return entradaDinheiro - relatorioDinheiro - trocoInicial;
+    public Valor diferencaDinheiro() {
+        return entradaDinheiro.menos(relatorioDinheiro).menos(trocoInicial);
     }
 
-    public double getDiferencaCredito() { return diferencaCredito(); }
-    public double getDiferencaDebito() { return diferencaDebito(); }
-    public double getDiferencaPix() { return diferencaPix(); }
-    public double getDiferencaDinheiro() { return diferencaDinheiro(); }
+    public Valor getDiferencaCredito() { return diferencaCredito(); }
+    public Valor getDiferencaDebito() { return diferencaDebito(); }
+    public Valor getDiferencaPix() { return diferencaPix(); }
+    public Valor getDiferencaDinheiro() { return diferencaDinheiro(); }
 
     // 🔥 NOVO: resultado total do turno
-    public double getResultadoFinalTurno() {
-        return diferencaCredito()
-                + diferencaDebito()
-                + diferencaPix()
-                + diferencaDinheiro();
+    public Valor getResultadoFinalTurno() {
+        long c = Math.subtractExact(totalCredito.centavos(), relatorioCredito.centavos());
+        c = Math.addExact(c, Math.subtractExact(totalDebito.centavos(), relatorioDebito.centavos()));
+        c = Math.addExact(c, Math.subtractExact(totalPix.centavos(), relatorioPix.centavos()));
+        c = Math.addExact(c, entradaDinheiro.centavos());
+        c = Math.subtractExact(c, relatorioDinheiro.centavos());
+        c = Math.subtractExact(c, trocoInicial.centavos());
+        return Valor.deCentavos(c);
     }
 
     // persistência
     public List<String> toBlockLines() {
         List<String> out = new ArrayList<>();
+        out.add("Id:" + id);
         out.add("Responsável:" + escape(responsavel == null ? "" : responsavel));
         out.add("Data:" + (data == null ? "" : data.format(DATE_FMT)));
         out.add("Turno:" + turno);
@@ -156,67 +225,32 @@ public class Fechamento {
         for (MaquinaCartao m : maquinas) {
             out.add("Máquina:" + m.toLine());
         }
-        out.add(String.format("Relatório crédito:%.2f", relatorioCredito));
-        out.add(String.format("Relatório débito:%.2f", relatorioDebito));
-        out.add(String.format("Relatório pix:%.2f", relatorioPix));
-        out.add(String.format("Dinheiro em caixa:%.2f", entradaDinheiro));
-        out.add(String.format("Relatório dinheiro:%.2f", relatorioDinheiro));
-        out.add(String.format("Troco:%.2f", trocoInicial));
+        for (MaquinaCartao m : leituras) {
+            out.add("Leitura:" + m.toLine());
+        }
+        out.add("Relatório crédito:" + relatorioCredito);
+        out.add("Relatório débito:" + relatorioDebito);
+        out.add("Relatório pix:" + relatorioPix);
+        out.add("Dinheiro em caixa:" + entradaDinheiro);
+        out.add("Relatório dinheiro:" + relatorioDinheiro);
+        out.add("Troco:" + trocoInicial);
         out.add("Fim");
         return out;
     }
 
+    /** Lê um bloco de {@link #toBlockLines()}; o parse em si fica em {@link ParserBloco}. */
     public static Fechamento fromBlockLines(List<String> block) {
-        Fechamento f = new Fechamento();
+        StringBuilder sb = new StringBuilder(256);
+        for (String ln : block) sb.append(ln).append('\n');
+        if (block.isEmpty() || !"Fim".equals(block.get(block.size() - 1).trim())) sb.append("Fim\n");
         try {
-            int i = 0;
-            while (i < block.size()) {
-                String ln = block.get(i);
-                if (ln.startsWith("Responsável:")) {
-                    f.setResponsavel(unescape(ln.substring(5)));
-                } else if (ln.startsWith("Data:")) {
-                    String dateStr = ln.substring(5);
-                    if (!dateStr.isBlank()) {
-                        f.setData(LocalDate.parse(dateStr, DATE_FMT));
-                    }
-                } else if (ln.startsWith("Turno:")) {
-                    String t = ln.substring(6);
-                    if (!t.isBlank()) f.setTurno(Integer.parseInt(t));
-                } else if (ln.startsWith("Máquinas:")) {
-                    int n = Integer.parseInt(ln.substring(9));
-                    i++;
-                    for (int m = 0; m < n && i < block.size(); m++, i++) {
-                        String ml = block.get(i);
-                        if (!ml.startsWith("Máquina:")) throw new IllegalArgumentException("Máquina esperada: " + ml);
-                        MaquinaCartao maq = MaquinaCartao.fromLine(ml.substring(8));
-                        f.addMaquina(maq);
-                    }
-                    i--;
-                } else if (ln.startsWith("Relatório crédito:")) {
-                    f.setRelatorioCredito(Double.parseDouble(ln.substring(7)));
-                } else if (ln.startsWith("Relatório débito:")) {
-                    f.setRelatorioDebito(Double.parseDouble(ln.substring(6)));
-                } else if (ln.startsWith("Relatório pix:")) {
-                    f.setRelatorioPix(Double.parseDouble(ln.substring(6)));
-                } else if (ln.startsWith("Dinheiro em caixa:")) {
-                    f.setEntradaDinheiro(Double.parseDouble(ln.substring(12)));
-                } else if (ln.startsWith("Relatório dinheiro:")) {
-                    f.setRelatorioDinheiro(Double.parseDouble(ln.substring(6)));
-                } else if (ln.startsWith("Troco:")) {
-                    f.setTrocoInicial(Double.parseDouble(ln.substring(6)));
-                } else if (ln.startsWith("Fim")) {
-                    break;
-                }
-                i++;
-            }
-            return f;
+            return new ParserBloco(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8))).proximo();
         } catch (Exception e) {
             throw new IllegalArgumentException("Erro ao parsear bloco: " + e.getMessage(), e);
         }
     }
 
     private static String escape(String s) { return s.replace("\n", " ").replace("\r", " ").trim(); }
-    private static String unescape(String s) { return s; }
 
     @Override
     public String toString() {
@@ -231,22 +265,29 @@ public class Fechamento {
         for (MaquinaCartao m : maquinas) {
             sb.append(String.format("Máquina %d: %s\n", idx++, m.toString()));
         }
+        if (!leituras.isEmpty()) {
+            sb.append("(diferença para o turno 1; leituras acumuladas abaixo)\n");
+            idx = 1;
+            for (MaquinaCartao m : leituras) {
+                sb.append(String.format("Leitura %d: %s\n", idx++, m.toString()));
+            }
+        }
 
         sb.append("\n=== Relatórios informados ===\n");
-        sb.append(String.format("Crédito (rel): R$ %.2f | Máquinas (líq): R$ %.2f | Dif: R$ %.2f\n",
+        sb.append(String.format("Crédito (rel): R$ %s | Máquinas (líq): R$ %s | Dif: R$ %s\n",
                 relatorioCredito, totalCreditoMaquinas(), diferencaCredito()));
-        sb.append(String.format("Débito  (rel): R$ %.2f | Máquinas (líq): R$ %.2f | Dif: R$ %.2f\n",
+        sb.append(String.format("Débito  (rel): R$ %s | Máquinas (líq): R$ %s | Dif: R$ %s\n",
                 relatorioDebito, totalDebitoMaquinas(), diferencaDebito()));
-        sb.append(String.format("Pix     (rel): R$ %.2f | Máquinas : R$ %.2f | Dif: R$ %.2f\n",
+        sb.append(String.format("Pix     (rel): R$ %s | Máquinas : R$ %s | Dif: R$ %s\n",
                 relatorioPix, totalPixMaquinas(), diferencaPix()));
 
         sb.append("\n=== Dinheiro ===\n");
-        sb.append(String.format("Entrada contada: R$ %.2f | Relatório: R$ %.2f | Dif: R$ %.2f\n",
+        sb.append(String.format("Entrada contada: R$ %s | Relatório: R$ %s | Dif: R$ %s\n",
                 entradaDinheiro, relatorioDinheiro, diferencaDinheiro()));
-        sb.append(String.format("Troco inicial: R$ %.2f\n", trocoInicial));
+        sb.append(String.format("Troco inicial: R$ %s\n", trocoInicial));
 
         sb.append("\n=== Resultado Final do Turno ===\n");
-        sb.append(String.format("TOTAL: R$ %.2f\n", getResultadoFinalTurno()));
+        sb.append(String.format("TOTAL: R$ %s\n", getResultadoFinalTurno()));
 
         sb.append("====================\n");
         return sb.toString();
@@ -0,0 +1,147 @@
+package main.java.sistema.objetos;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Índice em memória dos fechamentos por id, por (data, turno) e por responsável.
+ * Cada data guarda um array [turno1, turno2]; o índice lembra a chave com que cada
+ * fechamento foi indexado, então edições de data/turno/responsável só precisam de atualizar(f).
+ */
+public class FechamentoIndice {
+
+    private record Chave(LocalDate data, int turno, String responsavel) {}
+
+    private final NavigableMap<LocalDate, Fechamento[]> porData = new TreeMap<>();
+    private final Map<String, Set<Fechamento>> porResponsavel = new HashMap<>();
+    private final Map<Long, Chave> chaves = new HashMap<>();
+    private final Map<Long, Fechamento> porId = new HashMap<>();
+
+    public FechamentoIndice() {}
+
+    public FechamentoIndice(Collection<Fechamento> lista) {
+        for (Fechamento f : lista) adicionar(f);
+    }
+
+    public void adicionar(Fechamento f) {
+        Chave c = new Chave(f.getData(), f.getTurno(), normalizar(f.getResponsavel()));
+        chaves.put(f.getId(), c);
+        porId.put(f.getId(), f);
+
+        if (c.data() != null && (c.turno() == 1 || c.turno() == 2)) {
+            Fechamento[] turnos = porData.computeIfAbsent(c.data(), d -> new Fechamento[2]);
+            Fechamento anterior = turnos[c.turno() - 1];
+            if (anterior != null && anterior != f) {
+                System.err.println("Fechamento duplicado para " + c.data() + " turno " + c.turno()
+                        + " (id " + anterior.getId() + " e " + f.getId() + "); usando o mais recente.");
+            }
+            turnos[c.turno() - 1] = f;
+        }
+        if (c.responsavel() != null) {
+            porResponsavel.computeIfAbsent(c.responsavel(), r -> new LinkedHashSet<>()).add(f);
+        }
+    }
+
+    public void remover(Fechamento f) {
+        Chave c = chaves.remove(f.getId());
+        if (c == null) return;
+        porId.remove(f.getId());
+
+        if (c.data() != null) {
+            Fechamento[] turnos = porData.get(c.data());
+            if (turnos != null) {
+                if (turnos[c.turno() - 1] == f) turnos[c.turno() - 1] = null;
+                if (turnos[0] == null && turnos[1] == null) porData.remove(c.data());
+            }
+        }
+        if (c.responsavel() != null) {
+            Set<Fechamento> doResp = porResponsavel.get(c.responsavel());
+            if (doResp != null) {
+                doResp.remove(f);
+                if (doResp.isEmpty()) porResponsavel.remove(c.responsavel());
+            }
+        }
+    }
+
+    /** Reindexa depois de editar data, turno ou responsável. */
+    public void atualizar(Fechamento f) {
+        remover(f);
+        adicionar(f);
+    }
+
+    /** Fechamento pelo id (o do repositório, que não muda em edições), ou null. */
+    public Fechamento buscar(long id) {
+        return porId.get(id);
+    }
+
+    /** Todos os fechamentos indexados, sem ordem definida. */
+    public Collection<Fechamento> todos() {
+        return Collections.unmodifiableCollection(porId.values());
+    }
+
+    /** Fechamento da data/turno, ou null. */
+    public Fechamento buscar(LocalDate data, int turno) {
+        Fechamento[] turnos = porData.get(data);
+        return turnos == null ? null : turnos[turno - 1];
+    }
+
+    /** Fechamentos entre as datas (inclusive), em ordem de data e turno. */
+    public List<Fechamento> entre(LocalDate inicio, LocalDate fim) {
+        List<Fechamento> out = new ArrayList<>();
+        for (Fechamento[] turnos : porData.subMap(inicio, true, fim, true).values()) {
+            if (turnos[0] != null) out.add(turnos[0]);
+            if (turnos[1] != null) out.add(turnos[1]);
+        }
+        return out;
+    }
+
+    /**
+     * Acrescenta a {@code out} até {@code limite} fechamentos entre as datas que passam no filtro,
+     * começando logo depois do cursor (para {@link PaginaFechamentos}).
+     */
+    void coletar(LocalDate de, LocalDate ate, FiltroFechamentos filtro, PaginaFechamentos.Cursor depois,
+                 boolean decrescente, int limite, List<Fechamento> out) {
+        if (depois != null) {
+            if (decrescente && depois.data().isBefore(ate)) ate = depois.data();
+            if (!decrescente && depois.data().isAfter(de)) de = depois.data();
+        }
+        if (de.isAfter(ate) || limite <= 0) return;
+
+        NavigableMap<LocalDate, Fechamento[]> faixa = porData.subMap(de, true, ate, true);
+        int n = 0;
+        for (Map.Entry<LocalDate, Fechamento[]> e : (decrescente ? faixa.descendingMap() : faixa).entrySet()) {
+            boolean noCursor = depois != null && e.getKey().equals(depois.data());
+            for (int i = 0; i < 2; i++) {
+                int t = decrescente ? 2 - i : 1 + i;
+                if (noCursor && (decrescente ? t >= depois.turno() : t <= depois.turno())) continue;
+                Fechamento f = e.getValue()[t - 1];
+                if (f == null || !filtro.aceita(f)) continue;
+                out.add(f);
+                if (++n == limite) return;
+            }
+        }
+    }
+
+    public List<Fechamento> porResponsavel(String responsavel) {
+        Set<Fechamento> doResp = porResponsavel.get(normalizar(responsavel));
+        return doResp == null ? List.of() : new ArrayList<>(doResp);
+    }
+
+    public int tamanho() {
+        return chaves.size();
+    }
+
+    private static String normalizar(String responsavel) {
+        return responsavel == null ? null : responsavel.trim().toLowerCase(Locale.ROOT);
+    }
+}
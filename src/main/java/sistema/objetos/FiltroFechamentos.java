@@ -0,0 +1,43 @@
+package main.java.sistema.objetos;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Filtro da listagem paginada ({@link PaginaFechamentos}). Campo null, turno 0 ou
+ * {@code soComDiferenca} false = sem filtro naquele campo. Responsável compara sem diferenciar
+ * maiúsculas e espaços nas pontas, como o índice por responsável.
+ */
+public record FiltroFechamentos(LocalDate inicio, LocalDate fim, int turno, String responsavel, boolean soComDiferenca) {
+
+    public static final FiltroFechamentos TODOS = new FiltroFechamentos(null, null, 0, null, false);
+
+    public FiltroFechamentos {
+        if (turno != 0 && turno != 1 && turno != 2) throw new IllegalArgumentException("Turno deve ser 1 ou 2.");
+        if (inicio != null && fim != null && fim.isBefore(inicio)) {
+            throw new IllegalArgumentException("Data final antes da inicial.");
+        }
+        if (responsavel != null) {
+            responsavel = responsavel.trim().toLowerCase(Locale.ROOT);
+            if (responsavel.isEmpty()) responsavel = null;
+        }
+    }
+
+    /** Data e turno já vêm limitados pela paginação; aqui só os demais campos. */
+    boolean aceita(Fechamento f) {
+        if (turno != 0 && f.getTurno() != turno) return false;
+        if (responsavel != null
+                && (f.getResponsavel() == null || !f.getResponsavel().trim().toLowerCase(Locale.ROOT).equals(responsavel))) {
+            return false;
+        }
+        return !soComDiferenca || temDiferenca(f);
+    }
+
+    /** Alguma das diferenças (crédito, débito, pix ou dinheiro) diferente de zero. */
+    public static boolean temDiferenca(Fechamento f) {
+        return f.totalCreditoMaquinas().centavos() != f.getRelatorioCredito().centavos()
+                || f.totalDebitoMaquinas().centavos() != f.getRelatorioDebito().centavos()
+                || f.totalPixMaquinas().centavos() != f.getRelatorioPix().centavos()
+                || f.diferencaDinheiro().centavos() != 0;
+    }
+}
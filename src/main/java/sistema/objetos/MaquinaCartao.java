@@ -2,46 +2,92 @@ package main.java.sistema.objetos;
 
 public class MaquinaCartao {
 
-    private double credito;
-    private double debito;
-    private double pix;
+    private Valor credito = Valor.ZERO;
+    private Valor debito = Valor.ZERO;
+    private Valor pix = Valor.ZERO;
+
+    // valores digitados, antes da taxa (null = gravada antes de existirem; só o líquido acima)
+    private Valor brutoCredito;
+    private Valor brutoDebito;
+    private Valor brutoPix;
+
+    // fechamento que mantém os totais desta máquina (atribuído em Fechamento.addMaquina)
+    Fechamento dono;
 
     // Construtor vazio (requerido para carregamento)
     public MaquinaCartao() {}
 
     // Construtor usado no Principal
-    public MaquinaCartao(double credito, double debito, double pix) {
-        this.credito = credito;
-        this.debito = debito;
-        this.pix = pix;
+    public MaquinaCartao(Valor credito, Valor debito, Valor pix) {
+        this.credito = naoNulo(credito);
+        this.debito = naoNulo(debito);
+        this.pix = naoNulo(pix);
     }
 
-    public double getCredito() {
+    public Valor getCredito() {
         return credito;
     }
 
-    public void setCredito(double credito) {
+    public void setCredito(Valor credito) {
+        naoNulo(credito);
+        if (dono != null) dono.ajustarTotais(Math.subtractExact(credito.centavos(), this.credito.centavos()), 0, 0);
         this.credito = credito;
     }
 
-    public double getDebito() {
+    public Valor getDebito() {
         return debito;
     }
 
-    public void setDebito(double debito) {
+    public void setDebito(Valor debito) {
+        naoNulo(debito);
+        if (dono != null) dono.ajustarTotais(0, Math.subtractExact(debito.centavos(), this.debito.centavos()), 0);
         this.debito = debito;
     }
 
-    public double getPix() {
+    public Valor getPix() {
         return pix;
     }
 
-    public void setPix(double pix) {
+    public void setPix(Valor pix) {
+        naoNulo(pix);
+        if (dono != null) dono.ajustarTotais(0, 0, Math.subtractExact(pix.centavos(), this.pix.centavos()));
         this.pix = pix;
     }
 
-    public double getTotal() {
-        return credito + debito + pix;
+    public boolean temBruto() {
+        return brutoCredito != null;
+    }
+
+    public Valor getBrutoCredito() { return brutoCredito; }
+    public Valor getBrutoDebito() { return brutoDebito; }
+    public Valor getBrutoPix() { return brutoPix; }
+
+    /** Valores antes da taxa; não mexe nos líquidos nem nos totais do fechamento. */
+    public void setBruto(Valor credito, Valor debito, Valor pix) {
+        if (naoNulo(credito).isNegativo() || naoNulo(debito).isNegativo() || naoNulo(pix).isNegativo()) {
+            throw new IllegalArgumentException("Valor bruto da máquina não pode ser negativo.");
+        }
+        this.brutoCredito = naoNulo(credito);
+        this.brutoDebito = naoNulo(debito);
+        this.brutoPix = naoNulo(pix);
+    }
+
+    /** Cópia sem dono, com os brutos. */
+    public MaquinaCartao copia() {
+        MaquinaCartao m = new MaquinaCartao(credito, debito, pix);
+        m.brutoCredito = brutoCredito;
+        m.brutoDebito = brutoDebito;
+        m.brutoPix = brutoPix;
+        return m;
+    }
+
+    public Valor getTotal() {
+        return credito.mais(debito).mais(pix);
+    }
+
+    private static Valor naoNulo(Valor v) {
+        if (v == null) throw new IllegalArgumentException("Valor da máquina não pode ser nulo.");
+        return v;
     }
 
     @Override
@@ -49,21 +95,25 @@ public class MaquinaCartao {
         return "Crédito: " + credito +
                 ", Débito: " + debito +
                 ", Pix: " + pix +
-                ", Total Máq: " + getTotal();
+                ", Total Máq: " + getTotal() +
+                (temBruto() ? " (bruto " + brutoCredito + " / " + brutoDebito + " / " + brutoPix + ")" : "");
     }
 
-    // Para salvar em arquivo
+    // Para salvar em arquivo: crédito;débito;pix[;bruto crédito;bruto débito;bruto pix]
     public String toLine() {
-        return credito + ";" + debito + ";" + pix;
+        String s = credito + ";" + debito + ";" + pix;
+        return temBruto() ? s + ";" + brutoCredito + ";" + brutoDebito + ";" + brutoPix : s;
     }
 
     // Para carregar do arquivo
     public static MaquinaCartao fromLine(String line) {
         String[] p = line.split(";");
-        return new MaquinaCartao(
-                Double.parseDouble(p[0]),
-                Double.parseDouble(p[1]),
-                Double.parseDouble(p[2])
+        MaquinaCartao m = new MaquinaCartao(
+                Valor.parse(p[0]),
+                Valor.parse(p[1]),
+                Valor.parse(p[2])
         );
+        if (p.length >= 6) m.setBruto(Valor.parse(p[3]), Valor.parse(p[4]), Valor.parse(p[5]));
+        return m;
     }
 }
@@ -0,0 +1,90 @@
+package main.java.sistema.objetos;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.function.Function;
+
+/**
+ * Uma página da listagem de fechamentos em ordem de data e turno, e o cursor da seguinte.
+ *
+ * O cursor é a (data, turno) do último item mostrado, então a próxima página começa logo depois
+ * dele mesmo que fechamentos tenham sido criados ou excluídos no meio. {@link #paginar} percorre
+ * só os meses necessários para encher a página (a partir do mês do cursor), cada um pelo seu
+ * {@link FechamentoIndice}: o custo de uma página não depende do tamanho do histórico.
+ */
+public record PaginaFechamentos(List<Fechamento> itens, Cursor proximo) {
+
+    /** Posição depois da qual a próxima página começa; texto "AAAA-MM-DD:turno". */
+    public record Cursor(LocalDate data, int turno) {
+
+        public static Cursor de(Fechamento f) {
+            return new Cursor(f.getData(), f.getTurno());
+        }
+
+        public static Cursor parse(String s) {
+            int i = s.lastIndexOf(':');
+            try {
+                if (i < 0) throw new IllegalArgumentException();
+                int turno = Integer.parseInt(s.substring(i + 1));
+                if (turno != 1 && turno != 2) throw new IllegalArgumentException();
+                return new Cursor(LocalDate.parse(s.substring(0, i)), turno);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Cursor inválido: " + s);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return data + ":" + turno;
+        }
+    }
+
+    public boolean temProxima() {
+        return proximo != null;
+    }
+
+    /**
+     * @param meses     meses que têm fechamentos
+     * @param porMes    índice com os fechamentos do mês (pode conter outros meses também)
+     * @param depois    cursor da página anterior, ou null para a primeira
+     * @param decrescente mais recentes primeiro
+     */
+    public static PaginaFechamentos paginar(NavigableSet<YearMonth> meses, Function<YearMonth, FechamentoIndice> porMes,
+                                            FiltroFechamentos filtro, Cursor depois, int tamanho, boolean decrescente) {
+        if (tamanho < 1) throw new IllegalArgumentException("Tamanho da página deve ser positivo.");
+
+        NavigableSet<YearMonth> faixa = meses;
+        if (filtro.inicio() != null) faixa = faixa.tailSet(YearMonth.from(filtro.inicio()), true);
+        if (filtro.fim() != null) faixa = faixa.headSet(YearMonth.from(filtro.fim()), true);
+        if (depois != null) {
+            YearMonth m = YearMonth.from(depois.data());
+            faixa = decrescente ? faixa.headSet(m, true) : faixa.tailSet(m, true);
+        }
+
+        // um item além da página diz se existe a próxima
+        List<Fechamento> out = new ArrayList<>(tamanho + 1);
+        for (YearMonth m : decrescente ? faixa.descendingSet() : faixa) {
+            LocalDate de = maior(m.atDay(1), filtro.inicio());
+            LocalDate ate = menor(m.atEndOfMonth(), filtro.fim());
+            porMes.apply(m).coletar(de, ate, filtro, depois, decrescente, tamanho + 1 - out.size(), out);
+            if (out.size() > tamanho) break;
+        }
+
+        if (out.size() <= tamanho) return new PaginaFechamentos(Collections.unmodifiableList(out), null);
+        out.remove(tamanho);
+        return new PaginaFechamentos(Collections.unmodifiableList(out), Cursor.de(out.get(tamanho - 1)));
+    }
+
+    private static LocalDate maior(LocalDate a, LocalDate b) {
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDate menor(LocalDate a, LocalDate b) {
+        return b == null || a.isBefore(b) ? a : b;
+    }
+}
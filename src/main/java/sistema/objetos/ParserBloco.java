@@ -0,0 +1,370 @@
+package main.java.sistema.objetos;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Parser dos blocos de texto gerados por {@link Fechamento#toBlockLines()}, lendo direto de um
+ * ByteBuffer UTF-8 (arquivo mapeado ou bytes do journal).
+ *
+ * A chave de cada linha é identificada por uma tabela de chaves em bytes, e números, datas e
+ * valores são lidos sem criar Strings intermediárias. Erros informam linha e coluna; depois de um
+ * erro o parser se ressincroniza no fim do bloco ("Fim") ou no próximo cabeçalho "#" do journal.
+ */
+public final class ParserBloco {
+
+    private enum Campo {
+        ID("Id"),
+        RESPONSAVEL("Responsável"),
+        DATA("Data"),
+        TURNO("Turno"),
+        MAQUINAS("Máquinas"),
+        MAQUINA("Máquina"),
+        LEITURA("Leitura"),
+        RELATORIO_CREDITO("Relatório crédito"),
+        RELATORIO_DEBITO("Relatório débito"),
+        RELATORIO_PIX("Relatório pix"),
+        ENTRADA_DINHEIRO("Dinheiro em caixa"),
+        RELATORIO_DINHEIRO("Relatório dinheiro"),
+        TROCO("Troco");
+
+        final byte[] chave;
+
+        Campo(String chave) {
+            this.chave = chave.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    // tabela de despacho: campos candidatos pelo tamanho da chave em bytes
+    private static final Campo[][] POR_TAMANHO = new Campo[32][];
+
+    static {
+        for (Campo c : Campo.values()) {
+            Campo[] atual = POR_TAMANHO[c.chave.length];
+            Campo[] novo = atual == null ? new Campo[1] : java.util.Arrays.copyOf(atual, atual.length + 1);
+            novo[novo.length - 1] = c;
+            POR_TAMANHO[c.chave.length] = novo;
+        }
+    }
+
+    private static final byte[] FIM = {'F', 'i', 'm'};
+
+    private final ByteBuffer buf;
+    private int linha = 1;
+
+    // linha corrente: [inicio, fim) já sem espaços nas pontas; proxima = início da linha seguinte
+    private int inicio;
+    private int fim;
+    private int proxima;
+
+    public ParserBloco(ByteBuffer buf) {
+        this(buf, 1);
+    }
+
+    /** @param linha número da primeira linha de {@code buf}, quando ele é um trecho de um arquivo maior */
+    public ParserBloco(ByteBuffer buf, int linha) {
+        this.buf = buf;
+        this.linha = linha;
+    }
+
+    /** Linha (1-based) em que o parser está. */
+    public int getLinha() {
+        return linha;
+    }
+
+    /** Pula linhas em branco; true se não há mais conteúdo. */
+    public boolean fim() {
+        while (buf.hasRemaining()) {
+            delimitarLinha();
+            if (inicio < fim) return false;
+            avancarLinha();
+        }
+        return true;
+    }
+
+    /** Primeiro byte da próxima linha não vazia, ou -1 no fim. */
+    public int espiar() {
+        return fim() ? -1 : buf.get(inicio);
+    }
+
+    /** Lê a próxima linha não vazia inteira (cabeçalhos do journal). */
+    public String lerLinha() {
+        if (fim()) return null;
+        String s = new String(bytes(inicio, fim), StandardCharsets.UTF_8);
+        avancarLinha();
+        return s;
+    }
+
+    /**
+     * Lê um bloco até "Fim".
+     * @throws IllegalArgumentException com linha/coluna do problema; o parser já fica posicionado
+     *         para o bloco seguinte
+     */
+    public Fechamento proximo() {
+        Fechamento f = new Fechamento();
+        int maquinasPendentes = 0;
+
+        while (true) {
+            if (fim()) throw erro(inicio, "bloco incompleto (sem \"Fim\")", false);
+
+            if (buf.get(inicio) == '#') {
+                // cabeçalho do journal no meio do bloco: registro anterior foi interrompido
+                throw erro(inicio, "bloco interrompido antes do \"Fim\"", false);
+            }
+
+            if (igual(inicio, fim, FIM)) {
+                IllegalArgumentException e = maquinasPendentes > 0
+                        ? erro(inicio, "faltam " + maquinasPendentes + " máquina(s)", false) : null;
+                avancarLinha();
+                if (e != null) throw e;
+                return f;
+            }
+
+            int doisPontos = indice(inicio, fim, (byte) ':');
+            Campo campo = doisPontos < 0 ? null : campo(inicio, doisPontos);
+
+            if (maquinasPendentes > 0 && campo != Campo.MAQUINA) {
+                throw erro(inicio, "máquina esperada", true);
+            }
+
+            if (campo != null) {
+                int v = pularEspacos(doisPontos + 1);
+                try {
+                    switch (campo) {
+                        case ID -> f.setId(inteiro(v, fim));
+                        case RESPONSAVEL -> f.setResponsavel(new String(bytes(v, fim), StandardCharsets.UTF_8));
+                        case DATA -> { if (v < fim) f.setData(data(v, fim)); }
+                        case TURNO -> { if (v < fim) f.setTurno(inteiro32(v, fim)); }
+                        case MAQUINAS -> maquinasPendentes = inteiro32(v, fim);
+                        case MAQUINA -> {
+                            f.addMaquina(maquina(v, fim));
+                            if (maquinasPendentes > 0) maquinasPendentes--;
+                        }
+                        case LEITURA -> f.addLeitura(maquina(v, fim));
+                        case RELATORIO_CREDITO -> f.setRelatorioCredito(Valor.deCentavos(centavos(v, fim)));
+                        case RELATORIO_DEBITO -> f.setRelatorioDebito(Valor.deCentavos(centavos(v, fim)));
+                        case RELATORIO_PIX -> f.setRelatorioPix(Valor.deCentavos(centavos(v, fim)));
+                        case ENTRADA_DINHEIRO -> f.setEntradaDinheiro(Valor.deCentavos(centavos(v, fim)));
+                        case RELATORIO_DINHEIRO -> f.setRelatorioDinheiro(Valor.deCentavos(centavos(v, fim)));
+                        case TROCO -> f.setTrocoInicial(Valor.deCentavos(centavos(v, fim)));
+                    }
+                } catch (ErroValor e) {
+                    throw erro(e.posicao, e.getMessage(), true);
+                } catch (IllegalArgumentException | ArithmeticException | java.time.DateTimeException e) {
+                    throw erro(v, e.getMessage(), true);
+                }
+            }
+            // linhas desconhecidas são ignoradas, como no formato original
+            avancarLinha();
+        }
+    }
+
+    // ----------------------
+    // LINHAS
+    // ----------------------
+    private void delimitarLinha() {
+        int p = buf.position();
+        int lim = buf.limit();
+        int nl = p;
+        while (nl < lim && buf.get(nl) != '\n') nl++;
+        proxima = nl < lim ? nl + 1 : lim;
+
+        int a = p;
+        int b = nl;
+        while (a < b && espaco(buf.get(a))) a++;
+        while (b > a && espaco(buf.get(b - 1))) b--;
+        inicio = a;
+        fim = b;
+    }
+
+    private void avancarLinha() {
+        buf.position(proxima);
+        linha++;
+    }
+
+    private int pularEspacos(int p) {
+        while (p < fim && espaco(buf.get(p))) p++;
+        return p;
+    }
+
+    private static boolean espaco(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private Campo campo(int de, int ate) {
+        int n = ate - de;
+        if (n >= POR_TAMANHO.length || POR_TAMANHO[n] == null) return null;
+        for (Campo c : POR_TAMANHO[n]) {
+            if (igual(de, ate, c.chave)) return c;
+        }
+        return null;
+    }
+
+    private boolean igual(int de, int ate, byte[] alvo) {
+        if (ate - de != alvo.length) return false;
+        for (int i = 0; i < alvo.length; i++) {
+            if (buf.get(de + i) != alvo[i]) return false;
+        }
+        return true;
+    }
+
+    private int indice(int de, int ate, byte b) {
+        for (int i = de; i < ate; i++) {
+            if (buf.get(i) == b) return i;
+        }
+        return -1;
+    }
+
+    private byte[] bytes(int de, int ate) {
+        byte[] out = new byte[ate - de];
+        for (int i = 0; i < out.length; i++) out[i] = buf.get(de + i);
+        return out;
+    }
+
+    // ----------------------
+    // VALORES
+    // ----------------------
+    private static final class ErroValor extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int posicao;
+
+        ErroValor(int posicao, String msg) {
+            super(msg, null, false, false);
+            this.posicao = posicao;
+        }
+    }
+
+    private long inteiro(int de, int ate) {
+        if (de >= ate) throw new ErroValor(de, "número vazio");
+        boolean neg = buf.get(de) == '-';
+        int i = neg ? de + 1 : de;
+        if (i >= ate) throw new ErroValor(de, "número inválido");
+        long v = 0;
+        for (; i < ate; i++) {
+            byte b = buf.get(i);
+            if (b < '0' || b > '9') throw new ErroValor(i, "dígito inválido '" + (char) b + "'");
+            v = digito(v, b - '0', de);
+        }
+        return neg ? -v : v;
+    }
+
+    private int inteiro32(int de, int ate) {
+        long v = inteiro(de, ate);
+        if (v != (int) v) throw new ErroValor(de, "número fora do intervalo");
+        return (int) v;
+    }
+
+    // v * 10 + d, sem estourar o long
+    private static long digito(long v, int d, int posicao) {
+        try {
+            return Math.addExact(Math.multiplyExact(v, 10), d);
+        } catch (ArithmeticException e) {
+            throw new ErroValor(posicao, "número fora do intervalo");
+        }
+    }
+
+    // mesmas regras de Valor.parse: ponto ou vírgula, 3ª casa arredonda meio para longe do zero
+    private long centavos(int de, int ate) {
+        if (de >= ate) throw new ErroValor(de, "valor vazio");
+        int i = de;
+        boolean neg = false;
+        byte b0 = buf.get(i);
+        if (b0 == '-' || b0 == '+') {
+            neg = b0 == '-';
+            i++;
+        }
+
+        long inteiro = 0;
+        int digitos = 0;
+        while (i < ate && buf.get(i) >= '0' && buf.get(i) <= '9') {
+            inteiro = digito(inteiro, buf.get(i++) - '0', de);
+            digitos++;
+        }
+
+        long frac = 0;
+        int casas = 0;
+        boolean arredonda = false;
+        if (i < ate && (buf.get(i) == '.' || buf.get(i) == ',')) {
+            i++;
+            while (i < ate && buf.get(i) >= '0' && buf.get(i) <= '9') {
+                int d = buf.get(i++) - '0';
+                if (casas < 2) frac = frac * 10 + d;
+                else if (casas == 2) arredonda = d >= 5;
+                casas++;
+                digitos++;
+            }
+        }
+
+        if (i < ate && (buf.get(i) == 'e' || buf.get(i) == 'E')) {
+            // notação científica: raro, delega
+            return Valor.parse(new String(bytes(de, ate), StandardCharsets.US_ASCII)).centavos();
+        }
+        if (i != ate || digitos == 0) throw new ErroValor(i, "valor inválido");
+
+        if (casas == 1) frac *= 10;
+        long c;
+        try {
+            c = Math.addExact(Math.multiplyExact(inteiro, 100), frac + (arredonda ? 1 : 0));
+        } catch (ArithmeticException e) {
+            throw new ErroValor(de, "valor fora do intervalo");
+        }
+        return neg ? -c : c;
+    }
+
+    // yyyy-MM-dd
+    private LocalDate data(int de, int ate) {
+        if (ate - de != 10 || buf.get(de + 4) != '-' || buf.get(de + 7) != '-') {
+            throw new ErroValor(de, "data inválida (esperado aaaa-mm-dd)");
+        }
+        int ano = (int) inteiro(de, de + 4);
+        int mes = (int) inteiro(de + 5, de + 7);
+        int dia = (int) inteiro(de + 8, de + 10);
+        return LocalDate.of(ano, mes, dia);
+    }
+
+    // crédito;débito;pix[;bruto crédito;bruto débito;bruto pix]
+    private MaquinaCartao maquina(int de, int ate) {
+        int p1 = indice(de, ate, (byte) ';');
+        int p2 = p1 < 0 ? -1 : indice(p1 + 1, ate, (byte) ';');
+        if (p2 < 0) throw new ErroValor(de, "máquina deve ter 3 valores separados por ';'");
+        int p3 = indice(p2 + 1, ate, (byte) ';');
+        MaquinaCartao m = new MaquinaCartao(
+                Valor.deCentavos(centavos(de, p1)),
+                Valor.deCentavos(centavos(p1 + 1, p2)),
+                Valor.deCentavos(centavos(p2 + 1, p3 < 0 ? ate : p3)));
+        if (p3 < 0) return m;
+
+        int p4 = indice(p3 + 1, ate, (byte) ';');
+        int p5 = p4 < 0 ? -1 : indice(p4 + 1, ate, (byte) ';');
+        if (p5 < 0) throw new ErroValor(p3, "máquina deve ter 3 ou 6 valores separados por ';'");
+        m.setBruto(
+                Valor.deCentavos(centavos(p3 + 1, p4)),
+                Valor.deCentavos(centavos(p4 + 1, p5)),
+                Valor.deCentavos(centavos(p5 + 1, ate)));
+        return m;
+    }
+
+    // ----------------------
+    // ERROS
+    // ----------------------
+    private IllegalArgumentException erro(int posicao, String msg, boolean ressincronizar) {
+        int coluna = 1;
+        for (int i = posicao - 1; i >= 0 && buf.get(i) != '\n'; i--) coluna++;
+        IllegalArgumentException e = new IllegalArgumentException(
+                "linha " + linha + ", coluna " + coluna + ": " + msg);
+
+        if (ressincronizar) {
+            // descarta até depois do "Fim" ou até o próximo cabeçalho do journal
+            avancarLinha();
+            while (!fim()) {
+                if (buf.get(inicio) == '#') break;
+                boolean eraFim = igual(inicio, fim, FIM);
+                avancarLinha();
+                if (eraFim) break;
+            }
+        }
+        return e;
+    }
+}
@@ -0,0 +1,118 @@
+package main.java.sistema.objetos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Regras aplicadas a um fechamento novo, as mesmas para o console e para as outras entradas:
+ * taxa sobre os valores das máquinas ({@link TabelaTaxas}) e, no turno 2, leituras acumuladas do dia + uma máquina com a
+ * diferença em relação ao turno 1 (as máquinas acumulam o dia inteiro).
+ */
+public final class RegrasFechamento {
+
+    // 0,97 em pontos-base (taxa de 3%), arredondado ao centavo por Valor.aplicarFator;
+    // vale quando a tabela de taxas não tem regra para a data
+    public static final int TAXA_FACTOR = 9_700;
+
+    private RegrasFechamento() {}
+
+    /**
+     * Máquinas com os valores lidos (brutos) -> líquidos pela tabela, na data do fechamento.
+     * Máquina que já traz o bruto (ex.: JSON exportado) usa ele, e não o líquido, como valor lido.
+     */
+    public static void aplicarTaxas(Fechamento f, TabelaTaxas taxas) {
+        List<MaquinaCartao> lidas = new ArrayList<>(f.getMaquinas());
+        f.clearMaquinas();
+        for (int i = 0; i < lidas.size(); i++) {
+            MaquinaCartao m = lidas.get(i);
+            if (m.temBruto()) m = new MaquinaCartao(m.getBrutoCredito(), m.getBrutoDebito(), m.getBrutoPix());
+            f.addMaquina(taxas.aplicar(m, f.getData(), i + 1));
+        }
+    }
+
+    /**
+     * Turno 2 recém-digitado: as máquinas (acumuladas do dia) passam a ser as leituras e ficam
+     * como máquina só a diferença para o turno 1 ({@code turno1} null = ainda sem turno 1).
+     * Devolve a máquina de diferença, ou null se o turno 2 não tem máquinas.
+     */
+    public static MaquinaCartao ajustarTurno2(Fechamento turno2, Fechamento turno1) {
+        if (!turno2.temLeituras()) {
+            for (MaquinaCartao m : turno2.getMaquinas()) turno2.addLeitura(m);
+        }
+        if (!turno2.temLeituras()) return null;
+        diferencaTurno2(turno2, turno1);
+        return turno2.getMaquinas().get(0);
+    }
+
+    /** {@link #diferencaTurno2(Fechamento, long, long, long)} com os totais do fechamento do turno 1 (null = zero). */
+    public static boolean diferencaTurno2(Fechamento turno2, Fechamento turno1) {
+        if (turno1 == null) return diferencaTurno2(turno2, 0, 0, 0);
+        return diferencaTurno2(turno2, turno1.totalCreditoMaquinas().centavos(),
+                turno1.totalDebitoMaquinas().centavos(), turno1.totalPixMaquinas().centavos());
+    }
+
+    /**
+     * Refaz a máquina de diferença do turno 2 a partir das leituras e dos totais do turno 1 (centavos).
+     * Não mexe em turnos 2 sem leituras (gravados antes delas existirem). true se algo mudou.
+     */
+    public static boolean diferencaTurno2(Fechamento turno2, long credito1, long debito1, long pix1) {
+        if (!turno2.temLeituras()) return false;
+        Valor c = Valor.deCentavos(turno2.leituraCredito() - credito1);
+        Valor d = Valor.deCentavos(turno2.leituraDebito() - debito1);
+        Valor p = Valor.deCentavos(turno2.leituraPix() - pix1);
+
+        if (turno2.getMaquinas().size() == 1) {
+            MaquinaCartao m = turno2.getMaquinas().get(0);
+            if (m.getCredito().equals(c) && m.getDebito().equals(d) && m.getPix().equals(p)) return false;
+            m.setCredito(c);
+            m.setDebito(d);
+            m.setPix(p);
+        } else {
+            turno2.clearMaquinas();
+            turno2.addMaquina(new MaquinaCartao(c, d, p));
+        }
+        return true;
+    }
+
+    /**
+     * Depois de trocar o turno numa edição: turno 1 volta a ter as leituras como máquinas,
+     * turno 2 passa a guardar as máquinas como leituras (a diferença é refeita por DeltaTurnos).
+     */
+    public static void trocarTurno(Fechamento f) {
+        if (f.getTurno() == 1 && f.temLeituras()) {
+            List<MaquinaCartao> lidas = new ArrayList<>(f.getLeituras());
+            f.clearLeituras();
+            f.clearMaquinas();
+            for (MaquinaCartao m : lidas) f.addMaquina(m.copia());
+        } else if (f.getTurno() == 2 && !f.temLeituras()) {
+            ajustarTurno2(f, null);
+        }
+    }
+
+    /** Campos obrigatórios e valores não negativos; lança IllegalArgumentException com o primeiro problema. */
+    public static void validar(Fechamento f) {
+        if (f.getResponsavel() == null || f.getResponsavel().isBlank()) {
+            throw new IllegalArgumentException("Responsável obrigatório.");
+        }
+        if (f.getData() == null) throw new IllegalArgumentException("Data obrigatória.");
+        if (f.getTurno() != 1 && f.getTurno() != 2) throw new IllegalArgumentException("Turno deve ser 1 ou 2.");
+
+        int i = 1;
+        for (MaquinaCartao m : f.getMaquinas()) {
+            if (m.getCredito().isNegativo() || m.getDebito().isNegativo() || m.getPix().isNegativo()) {
+                throw new IllegalArgumentException("Máquina " + i + " com valor negativo.");
+            }
+            i++;
+        }
+        naoNegativo("relatorioCredito", f.getRelatorioCredito());
+        naoNegativo("relatorioDebito", f.getRelatorioDebito());
+        naoNegativo("relatorioPix", f.getRelatorioPix());
+        naoNegativo("entradaDinheiro", f.getEntradaDinheiro());
+        naoNegativo("relatorioDinheiro", f.getRelatorioDinheiro());
+        naoNegativo("trocoInicial", f.getTrocoInicial());
+    }
+
+    private static void naoNegativo(String campo, Valor v) {
+        if (v.isNegativo()) throw new IllegalArgumentException(campo + " negativo.");
+    }
+}
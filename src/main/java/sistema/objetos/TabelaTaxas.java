@@ -0,0 +1,307 @@
+package main.java.sistema.objetos;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Taxas das máquinas de cartão por máquina, tipo de pagamento e data de vigência.
+ *
+ * Arquivo (taxas.txt), uma regra por linha, "#" comenta:
+ * <pre>
+ * # vigência;máquina|*;credito|debito|pix|*;taxa em %
+ * 2024-01-01;*;*;3.00
+ * 2024-03-01;2;credito;3.49
+ * </pre>
+ * Vale a regra de vigência mais recente até a data do fechamento; na mesma data, a da máquina
+ * ganha da "*". Antes de qualquer regra vale {@link RegrasFechamento#TAXA_FACTOR}. A máquina é a
+ * posição dela no fechamento (1 = primeira), a única identidade que as máquinas têm aqui.
+ *
+ * As regras são compiladas uma vez em arrays ordenados por (máquina, tipo): consultar é uma busca
+ * binária num int[], sem alocação. Os valores brutos ficam na própria {@link MaquinaCartao}, então
+ * uma taxa alterada com vigência retroativa é aplicada de novo com {@link #recalcular(List)}.
+ */
+public final class TabelaTaxas {
+
+    public enum Tipo { CREDITO, DEBITO, PIX }
+
+    /** @param maquina 1.. ou 0 = todas; @param taxa em pontos-base (349 = 3,49%) */
+    public record Regra(LocalDate vigencia, int maquina, Tipo tipo, int taxa) {
+
+        public Regra {
+            if (vigencia == null || tipo == null) throw new IllegalArgumentException("Regra incompleta.");
+            if (maquina < 0) throw new IllegalArgumentException("Máquina inválida: " + maquina);
+            if (taxa < 0 || taxa >= 10_000) throw new IllegalArgumentException("Taxa deve estar entre 0% e 100%.");
+        }
+    }
+
+    /** Resultado de {@link #recalcular(List)}. */
+    public record Recalculo(List<Fechamento> alterados, int maquinas, int semBruto) {}
+
+    private static final Tipo[] TIPOS = Tipo.values();
+
+    /** Sem regras: a taxa única de sempre. */
+    public static final TabelaTaxas PADRAO = new TabelaTaxas(List.of());
+
+    private final List<Regra> regras;
+
+    // [máquina][tipo]: vigências (epoch day) crescentes e o fator de cada uma; máquina 0 = regras "*"
+    private final int[][][] dias;
+    private final int[][][] fatores;
+
+    public TabelaTaxas(List<Regra> regras) {
+        this.regras = List.copyOf(regras);
+
+        int maior = 0;
+        for (Regra r : regras) maior = Math.max(maior, r.maquina());
+        dias = new int[maior + 1][TIPOS.length][];
+        fatores = new int[maior + 1][TIPOS.length][];
+
+        // por vigência; na mesma data a específica vem depois e sobrescreve a "*"
+        List<Regra> ordenadas = new ArrayList<>(regras);
+        ordenadas.sort(Comparator.comparing(Regra::vigencia).thenComparingInt(r -> r.maquina() == 0 ? 0 : 1));
+        for (int maq = 0; maq <= maior; maq++) {
+            for (Tipo t : TIPOS) {
+                int[] d = new int[ordenadas.size()];
+                int[] f = new int[ordenadas.size()];
+                int n = 0;
+                for (Regra r : ordenadas) {
+                    if (r.tipo() != t || (r.maquina() != 0 && r.maquina() != maq)) continue;
+                    int dia = (int) r.vigencia().toEpochDay();
+                    if (n > 0 && d[n - 1] == dia) n--;
+                    d[n] = dia;
+                    f[n] = 10_000 - r.taxa();
+                    n++;
+                }
+                dias[maq][t.ordinal()] = Arrays.copyOf(d, n);
+                fatores[maq][t.ordinal()] = Arrays.copyOf(f, n);
+            }
+        }
+    }
+
+    public List<Regra> getRegras() {
+        return regras;
+    }
+
+    // ----------------------
+    // CONSULTA
+    // ----------------------
+
+    /** Fator em pontos-base (9700 = taxa de 3%) para a máquina (1..) e o tipo na data. */
+    public int fator(int maquina, Tipo tipo, LocalDate data) {
+        return fator(maquina, tipo.ordinal(), (int) data.toEpochDay());
+    }
+
+    private int fator(int maquina, int tipo, int dia) {
+        int maq = maquina < dias.length ? maquina : 0;
+        int[] d = dias[maq][tipo];
+        if (d.length == 0 || dia < d[0]) return RegrasFechamento.TAXA_FACTOR;
+        int i = d.length == 1 ? 0 : Arrays.binarySearch(d, dia);
+        if (i < 0) i = -i - 2; // última vigência antes da data
+        return fatores[maq][tipo][i];
+    }
+
+    /** Máquina com os valores digitados (brutos) -> líquidos pela taxa vigente, guardando os brutos. */
+    public MaquinaCartao aplicar(MaquinaCartao digitada, LocalDate data, int maquina) {
+        MaquinaCartao m = new MaquinaCartao(
+                digitada.getCredito().aplicarFator(fator(maquina, Tipo.CREDITO, data)),
+                digitada.getDebito().aplicarFator(fator(maquina, Tipo.DEBITO, data)),
+                digitada.getPix().aplicarFator(fator(maquina, Tipo.PIX, data)));
+        m.setBruto(digitada.getCredito(), digitada.getDebito(), digitada.getPix());
+        return m;
+    }
+
+    /**
+     * Refaz os líquidos das máquinas e leituras de {@code f} que têm bruto, pela data atual do
+     * fechamento. A máquina de diferença do turno 2 fica com quem a mantém (DeltaTurnos).
+     * true se algum valor mudou.
+     */
+    public boolean recalcular(Fechamento f) {
+        return !recalcular(List.of(f), false).alterados().isEmpty();
+    }
+
+    /**
+     * Recalcula os líquidos de uma vez para todos os fechamentos (ex.: meses inteiros depois de uma
+     * taxa retroativa). Os brutos e fatores vão para arrays primitivos e o cálculo é um laço só
+     * sobre eles; depois os valores que mudaram voltam para as máquinas e a diferença dos turnos 2
+     * é refeita com o turno 1 do mesmo dia, se ele estiver na lista.
+     */
+    public Recalculo recalcular(List<Fechamento> lista) {
+        return recalcular(lista, true);
+    }
+
+    private Recalculo recalcular(List<Fechamento> lista, boolean diferencas) {
+        int n = 0;
+        int maquinas = 0;
+        int semBruto = 0;
+        boolean turnos2 = false;
+        for (Fechamento f : lista) {
+            turnos2 |= f.temLeituras();
+            for (MaquinaCartao m : f.getLeituras()) {
+                maquinas++;
+                if (m.temBruto()) n += 3;
+                else semBruto++;
+            }
+            if (f.temLeituras()) continue; // a máquina do turno 2 é a diferença, sem bruto
+            for (MaquinaCartao m : f.getMaquinas()) {
+                maquinas++;
+                if (m.temBruto()) n += 3;
+                else semBruto++;
+            }
+        }
+
+        long[] bruto = new long[n];
+        int[] fator = new int[n];
+        int i = 0;
+        for (Fechamento f : lista) {
+            i = colunas(f.temLeituras() ? f.getLeituras() : f.getMaquinas(), f.getData(), bruto, fator, i);
+        }
+
+        long[] liquido = new long[n];
+        liquidos(bruto, fator, liquido);
+
+        boolean[] mudou = new boolean[lista.size()];
+        i = 0;
+        for (int k = 0; k < lista.size(); k++) {
+            Fechamento f = lista.get(k);
+            if (f.temLeituras()) {
+                // leituras são cópias sem dono: troca a lista para os totais acompanharem
+                List<MaquinaCartao> novas = new ArrayList<>(f.getLeituras().size());
+                for (MaquinaCartao m : f.getLeituras()) {
+                    MaquinaCartao c = m.copia();
+                    if (m.temBruto()) {
+                        mudou[k] |= atribuir(c, liquido, i);
+                        i += 3;
+                    }
+                    novas.add(c);
+                }
+                if (mudou[k]) {
+                    f.clearLeituras();
+                    for (MaquinaCartao m : novas) f.addLeitura(m);
+                }
+            } else {
+                for (MaquinaCartao m : f.getMaquinas()) {
+                    if (!m.temBruto()) continue;
+                    mudou[k] |= atribuir(m, liquido, i);
+                    i += 3;
+                }
+            }
+        }
+
+        // turno 2: refaz a diferença se as leituras dele ou o turno 1 do dia mudaram
+        if (diferencas && turnos2) {
+            Map<LocalDate, Integer> turnos1 = new HashMap<>();
+            for (int k = 0; k < lista.size(); k++) if (lista.get(k).getTurno() == 1) turnos1.put(lista.get(k).getData(), k);
+            for (int k = 0; k < lista.size(); k++) {
+                Fechamento f = lista.get(k);
+                if (f.getTurno() != 2 || !f.temLeituras()) continue;
+                Integer t1 = turnos1.get(f.getData());
+                if ((mudou[k] || (t1 != null && mudou[t1]))
+                        && RegrasFechamento.diferencaTurno2(f, t1 == null ? null : lista.get(t1))) {
+                    mudou[k] = true;
+                }
+            }
+        }
+
+        List<Fechamento> alterados = new ArrayList<>();
+        for (int k = 0; k < lista.size(); k++) if (mudou[k]) alterados.add(lista.get(k));
+        return new Recalculo(Collections.unmodifiableList(alterados), maquinas, semBruto);
+    }
+
+    // brutos (crédito, débito, pix por máquina) e seus fatores a partir da posição i; devolve a próxima
+    private int colunas(List<MaquinaCartao> maquinas, LocalDate data, long[] bruto, int[] fator, int i) {
+        int dia = (int) data.toEpochDay();
+        int numero = 0;
+        for (MaquinaCartao m : maquinas) {
+            numero++;
+            if (!m.temBruto()) continue;
+            bruto[i] = m.getBrutoCredito().centavos();
+            bruto[i + 1] = m.getBrutoDebito().centavos();
+            bruto[i + 2] = m.getBrutoPix().centavos();
+            fator[i] = fator(numero, 0, dia);
+            fator[i + 1] = fator(numero, 1, dia);
+            fator[i + 2] = fator(numero, 2, dia);
+            i += 3;
+        }
+        return i;
+    }
+
+    // brutos nunca são negativos (MaquinaCartao.setBruto), então arredondar meio para cima é o mesmo
+    // que Valor.aplicarFator, sem desvio no laço
+    static void liquidos(long[] bruto, int[] fator, long[] liquido) {
+        for (int i = 0; i < bruto.length; i++) {
+            liquido[i] = (bruto[i] * fator[i] + 5_000) / 10_000;
+        }
+    }
+
+    private static boolean atribuir(MaquinaCartao m, long[] liquido, int i) {
+        boolean mudou = false;
+        if (m.getCredito().centavos() != liquido[i]) {
+            m.setCredito(Valor.deCentavos(liquido[i]));
+            mudou = true;
+        }
+        if (m.getDebito().centavos() != liquido[i + 1]) {
+            m.setDebito(Valor.deCentavos(liquido[i + 1]));
+            mudou = true;
+        }
+        if (m.getPix().centavos() != liquido[i + 2]) {
+            m.setPix(Valor.deCentavos(liquido[i + 2]));
+            mudou = true;
+        }
+        return mudou;
+    }
+
+    // ----------------------
+    // ARQUIVO
+    // ----------------------
+    public static TabelaTaxas ler(Path arquivo) throws IOException {
+        return parse(Files.readAllLines(arquivo, StandardCharsets.UTF_8));
+    }
+
+    /** @throws IllegalArgumentException com o número da primeira linha inválida */
+    public static TabelaTaxas parse(List<String> linhas) {
+        List<Regra> regras = new ArrayList<>();
+        int n = 0;
+        for (String linha : linhas) {
+            n++;
+            String s = linha.strip();
+            if (s.isEmpty() || s.startsWith("#")) continue;
+            String[] p = s.split(";");
+            try {
+                if (p.length != 4) throw new IllegalArgumentException("esperado vigência;máquina;tipo;taxa");
+                LocalDate vigencia = LocalDate.parse(p[0].strip());
+                String maq = p[1].strip();
+                int maquina = maq.equals("*") ? 0 : maq.matches("[0-9]{1,4}") ? Integer.parseInt(maq) : -1;
+                if (maquina < 1 && !maq.equals("*")) throw new IllegalArgumentException("máquina deve ser 1.. ou *");
+                long taxa = Valor.parse(p[3].strip().replace("%", "")).centavos(); // "3,49" -> 349 pontos-base
+                if (taxa < 0 || taxa >= 10_000) throw new IllegalArgumentException("taxa deve estar entre 0% e 100%");
+
+                String tipo = p[2].strip().toLowerCase(Locale.ROOT);
+                int antes = regras.size();
+                for (Tipo t : TIPOS) {
+                    if (tipo.equals("*") || tipo.equals(t.name().toLowerCase(Locale.ROOT))
+                            || (t == Tipo.CREDITO && tipo.equals("crédito")) || (t == Tipo.DEBITO && tipo.equals("débito"))) {
+                        regras.add(new Regra(vigencia, maquina, t, (int) taxa));
+                    }
+                }
+                if (regras.size() == antes) {
+                    throw new IllegalArgumentException("tipo deve ser credito, debito, pix ou *");
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Taxas, linha " + n + ": " + e.getMessage());
+            }
+        }
+        return new TabelaTaxas(regras);
+    }
+}
@@ -0,0 +1,154 @@
+package main.java.sistema.objetos;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valor monetário exato em centavos (imutável).
+ *
+ * Regras de arredondamento: entradas com mais de duas casas e aplicação de fator
+ * (taxa da maquininha) arredondam para o centavo mais próximo, meio centavo para longe do zero.
+ */
+public final class Valor implements Comparable<Valor> {
+
+    public static final Valor ZERO = new Valor(0);
+
+    private final long centavos;
+
+    private Valor(long centavos) {
+        this.centavos = centavos;
+    }
+
+    public static Valor deCentavos(long centavos) {
+        return centavos == 0 ? ZERO : new Valor(centavos);
+    }
+
+    /** Converte um double já existente (ex.: arquivos antigos) para o centavo mais próximo. */
+    public static Valor deReais(double reais) {
+        return deCentavos(Math.round(reais * 100));
+    }
+
+    /**
+     * Lê "123", "123.4", "123,45", "-0.5" ou "58.199999999999996" sem passar por double.
+     * Aceita notação científica como fallback.
+     */
+    public static Valor parse(CharSequence s) {
+        int i = 0;
+        int n = s.length();
+        while (i < n && s.charAt(i) == ' ') i++;
+        while (n > i && s.charAt(n - 1) == ' ') n--;
+        if (i == n) throw new NumberFormatException("Valor vazio.");
+
+        boolean negativo = false;
+        char c0 = s.charAt(i);
+        if (c0 == '-' || c0 == '+') {
+            negativo = c0 == '-';
+            i++;
+        }
+
+        long inteiro = 0;
+        int digitos = 0;
+        while (i < n && Character.isDigit(s.charAt(i))) {
+            inteiro = Math.addExact(Math.multiplyExact(inteiro, 10), s.charAt(i++) - '0');
+            digitos++;
+        }
+
+        long frac = 0;
+        int casas = 0;
+        boolean arredondaCima = false;
+        if (i < n && (s.charAt(i) == '.' || s.charAt(i) == ',')) {
+            i++;
+            while (i < n && Character.isDigit(s.charAt(i))) {
+                int d = s.charAt(i++) - '0';
+                if (casas < 2) {
+                    frac = frac * 10 + d;
+                } else if (casas == 2) {
+                    arredondaCima = d >= 5;
+                }
+                casas++;
+                digitos++;
+            }
+        }
+
+        if (i < n && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            BigDecimal bd = new BigDecimal(s.subSequence(0, n).toString().trim());
+            return deCentavos(bd.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        }
+        if (i != n || digitos == 0) throw new NumberFormatException("Valor inválido: " + s);
+
+        if (casas == 1) frac *= 10;
+        long c = Math.addExact(Math.multiplyExact(inteiro, 100), frac);
+        if (arredondaCima) c++;
+        return deCentavos(negativo ? -c : c);
+    }
+
+    public long centavos() { return centavos; }
+
+    public boolean isNegativo() { return centavos < 0; }
+
+    public Valor mais(Valor o) {
+        return deCentavos(Math.addExact(centavos, o.centavos));
+    }
+
+    public Valor menos(Valor o) {
+        return deCentavos(Math.subtractExact(centavos, o.centavos));
+    }
+
+    /** Multiplica por um fator em pontos-base (9700 = 0,97), arredondando ao centavo. */
+    public Valor aplicarFator(int pontosBase) {
+        return deCentavos(dividirArredondando(Math.multiplyExact(centavos, pontosBase), 10_000));
+    }
+
+    /** Divisão inteira com meio para longe do zero. */
+    public static long dividirArredondando(long numerador, long denominador) {
+        long q = numerador / denominador;
+        long r = numerador % denominador;
+        if (Math.abs(r) * 2 >= Math.abs(denominador)) {
+            q += (numerador < 0) == (denominador < 0) ? 1 : -1;
+        }
+        return q;
+    }
+
+    /** "1234.50" / "-0.05" (ponto decimal, sem separador de milhar). */
+    public static String formatar(long centavos) {
+        StringBuilder sb = new StringBuilder(16);
+        formatar(centavos, sb);
+        return sb.toString();
+    }
+
+    public static void formatar(long centavos, StringBuilder sb) {
+        if (centavos < 0) {
+            sb.append('-');
+            if (centavos == Long.MIN_VALUE) throw new ArithmeticException("Valor fora do intervalo.");
+            centavos = -centavos;
+        }
+        long frac = centavos % 100;
+        sb.append(centavos / 100).append('.');
+        if (frac < 10) sb.append('0');
+        sb.append(frac);
+    }
+
+    public double toDouble() {
+        return centavos / 100.0;
+    }
+
+    @Override
+    public int compareTo(Valor o) {
+        return Long.compare(centavos, o.centavos);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Valor v && v.centavos == centavos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+
+    @Override
+    public String toString() {
+        return formatar(centavos);
+    }
+}
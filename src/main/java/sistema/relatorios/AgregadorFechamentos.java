@@ -0,0 +1,69 @@
+package main.java.sistema.relatorios;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import main.java.sistema.objetos.Fechamento;
+
+/**
+ * Totais por dia mantidos incrementalmente; relatórios por período somam só os dias do intervalo,
+ * sem percorrer fechamentos nem máquinas.
+ */
+public class AgregadorFechamentos {
+
+    private record Contribuicao(LocalDate data, Totais totais) {}
+
+    private final NavigableMap<LocalDate, Totais> porDia = new TreeMap<>();
+    private final Map<Long, Contribuicao> contribuicoes = new HashMap<>();
+
+    public AgregadorFechamentos() {}
+
+    public AgregadorFechamentos(Collection<Fechamento> lista) {
+        for (Fechamento f : lista) adicionar(f);
+    }
+
+    public void adicionar(Fechamento f) {
+        if (f.getData() == null) return;
+
+        Totais t = Totais.de(f);
+        contribuicoes.put(f.getId(), new Contribuicao(f.getData(), t));
+        porDia.computeIfAbsent(f.getData(), d -> new Totais()).somar(t);
+    }
+
+    public void remover(Fechamento f) {
+        Contribuicao c = contribuicoes.remove(f.getId());
+        if (c == null) return;
+
+        Totais dia = porDia.get(c.data());
+        dia.subtrair(c.totais());
+        if (dia.getQuantidade() == 0) porDia.remove(c.data());
+    }
+
+    /** Recalcula a contribuição do fechamento depois de uma edição (inclusive troca de data). */
+    public void atualizar(Fechamento f) {
+        remover(f);
+        adicionar(f);
+    }
+
+    /** Totais agrupados pelo período, chaveados pelo primeiro dia de cada período. */
+    public NavigableMap<LocalDate, Totais> agrupar(LocalDate inicio, LocalDate fim, Periodo periodo) {
+        NavigableMap<LocalDate, Totais> out = new TreeMap<>();
+        for (Map.Entry<LocalDate, Totais> e : porDia.subMap(inicio, true, fim, true).entrySet()) {
+            out.computeIfAbsent(periodo.inicio(e.getKey()), d -> new Totais()).somar(e.getValue());
+        }
+        return out;
+    }
+
+    /** Total do intervalo inteiro. */
+    public Totais total(LocalDate inicio, LocalDate fim) {
+        Totais out = new Totais();
+        for (Totais dia : porDia.subMap(inicio, true, fim, true).values()) {
+            out.somar(dia);
+        }
+        return out;
+    }
+}
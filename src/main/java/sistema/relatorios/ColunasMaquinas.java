@@ -0,0 +1,162 @@
+package main.java.sistema.relatorios;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.MaquinaCartao;
+
+/**
+ * Valores das máquinas de todos os fechamentos em colunas primitivas (centavos),
+ * para relatórios em massa percorrerem memória contígua em vez de List&lt;MaquinaCartao&gt;.
+ *
+ * Cada fechamento ocupa um trecho [inicio, inicio + quantidade) das colunas. Remoções deixam
+ * buracos que são recolhidos quando passam da metade do espaço usado.
+ */
+public class ColunasMaquinas {
+
+    // colunas por máquina
+    private long[] credito = new long[64];
+    private long[] debito = new long[64];
+    private long[] pix = new long[64];
+    private int usadas;
+    private int livres; // máquinas em trechos removidos
+
+    // colunas por fechamento
+    private long[] ids = new long[32];
+    private int[] dias = new int[32];
+    private int[] inicios = new int[32];
+    private int[] quantidades = new int[32]; // -1 = removido
+    private int fechamentos;
+    private int removidos;
+
+    private final Map<Long, Integer> posicao = new HashMap<>();
+
+    public ColunasMaquinas() {}
+
+    public ColunasMaquinas(Collection<Fechamento> lista) {
+        for (Fechamento f : lista) adicionar(f);
+    }
+
+    public void adicionar(Fechamento f) {
+        if (f.getData() == null) return;
+        int n = f.getMaquinas().size();
+
+        garantirMaquinas(usadas + n);
+        garantirFechamentos(fechamentos + 1);
+
+        int slot = fechamentos++;
+        ids[slot] = f.getId();
+        dias[slot] = (int) f.getData().toEpochDay();
+        inicios[slot] = usadas;
+        quantidades[slot] = n;
+        posicao.put(f.getId(), slot);
+
+        for (MaquinaCartao m : f.getMaquinas()) {
+            credito[usadas] = m.getCredito().centavos();
+            debito[usadas] = m.getDebito().centavos();
+            pix[usadas] = m.getPix().centavos();
+            usadas++;
+        }
+    }
+
+    public void remover(Fechamento f) {
+        Integer slot = posicao.remove(f.getId());
+        if (slot == null) return;
+
+        livres += quantidades[slot];
+        quantidades[slot] = -1;
+        removidos++;
+        if (livres > usadas / 2 || removidos > fechamentos / 2) compactar();
+    }
+
+    /** Regrava o trecho do fechamento (no fim das colunas) depois de uma edição. */
+    public void atualizar(Fechamento f) {
+        remover(f);
+        adicionar(f);
+    }
+
+    /** Soma {crédito, débito, pix} em centavos das máquinas dos fechamentos no intervalo. */
+    public long[] somar(LocalDate inicio, LocalDate fim) {
+        int de = (int) inicio.toEpochDay();
+        int ate = (int) fim.toEpochDay();
+        long c = 0, d = 0, p = 0;
+
+        for (int s = 0; s < fechamentos; s++) {
+            int q = quantidades[s];
+            if (q <= 0 || dias[s] < de || dias[s] > ate) continue;
+            for (int i = inicios[s], lim = i + q; i < lim; i++) {
+                c += credito[i];
+                d += debito[i];
+                p += pix[i];
+            }
+        }
+        return new long[] {c, d, p};
+    }
+
+    /** Quantidade de leituras de máquina dos fechamentos no intervalo. */
+    public int contarMaquinas(LocalDate inicio, LocalDate fim) {
+        int de = (int) inicio.toEpochDay();
+        int ate = (int) fim.toEpochDay();
+        int total = 0;
+        for (int s = 0; s < fechamentos; s++) {
+            if (quantidades[s] > 0 && dias[s] >= de && dias[s] <= ate) total += quantidades[s];
+        }
+        return total;
+    }
+
+    public int getMaquinas() {
+        return usadas - livres;
+    }
+
+    // move os trechos vivos para o início, na mesma ordem
+    private void compactar() {
+        int destinoMaq = 0;
+        int destinoSlot = 0;
+        posicao.clear();
+
+        for (int s = 0; s < fechamentos; s++) {
+            int q = quantidades[s];
+            if (q < 0) continue;
+
+            int origem = inicios[s];
+            System.arraycopy(credito, origem, credito, destinoMaq, q);
+            System.arraycopy(debito, origem, debito, destinoMaq, q);
+            System.arraycopy(pix, origem, pix, destinoMaq, q);
+
+            ids[destinoSlot] = ids[s];
+            dias[destinoSlot] = dias[s];
+            inicios[destinoSlot] = destinoMaq;
+            quantidades[destinoSlot] = q;
+            posicao.put(ids[s], destinoSlot);
+
+            destinoMaq += q;
+            destinoSlot++;
+        }
+
+        usadas = destinoMaq;
+        fechamentos = destinoSlot;
+        livres = 0;
+        removidos = 0;
+    }
+
+    private void garantirMaquinas(int minimo) {
+        if (minimo <= credito.length) return;
+        int cap = Math.max(minimo, credito.length + (credito.length >> 1));
+        credito = Arrays.copyOf(credito, cap);
+        debito = Arrays.copyOf(debito, cap);
+        pix = Arrays.copyOf(pix, cap);
+    }
+
+    private void garantirFechamentos(int minimo) {
+        if (minimo <= ids.length) return;
+        int cap = Math.max(minimo, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, cap);
+        dias = Arrays.copyOf(dias, cap);
+        inicios = Arrays.copyOf(inicios, cap);
+        quantidades = Arrays.copyOf(quantidades, cap);
+    }
+}
@@ -0,0 +1,207 @@
+package main.java.sistema.relatorios;
+
+import java.time.DayOfWeek;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.Valor;
+
+/**
+ * Diferenças fora do normal entre turnos. Para cada tipo de pagamento (crédito, débito, pix e
+ * dinheiro) guarda {@link EstatisticaIncremental} por responsável e por dia da semana, e compara a
+ * diferença de um fechamento com elas:
+ * <ul>
+ *   <li>fora da faixa: |diferença - média| acima de {@code limiteZ} desvios do grupo;</li>
+ *   <li>falta recorrente: a EWMA do responsável passa a ficar abaixo de -{@code tendencia} com este fechamento.</li>
+ * </ul>
+ * Grupos com menos de {@code minimoAmostras} fechamentos não avaliam; diferenças até
+ * {@code tolerancia} nunca são apontadas.
+ *
+ * Criar, editar e excluir custam O(1); cada fechamento lembra a contribuição que deu, como em
+ * {@link AgregadorFechamentos}. As estatísticas cobrem os fechamentos que passaram por aqui
+ * (no console, os meses em memória).
+ */
+public class DetectorAnomalias {
+
+    public enum Tipo {
+        CREDITO("crédito"), DEBITO("débito"), PIX("pix"), DINHEIRO("dinheiro");
+
+        private final String rotulo;
+
+        Tipo(String rotulo) {
+            this.rotulo = rotulo;
+        }
+
+        @Override
+        public String toString() {
+            return rotulo;
+        }
+    }
+
+    /**
+     * Faixas configuráveis por -Daurelius.anomalias.z (3), .minimo (8), .alfa (0.2),
+     * .tendencia (20.00) e .tolerancia (1.00); valores em reais.
+     */
+    public record Config(double limiteZ, int minimoAmostras, double alfa, long tendencia, long tolerancia) {
+
+        public static Config padrao() {
+            return new Config(
+                    Double.parseDouble(System.getProperty("aurelius.anomalias.z", "3")),
+                    Integer.getInteger("aurelius.anomalias.minimo", 8),
+                    Double.parseDouble(System.getProperty("aurelius.anomalias.alfa", "0.2")),
+                    Valor.parse(System.getProperty("aurelius.anomalias.tendencia", "20.00")).centavos(),
+                    Valor.parse(System.getProperty("aurelius.anomalias.tolerancia", "1.00")).centavos());
+        }
+    }
+
+    public record Anomalia(Fechamento fechamento, Tipo tipo, String grupo, long diferenca, double media,
+                           double desvio, String motivo) {
+
+        @Override
+        public String toString() {
+            return String.format("%s: diferença R$ %s, %s (%s: média R$ %.2f, desvio R$ %.2f)",
+                    tipo, Valor.formatar(diferenca), motivo, grupo, media / 100, desvio / 100);
+        }
+    }
+
+    /** Estatística de um grupo, para resumos. */
+    public record Grupo(String nome, Tipo tipo, EstatisticaIncremental estatistica) {}
+
+    private record Chave(String grupo, Tipo tipo) {}
+
+    private record Contribuicao(String responsavel, DayOfWeek dia, long[] diferencas) {}
+
+    private static final Tipo[] TIPOS = Tipo.values();
+    private static final Locale PT_BR = Locale.forLanguageTag("pt-BR");
+
+    private final Config config;
+    private final Map<Chave, EstatisticaIncremental> grupos = new HashMap<>();
+    private final Map<Long, Contribuicao> contribuicoes = new HashMap<>();
+
+    public DetectorAnomalias() {
+        this(Config.padrao());
+    }
+
+    public DetectorAnomalias(Config config) {
+        this.config = config;
+    }
+
+    /** Entra nas estatísticas sem avaliar (ex.: histórico lido do disco). */
+    public void adicionar(Fechamento f) {
+        if (f.getData() == null) return;
+        Contribuicao c = new Contribuicao(responsavel(f), f.getData().getDayOfWeek(), diferencas(f));
+        contribuicoes.put(f.getId(), c);
+        for (Tipo t : TIPOS) {
+            double d = c.diferencas()[t.ordinal()];
+            if (c.responsavel() != null) estatistica(grupoResponsavel(c.responsavel()), t).adicionar(d);
+            estatistica(grupoDia(c.dia()), t).adicionar(d);
+        }
+    }
+
+    public void remover(Fechamento f) {
+        Contribuicao c = contribuicoes.remove(f.getId());
+        if (c == null) return;
+        for (Tipo t : TIPOS) {
+            double d = c.diferencas()[t.ordinal()];
+            if (c.responsavel() != null) estatistica(grupoResponsavel(c.responsavel()), t).remover(d);
+            estatistica(grupoDia(c.dia()), t).remover(d);
+        }
+    }
+
+    /** Avalia contra o histórico e entra nas estatísticas (fechamento novo). */
+    public List<Anomalia> registrar(Fechamento f) {
+        List<Anomalia> out = avaliar(f);
+        adicionar(f);
+        return out;
+    }
+
+    /** Depois de uma edição: tira a contribuição antiga, avalia os valores novos e os registra. */
+    public List<Anomalia> atualizar(Fechamento f) {
+        remover(f);
+        return registrar(f);
+    }
+
+    /** Compara as diferenças de {@code f} com as estatísticas atuais, sem alterá-las. */
+    public List<Anomalia> avaliar(Fechamento f) {
+        if (f.getData() == null) return List.of();
+        List<Anomalia> out = new ArrayList<>(0);
+        long[] dif = diferencas(f);
+        String resp = responsavel(f);
+
+        for (Tipo t : TIPOS) {
+            long d = dif[t.ordinal()];
+            if (Math.abs(d) <= config.tolerancia()) continue;
+
+            if (resp != null) {
+                EstatisticaIncremental e = grupos.get(new Chave(grupoResponsavel(resp), t));
+                if (foraDaFaixa(e, d)) {
+                    out.add(anomalia(f, t, "responsável " + f.getResponsavel().trim(), d, e, "fora da faixa do responsável"));
+                } else if (d < 0 && e != null && e.quantidade() >= config.minimoAmostras()
+                        && e.ewma() >= -config.tendencia() && e.ewmaCom(d) < -config.tendencia()) {
+                    // só quando a média móvel cruza o limite; depois disso não repete a cada turno
+                    out.add(anomalia(f, t, "responsável " + f.getResponsavel().trim(), d, e,
+                            String.format("falta recorrente (média móvel R$ %.2f)", e.ewmaCom(d) / 100)));
+                }
+            }
+
+            DayOfWeek dia = f.getData().getDayOfWeek();
+            EstatisticaIncremental e = grupos.get(new Chave(grupoDia(dia), t));
+            if (foraDaFaixa(e, d)) {
+                out.add(anomalia(f, t, dia.getDisplayName(TextStyle.FULL, PT_BR), d, e, "fora da faixa do dia da semana"));
+            }
+        }
+        return out;
+    }
+
+    /** Estatísticas por responsável, em ordem de nome e tipo. */
+    public List<Grupo> porResponsavel() {
+        Map<String, Grupo> ordenados = new TreeMap<>();
+        for (Map.Entry<Chave, EstatisticaIncremental> e : grupos.entrySet()) {
+            Chave k = e.getKey();
+            if (!k.grupo().startsWith("r:") || e.getValue().quantidade() == 0) continue;
+            ordenados.put(k.grupo() + "\0" + k.tipo().ordinal(), new Grupo(k.grupo().substring(2), k.tipo(), e.getValue()));
+        }
+        return Collections.unmodifiableList(new ArrayList<>(ordenados.values()));
+    }
+
+    private boolean foraDaFaixa(EstatisticaIncremental e, long d) {
+        if (e == null || e.quantidade() < config.minimoAmostras()) return false;
+        // desvio mínimo = tolerância: grupo sempre certinho não acusa qualquer centavo
+        double desvio = Math.max(e.desvio(), config.tolerancia());
+        return Math.abs(d - e.media()) > config.limiteZ() * desvio;
+    }
+
+    private static Anomalia anomalia(Fechamento f, Tipo t, String grupo, long d, EstatisticaIncremental e, String motivo) {
+        return new Anomalia(f, t, grupo, d, e.media(), e.desvio(), motivo);
+    }
+
+    private EstatisticaIncremental estatistica(String grupo, Tipo t) {
+        return grupos.computeIfAbsent(new Chave(grupo, t), k -> new EstatisticaIncremental(config.alfa()));
+    }
+
+    private static long[] diferencas(Fechamento f) {
+        return new long[] {
+                f.diferencaCredito().centavos(), f.diferencaDebito().centavos(),
+                f.diferencaPix().centavos(), f.diferencaDinheiro().centavos()};
+    }
+
+    private static String responsavel(Fechamento f) {
+        if (f.getResponsavel() == null || f.getResponsavel().isBlank()) return null;
+        return f.getResponsavel().trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String grupoResponsavel(String responsavel) {
+        return "r:" + responsavel;
+    }
+
+    private static String grupoDia(DayOfWeek dia) {
+        return "d:" + dia;
+    }
+}
@@ -0,0 +1,81 @@
+package main.java.sistema.relatorios;
+
+/**
+ * Média e variância de uma série atualizadas em O(1) por valor: Welford (com remoção, para
+ * edições e exclusões) e média móvel exponencial (EWMA) com a variância correspondente, que
+ * segue só a ordem de chegada e pesa mais os valores recentes.
+ */
+public final class EstatisticaIncremental {
+
+    private final double alfa;
+
+    private long n;
+    private double media;
+    private double m2;
+
+    private boolean iniciada;
+    private double ewma;
+    private double ewmVar;
+
+    /** @param alfa peso do valor novo na EWMA (0 a 1) */
+    public EstatisticaIncremental(double alfa) {
+        if (!(alfa > 0 && alfa <= 1)) throw new IllegalArgumentException("Alfa deve estar em (0, 1].");
+        this.alfa = alfa;
+    }
+
+    public void adicionar(double x) {
+        n++;
+        double d = x - media;
+        media += d / n;
+        m2 += d * (x - media);
+
+        if (!iniciada) {
+            ewma = x;
+            iniciada = true;
+        } else {
+            double de = x - ewma;
+            double inc = alfa * de;
+            ewma += inc;
+            ewmVar = (1 - alfa) * (ewmVar + de * inc);
+        }
+    }
+
+    /** Desfaz um {@link #adicionar} na média/variância (a EWMA não tem como esquecer um valor e fica como está). */
+    public void remover(double x) {
+        if (n <= 1) {
+            n = 0;
+            media = 0;
+            m2 = 0;
+            return;
+        }
+        double anterior = (n * media - x) / (n - 1);
+        m2 -= (x - media) * (x - anterior);
+        if (m2 < 0) m2 = 0; // arredondamento
+        media = anterior;
+        n--;
+    }
+
+    public long quantidade() { return n; }
+
+    public double media() { return media; }
+
+    /** Variância amostral (n - 1). */
+    public double variancia() {
+        return n > 1 ? m2 / (n - 1) : 0;
+    }
+
+    public double desvio() {
+        return Math.sqrt(variancia());
+    }
+
+    public double ewma() { return ewma; }
+
+    public double desvioEwma() {
+        return Math.sqrt(ewmVar);
+    }
+
+    /** Quanto a EWMA ficaria se {@code x} entrasse agora. */
+    public double ewmaCom(double x) {
+        return iniciada ? ewma + alfa * (x - ewma) : x;
+    }
+}
@@ -0,0 +1,24 @@
+package main.java.sistema.relatorios;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Granularidade de agrupamento dos relatórios.
+ */
+public enum Periodo {
+
+    DIA,
+    SEMANA, // segunda a domingo
+    MES;
+
+    /** Primeiro dia do período que contém a data. */
+    public LocalDate inicio(LocalDate data) {
+        return switch (this) {
+            case DIA -> data;
+            case SEMANA -> data.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MES -> data.withDayOfMonth(1);
+        };
+    }
+}
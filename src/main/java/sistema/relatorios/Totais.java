@@ -0,0 +1,85 @@
+package main.java.sistema.relatorios;
+
+import main.java.sistema.objetos.Fechamento;
+import main.java.sistema.objetos.Valor;
+
+/**
+ * Somatório de um ou mais fechamentos (um dia, uma semana, um mês...).
+ * Guarda as parcelas em centavos, não as diferenças, para poder somar e subtrair fechamentos
+ * sem arredondamento nem alocação.
+ */
+public class Totais {
+
+    private int quantidade;
+
+    private long credito;
+    private long debito;
+    private long pix;
+
+    private long relatorioCredito;
+    private long relatorioDebito;
+    private long relatorioPix;
+    private long relatorioDinheiro;
+    private long entradaDinheiro;
+    private long trocoInicial;
+
+    public static Totais de(Fechamento f) {
+        Totais t = new Totais();
+        t.quantidade = 1;
+        t.credito = f.totalCreditoMaquinas().centavos();
+        t.debito = f.totalDebitoMaquinas().centavos();
+        t.pix = f.totalPixMaquinas().centavos();
+        t.relatorioCredito = f.getRelatorioCredito().centavos();
+        t.relatorioDebito = f.getRelatorioDebito().centavos();
+        t.relatorioPix = f.getRelatorioPix().centavos();
+        t.relatorioDinheiro = f.getRelatorioDinheiro().centavos();
+        t.entradaDinheiro = f.getEntradaDinheiro().centavos();
+        t.trocoInicial = f.getTrocoInicial().centavos();
+        return t;
+    }
+
+    public void somar(Totais o) {
+        acumular(o, 1);
+    }
+
+    public void subtrair(Totais o) {
+        acumular(o, -1);
+    }
+
+    private void acumular(Totais o, int sinal) {
+        quantidade += sinal * o.quantidade;
+        credito += sinal * o.credito;
+        debito += sinal * o.debito;
+        pix += sinal * o.pix;
+        relatorioCredito += sinal * o.relatorioCredito;
+        relatorioDebito += sinal * o.relatorioDebito;
+        relatorioPix += sinal * o.relatorioPix;
+        relatorioDinheiro += sinal * o.relatorioDinheiro;
+        entradaDinheiro += sinal * o.entradaDinheiro;
+        trocoInicial += sinal * o.trocoInicial;
+    }
+
+    public int getQuantidade() { return quantidade; }
+
+    public Valor getCredito() { return Valor.deCentavos(credito); }
+    public Valor getDebito() { return Valor.deCentavos(debito); }
+    public Valor getPix() { return Valor.deCentavos(pix); }
+
+    public Valor getRelatorioCredito() { return Valor.deCentavos(relatorioCredito); }
+    public Valor getRelatorioDebito() { return Valor.deCentavos(relatorioDebito); }
+    public Valor getRelatorioPix() { return Valor.deCentavos(relatorioPix); }
+    public Valor getRelatorioDinheiro() { return Valor.deCentavos(relatorioDinheiro); }
+    public Valor getEntradaDinheiro() { return Valor.deCentavos(entradaDinheiro); }
+    public Valor getTrocoInicial() { return Valor.deCentavos(trocoInicial); }
+
+    // mesmas regras de Fechamento
+    public Valor getDiferencaCredito() { return Valor.deCentavos(credito - relatorioCredito); }
+    public Valor getDiferencaDebito() { return Valor.deCentavos(debito - relatorioDebito); }
+    public Valor getDiferencaPix() { return Valor.deCentavos(pix - relatorioPix); }
+    public Valor getDiferencaDinheiro() { return Valor.deCentavos(entradaDinheiro - relatorioDinheiro - trocoInicial); }
+
+    public Valor getResultado() {
+        return Valor.deCentavos(credito - relatorioCredito + debito - relatorioDebito + pix - relatorioPix
+                + entradaDinheiro - relatorioDinheiro - trocoInicial);
+    }
+}